@@ -0,0 +1,502 @@
+package graph;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Solves many classic puzzles per thread by running `lanes` of them side by side.  All lanes live
+ * in one struct-of-arrays layout: the candidate masks of cell `c` in every lane are adjacent
+ * (`masks[c * stride + lane]`), and so are the per-unit masks.  Each step runs one propagation
+ * round (naked singles, then hidden singles) over every lane in lockstep, with the lane loop
+ * innermost, so the loads of one cell for all lanes share cache lines and the lanes' independent
+ * work fills the CPU's pipeline instead of one puzzle's chain of dependent loads and
+ * unpredictable branches.  After the round each lane is advanced on its own: it branches on the
+ * cell with fewest candidates if it is stuck, backtracks if it hit a contradiction, and once its
+ * puzzle is solved or refuted the lane is refilled with the next puzzle of the input.
+ *
+ * Search state is a stack of mask snapshots per lane, taken at each branch; the masks are held as
+ * shorts, 162 bytes per board.  All arrays are allocated at construction, so solving allocates
+ * nothing.
+ *
+ * When the `jdk.incubator.vector` module was added at startup and there are at least as many
+ * lanes as one vector holds, the round runs on `ShortVector`s (see `VectorBatchRound`), with the
+ * lane stride of the arrays rounded up to whole vectors; otherwise, or with the system property
+ * `graph.vector` set to `false`, it runs the scalar loops below, the same way
+ * `CandidateEngine.create()` picks an engine.  On a corpus of easy random puzzles on one core
+ * with 512-bit vectors, 32 to 128 vector lanes solve about twice as many puzzles per second as
+ * `SudokuSolver`, whose propagation touches only the peers of changed cells, while the scalar
+ * round stays just below it at any lane count.  `main()` compares them on a given corpus.  Not
+ * thread-safe; use one instance per thread.
+ */
+public final class BatchSolver {
+
+    private static final int CELLS = 81;
+    private static final int UNITS = 27;
+
+    // Cells of each unit, and the row, column and box unit of each cell.
+    private static final int[][] UNIT_CELLS = SudokuUnits.CLASSIC.units;
+    private static final int[] ROW = new int[CELLS];
+    private static final int[] COL = new int[CELLS];
+    private static final int[] BOX = new int[CELLS];
+
+    static {
+        for (int cell = 0; cell < CELLS; cell++) {
+            ROW[cell] = SudokuUnits.CLASSIC.unitsOf[cell][0];
+            COL[cell] = SudokuUnits.CLASSIC.unitsOf[cell][1];
+            BOX[cell] = SudokuUnits.CLASSIC.unitsOf[cell][2];
+        }
+    }
+
+    // Outcomes of a propagation round for one lane.
+    static final short STUCK = 0;
+    static final short CHANGED = 1;
+    static final short SOLVED = 2;
+    static final short CONTRADICTION = 3;
+
+    private final int lanes;
+
+    // Whether round() runs on VectorBatchRound.
+    private final boolean vector;
+
+    // Lanes per cell and per unit in 'masks', 'fixed', 'outcome' and 'open': 'lanes', rounded up
+    // to whole vectors if 'vector'.  The extra lanes stay idle.
+    private final int stride;
+
+    // Nodes a puzzle may expand before it is given up with status TIMEOUT.
+    private final long maxNodes;
+
+    // Candidates of every cell in every lane at [cell * stride + lane]; a single bit for a
+    // decided cell.
+    private final short[] masks;
+
+    // Digits decided in every unit in every lane at [unit * stride + lane], during a round.
+    private final short[] fixed;
+
+    // Per lane: puzzle being solved (-1 if idle), outcome of the last round, number of
+    // undecided cells, nodes, and scratch digit masks for hidden singles.
+    private final int[] puzzle;
+    private final short[] outcome;
+    private final short[] open;
+    private final long[] nodes;
+    private final int[] once;
+    private final int[] twice;
+    private final int[] decided;
+
+    // Branch stack of every lane: depth, and for each level the masks before branching (lane-major,
+    // at ((lane * CELLS + level) * CELLS + cell)), the cell branched on and its values left to try.
+    private final int[] depth;
+    private final short[] snapshots;
+    private final byte[] branchCell;
+    private final short[] remaining;
+
+    // Total nodes of all puzzles solved by this instance.
+    private long totalNodes;
+
+    /**
+     * Create a solver running 'lanes' puzzles at a time, each allowed 'maxNodes' search nodes,
+     * with the vector round if it is available.
+     */
+    public BatchSolver(int lanes, long maxNodes) {
+        this(lanes, maxNodes, true);
+    }
+
+    /**
+     * Create a solver as above, never using the vector round unless 'allowVector'.
+     */
+    BatchSolver(int lanes, long maxNodes, boolean allowVector) {
+        if (lanes < 1) {
+            throw new IllegalArgumentException("lanes must be positive: " + lanes);
+        }
+        this.lanes = lanes;
+        this.maxNodes = maxNodes;
+        int vectorLanes = allowVector ? vectorLanes() : 0;
+        vector = vectorLanes > 0 && lanes >= vectorLanes;
+        stride = vector ? (lanes + vectorLanes - 1) / vectorLanes * vectorLanes : lanes;
+        masks = new short[CELLS * stride];
+        fixed = new short[UNITS * stride];
+        puzzle = new int[lanes];
+        outcome = new short[stride];
+        open = new short[stride];
+        nodes = new long[lanes];
+        once = new int[lanes];
+        twice = new int[lanes];
+        decided = new int[lanes];
+        depth = new int[lanes];
+        snapshots = new short[lanes * CELLS * CELLS];
+        branchCell = new byte[lanes * CELLS];
+        remaining = new short[lanes * CELLS];
+    }
+
+    /**
+     * Return the number of lanes of the vector round, or 0 if it cannot run in this JVM: the
+     * `jdk.incubator.vector` module is missing, the CPU has no 256-bit vectors, or the system
+     * property `graph.vector` is `false`.
+     */
+    private static int vectorLanes() {
+        if (!"false".equals(System.getProperty("graph.vector"))
+                && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                if (VectorBatchRound.isSupported()) {
+                    return VectorBatchRound.laneCount();
+                }
+            } catch (LinkageError ignored) {
+                /* Vector classes could not be loaded, fall back to the scalar round. */
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the number of puzzles solved side by side.
+     */
+    public int lanes() {
+        return lanes;
+    }
+
+    /**
+     * Returns whether propagation rounds run on vectors.
+     */
+    public boolean isVectorized() {
+        return vector;
+    }
+
+    /**
+     * Returns the number of search nodes of all puzzles solved so far.
+     */
+    public long totalNodes() {
+        return totalNodes;
+    }
+
+    /**
+     * Solve the 'count' puzzles stored back to back in 'grids' (puzzle `b` at offset `81 * b`, 0
+     * for empty cells) and store the outcome of puzzle `b` in `statuses[b]`, and its solution at
+     * offset `81 * b` of 'solutions' if it was solved (other puzzles leave theirs untouched).
+     * Returns the number of puzzles solved.
+     */
+    public int solveBatch(int[] grids, int count, int[] solutions, SolveResult.Status[] statuses) {
+        int next = 0;
+        int active = 0;
+        int solved = 0;
+        for (int lane = 0; lane < lanes; lane++) {
+            if (next < count) {
+                load(lane, grids, next++);
+                active++;
+            } else {
+                puzzle[lane] = -1;
+            }
+        }
+        while (active > 0) {
+            round();
+            for (int lane = 0; lane < lanes; lane++) {
+                if (puzzle[lane] < 0) {
+                    continue;
+                }
+                SolveResult.Status status = switch (outcome[lane]) {
+                    case CHANGED -> null;
+                    case STUCK -> branch(lane) ? null : SolveResult.Status.TIMEOUT;
+                    case CONTRADICTION -> backtrack(lane) ? null : SolveResult.Status.UNSOLVABLE;
+                    default -> SolveResult.Status.SOLVED;
+                };
+                if (status == null) {
+                    continue;
+                }
+                int b = puzzle[lane];
+                statuses[b] = status;
+                totalNodes += nodes[lane];
+                if (status == SolveResult.Status.SOLVED) {
+                    solved++;
+                    for (int cell = 0; cell < CELLS; cell++) {
+                        solutions[CELLS * b + cell] =
+                                SudokuUnits.digit(masks[cell * stride + lane]);
+                    }
+                }
+                if (next < count) {
+                    load(lane, grids, next++);
+                } else {
+                    puzzle[lane] = -1;
+                    active--;
+                }
+            }
+        }
+        return solved;
+    }
+
+    // Put puzzle 'b' of 'grids' in 'lane'.
+    private void load(int lane, int[] grids, int b) {
+        puzzle[lane] = b;
+        nodes[lane] = 0;
+        depth[lane] = 0;
+        for (int cell = 0; cell < CELLS; cell++) {
+            int value = grids[CELLS * b + cell];
+            masks[cell * stride + lane] =
+                    (short) (value == 0 ? SudokuUnits.ALL_DIGITS : SudokuUnits.bit(value));
+        }
+    }
+
+    /**
+     * Run one propagation round in every lane and set its outcome: remove the digits decided in
+     * each unit from the other cells of the unit (naked singles follow), then decide every digit
+     * left with one place in a unit (hidden singles).  Idle lanes are computed as well, which is
+     * cheaper than skipping them.
+     */
+    private void round() {
+        if (vector) {
+            VectorBatchRound.round(masks, fixed, outcome, open, ROW, COL, BOX, stride);
+            return;
+        }
+        Arrays.fill(fixed, (short) 0);
+        Arrays.fill(outcome, STUCK);
+        Arrays.fill(open, (short) 0);
+
+        // Digits of the decided cells, per unit; a digit decided twice in a unit is a
+        // contradiction, and so is a cell without candidates.
+        for (int cell = 0; cell < CELLS; cell++) {
+            int base = cell * stride;
+            int row = ROW[cell] * stride;
+            int col = COL[cell] * stride;
+            int box = BOX[cell] * stride;
+            for (int lane = 0; lane < lanes; lane++) {
+                int mask = masks[base + lane];
+                if ((mask & (mask - 1)) == 0) {
+                    int seen = fixed[row + lane] | fixed[col + lane] | fixed[box + lane];
+                    if (mask == 0 || (seen & mask) != 0) {
+                        outcome[lane] = CONTRADICTION;
+                    }
+                    fixed[row + lane] |= (short) mask;
+                    fixed[col + lane] |= (short) mask;
+                    fixed[box + lane] |= (short) mask;
+                }
+            }
+        }
+
+        // Naked singles: remove the decided digits from the undecided cells.  A cell decided here
+        // joins its units' digits at once, so later cells of the sweep already see it.
+        for (int cell = 0; cell < CELLS; cell++) {
+            int base = cell * stride;
+            int row = ROW[cell] * stride;
+            int col = COL[cell] * stride;
+            int box = BOX[cell] * stride;
+            for (int lane = 0; lane < lanes; lane++) {
+                int mask = masks[base + lane];
+                if ((mask & (mask - 1)) != 0) {
+                    int left = mask & ~(fixed[row + lane] | fixed[col + lane] | fixed[box + lane]);
+                    masks[base + lane] = (short) left;
+                    if (left == 0) {
+                        outcome[lane] = CONTRADICTION;
+                    } else if ((left & (left - 1)) == 0) {
+                        fixed[row + lane] |= (short) left;
+                        fixed[col + lane] |= (short) left;
+                        fixed[box + lane] |= (short) left;
+                        outcome[lane] |= CHANGED;
+                    } else {
+                        open[lane]++;
+                    }
+                }
+            }
+        }
+
+        // Hidden singles: a digit with one place left in a unit goes there; a digit with none is
+        // a contradiction.
+        for (int[] unit : UNIT_CELLS) {
+            Arrays.fill(once, 0);
+            Arrays.fill(twice, 0);
+            Arrays.fill(decided, 0);
+            for (int cell : unit) {
+                int base = cell * stride;
+                for (int lane = 0; lane < lanes; lane++) {
+                    int mask = masks[base + lane];
+                    if ((mask & (mask - 1)) == 0) {
+                        decided[lane] |= mask;
+                    } else {
+                        twice[lane] |= once[lane] & mask;
+                        once[lane] |= mask;
+                    }
+                }
+            }
+            int anyHidden = 0;
+            for (int lane = 0; lane < lanes; lane++) {
+                if ((once[lane] | decided[lane]) != SudokuUnits.ALL_DIGITS) {
+                    outcome[lane] = CONTRADICTION;
+                }
+                // Reuse 'once' for the hidden digits of the lane.
+                once[lane] &= ~twice[lane] & ~decided[lane];
+                anyHidden |= once[lane];
+            }
+            if (anyHidden == 0) {
+                continue;
+            }
+            for (int cell : unit) {
+                int base = cell * stride;
+                for (int lane = 0; lane < lanes; lane++) {
+                    int mask = masks[base + lane];
+                    int hidden = mask & once[lane];
+                    if (hidden != 0 && (mask & (mask - 1)) != 0) {
+                        if ((hidden & (hidden - 1)) != 0) {
+                            // Two digits that both have only this cell left.
+                            outcome[lane] = CONTRADICTION;
+                        } else {
+                            masks[base + lane] = (short) hidden;
+                            outcome[lane] |= CHANGED;
+                            open[lane]--;
+                        }
+                    }
+                }
+            }
+        }
+
+        for (int lane = 0; lane < lanes; lane++) {
+            if (outcome[lane] == STUCK && open[lane] == 0) {
+                outcome[lane] = SOLVED;
+            }
+        }
+    }
+
+    /**
+     * Branch 'lane' on its undecided cell with fewest candidates, trying the lowest digit first.
+     * Returns false if the lane has used up its nodes.
+     */
+    private boolean branch(int lane) {
+        if (++nodes[lane] > maxNodes) {
+            return false;
+        }
+        int cell = -1;
+        int fewest = SudokuUnits.DIGITS + 1;
+        for (int c = 0; c < CELLS && fewest > 2; c++) {
+            int n = Integer.bitCount(masks[c * stride + lane]);
+            if (n > 1 && n < fewest) {
+                cell = c;
+                fewest = n;
+            }
+        }
+        int level = lane * CELLS + depth[lane]++;
+        int snapshot = level * CELLS;
+        for (int c = 0; c < CELLS; c++) {
+            snapshots[snapshot + c] = masks[c * stride + lane];
+        }
+        int mask = masks[cell * stride + lane];
+        int bit = mask & -mask;
+        branchCell[level] = (byte) cell;
+        remaining[level] = (short) (mask & ~bit);
+        masks[cell * stride + lane] = (short) bit;
+        return true;
+    }
+
+    /**
+     * Move 'lane' to the next value of its deepest branch with values left, restoring the masks
+     * of that branch.  Returns false if no branch has values left: the puzzle has no solution.
+     */
+    private boolean backtrack(int lane) {
+        while (depth[lane] > 0) {
+            int level = lane * CELLS + depth[lane] - 1;
+            int left = remaining[level];
+            if (left == 0) {
+                depth[lane]--;
+                continue;
+            }
+            nodes[lane]++;
+            int snapshot = level * CELLS;
+            for (int c = 0; c < CELLS; c++) {
+                masks[c * stride + lane] = snapshots[snapshot + c];
+            }
+            int bit = left & -left;
+            remaining[level] = (short) (left & ~bit);
+            masks[branchCell[level] * stride + lane] = (short) bit;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Compare one-at-a-time solving with SudokuSolver against BatchSolver with several lane
+     * counts.  Arguments: [puzzle file [repeats]]; without a file, 20000 random puzzles with 30
+     * to 40 givens (an easy-heavy corpus) are used.
+     */
+    public static void main(String[] args) throws IOException {
+        List<int[]> corpus = new ArrayList<>();
+        if (args.length > 0) {
+            for (String line : Files.readAllLines(Path.of(args[0]))) {
+                int[] grid = PuzzleIO.parse(line.strip());
+                if (grid != null) {
+                    corpus.add(grid);
+                }
+            }
+        } else {
+            corpus = randomPuzzles(20_000, 30, 40, 1);
+        }
+        int repeats = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int count = corpus.size();
+        int[] grids = new int[CELLS * count];
+        for (int b = 0; b < count; b++) {
+            System.arraycopy(corpus.get(b), 0, grids, CELLS * b, CELLS);
+        }
+        int[] solutions = new int[CELLS * count];
+        SolveResult.Status[] statuses = new SolveResult.Status[count];
+
+        SudokuSolver single = new SudokuSolver();
+        int[] grid = new int[CELLS];
+        for (int r = 0; r < repeats; r++) {
+            long start = System.nanoTime();
+            int solved = 0;
+            for (int b = 0; b < count; b++) {
+                System.arraycopy(grids, CELLS * b, grid, 0, CELLS);
+                if (single.load(grid) == SolveResult.Status.SOLVED) {
+                    solved++;
+                }
+            }
+            report("SudokuSolver", count, solved, System.nanoTime() - start);
+        }
+        for (int lanes : new int[]{1, 4, 8, 16, 32, 64, 128}) {
+            for (boolean allowVector : new boolean[]{false, true}) {
+                BatchSolver batch = new BatchSolver(lanes, 1_000_000, allowVector);
+                if (allowVector && !batch.isVectorized()) {
+                    continue;
+                }
+                for (int r = 0; r < repeats; r++) {
+                    long start = System.nanoTime();
+                    int solved = batch.solveBatch(grids, count, solutions, statuses);
+                    report("BatchSolver, " + lanes + (allowVector ? " vector" : " lanes"), count,
+                            solved, System.nanoTime() - start);
+                }
+            }
+        }
+    }
+
+    private static void report(String name, int count, int solved, long nanos) {
+        System.out.printf("%-26s %8.0f puzzles/s (%d of %d solved)%n", name, count * 1e9 / nanos,
+                solved, count);
+    }
+
+    /**
+     * Return 'count' puzzles made by emptying random cells of random solutions, keeping between
+     * 'minGivens' and 'maxGivens' givens.  They may have several solutions.
+     */
+    static List<int[]> randomPuzzles(int count, int minGivens, int maxGivens, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        SudokuSolver generator = new SudokuSolver();
+        generator.setValueOrder(SudokuSolver.ValueOrder.RANDOM);
+        List<int[]> puzzles = new ArrayList<>(count);
+        int[] cells = new int[CELLS];
+        for (int i = 0; i < count; i++) {
+            generator.setSeed(random.nextLong());
+            generator.load(new int[CELLS]);
+            int[] puzzle = generator.solution();
+            for (int c = 0; c < CELLS; c++) {
+                cells[c] = c;
+            }
+            int givens = minGivens + random.nextInt(maxGivens - minGivens + 1);
+            for (int c = CELLS - 1; c >= givens; c--) {
+                // Fisher-Yates: empty a random cell among the first c + 1 still shuffled.
+                int j = random.nextInt(c + 1);
+                puzzle[cells[j]] = 0;
+                cells[j] = cells[c];
+            }
+            puzzles.add(puzzle);
+        }
+        return puzzles;
+    }
+}
@@ -0,0 +1,79 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class BatchSolverTest {
+
+    @DisplayName("GIVEN a mix of easy, hard, multi-solution and unsolvable puzzles, WHEN they are "
+            + "solved with several lane counts, with the scalar round and with the vector round when "
+            + "this JVM has it, THEN every status should match SudokuSolver AND every solution "
+            + "should be valid and keep its givens")
+    @Test
+    void testMatchesSudokuSolver() {
+        List<int[]> puzzles = new ArrayList<>(BatchSolver.randomPuzzles(300, 20, 40, 3));
+        puzzles.add(CandidateEngineTest.parse(SudokuSolverTest.PUZZLE));
+        puzzles.add(CandidateEngineTest.parse(HintFinderTest.NYT_HARD));
+        puzzles.add(CandidateEngineTest.parse(SudokuGraphTest.SPARSE));
+        int[] wrong = CandidateEngineTest.parse(SudokuSolverTest.PUZZLE);
+        wrong[2] = 1;
+        puzzles.add(wrong);
+        int[] clash = new int[81];
+        clash[0] = 5;
+        clash[80] = 5;
+        clash[8] = 5;
+        puzzles.add(clash);
+        puzzles.add(new int[81]);
+
+        int count = puzzles.size();
+        int[] grids = new int[81 * count];
+        for (int b = 0; b < count; b++) {
+            System.arraycopy(puzzles.get(b), 0, grids, 81 * b, 81);
+        }
+        SudokuSolver reference = new SudokuSolver();
+        CandidateEngine engine = CandidateEngine.create();
+        for (int run = 0; run < 8; run++) {
+            // Lane counts from one to more than a vector of 512 bits holds.
+            int lanes = new int[]{1, 3, 8, 40}[run / 2];
+            BatchSolver batch = new BatchSolver(lanes, 100_000, run % 2 == 1);
+            assertFalse(run % 2 == 0 && batch.isVectorized());
+            int[] solutions = new int[81 * count];
+            SolveResult.Status[] statuses = new SolveResult.Status[count];
+            int solved = batch.solveBatch(grids, count, solutions, statuses);
+            int expectedSolved = 0;
+            for (int b = 0; b < count; b++) {
+                int[] puzzle = puzzles.get(b);
+                SolveResult.Status expected = reference.load(puzzle);
+                assertEquals(expected, statuses[b], lanes + " lanes, puzzle " + b);
+                if (expected == SolveResult.Status.SOLVED) {
+                    expectedSolved++;
+                    int[] solution = Arrays.copyOfRange(solutions, 81 * b, 81 * b + 81);
+                    assertTrue(engine.isValid(solution, true), "puzzle " + b);
+                    for (int cell = 0; cell < 81; cell++) {
+                        assertTrue(puzzle[cell] == 0 || puzzle[cell] == solution[cell]);
+                    }
+                }
+            }
+            assertEquals(expectedSolved, solved);
+            assertTrue(batch.totalNodes() > 0);
+        }
+    }
+
+    @DisplayName("GIVEN a node limit, WHEN a puzzle needs more nodes, THEN it should time out "
+            + "AND the lane should go on with the next puzzle")
+    @Test
+    void testNodeLimit() {
+        int[] grids = new int[81 * 2];
+        System.arraycopy(CandidateEngineTest.parse(SudokuGraphTest.SPARSE), 0, grids, 0, 81);
+        System.arraycopy(CandidateEngineTest.parse(SudokuSolverTest.PUZZLE), 0, grids, 81, 81);
+        SolveResult.Status[] statuses = new SolveResult.Status[2];
+        assertEquals(1, new BatchSolver(1, 0).solveBatch(grids, 2, new int[81 * 2], statuses));
+        assertArrayEquals(new SolveResult.Status[]{
+                SolveResult.Status.TIMEOUT, SolveResult.Status.SOLVED}, statuses);
+    }
+}
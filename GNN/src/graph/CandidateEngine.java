@@ -0,0 +1,99 @@
+package graph;
+
+/**
+ * Computes digit masks for whole boards at once instead of peer by peer.  A board is passed as a
+ * grid of 81 values in reading order, with 0 for an empty cell; masks use the digit bits of
+ * `SudokuUnits`.  Implementations keep scratch buffers between calls, so an engine must not be
+ * shared between threads.
+ */
+public interface CandidateEngine {
+
+    /**
+     * Return the fastest engine available in this JVM: the `jdk.incubator.vector` engine if that
+     * module was added at startup (`--add-modules jdk.incubator.vector`) and the CPU has 256-bit
+     * vectors, otherwise the scalar engine.  Setting the system property `graph.vector` to `false`
+     * forces the scalar engine.
+     */
+    static CandidateEngine create() {
+        if (!"false".equals(System.getProperty("graph.vector"))
+                && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                if (VectorCandidateEngine.isSupported()) {
+                    return new VectorCandidateEngine();
+                }
+            } catch (LinkageError ignored) {
+                /* Vector classes could not be loaded, fall back to the scalar engine. */
+            }
+        }
+        return new ScalarCandidateEngine();
+    }
+
+    /**
+     * Store in `rowMasks[r]`, `colMasks[c]` and `boxMasks[b]` the digits used in row `r`, column
+     * `c` and box `b` of `grid`.  Returns false if some unit holds a digit twice, true otherwise.
+     * Requires each mask array to have length at least 9.
+     */
+    boolean unitMasks(int[] grid, int[] rowMasks, int[] colMasks, int[] boxMasks);
+
+    /**
+     * Store in `candidates[i]` the digits that could be placed in cell `i` of `grid` without
+     * repeating a digit of its row, column or box, and 0 for cells that are already filled.
+     * Returns false if some unit of `grid` holds a digit twice, true otherwise.
+     */
+    boolean candidates(int[] grid, short[] candidates);
+
+    /**
+     * Return whether no unit of `grid` holds a digit twice.  If `complete` is true, also require
+     * that every cell is filled, i.e. that `grid` is a solution.
+     */
+    boolean isValid(int[] grid, boolean complete);
+
+    /**
+     * Check `count` boards stored back to back in `grids` (board `b` at offset `81 * b`) and store
+     * the result of `isValid` for board `b` in `valid[b]`.  Returns the number of valid boards.
+     */
+    default int validateBatch(int[] grids, int count, boolean complete, boolean[] valid) {
+        int[] grid = new int[81];
+        int validCount = 0;
+        for (int b = 0; b < count; b++) {
+            System.arraycopy(grids, 81 * b, grid, 0, 81);
+            valid[b] = isValid(grid, complete);
+            if (valid[b]) {
+                validCount++;
+            }
+        }
+        return validCount;
+    }
+
+    /**
+     * Repeatedly fill every empty cell of `grid` that has a single candidate until no such cell is
+     * left, leaving the final candidates in `candidates`.  Returns the number of cells filled, or
+     * -1 if a contradiction was reached (a repeated digit or an empty cell without candidates), in
+     * which case `grid` is left partially filled.
+     */
+    default int propagate(int[] grid, short[] candidates) {
+        int filled = 0;
+        boolean changed = true;
+        while (changed) {
+            if (!candidates(grid, candidates)) {
+                return -1;
+            }
+            changed = false;
+            for (int i = 0; i < 81; i++) {
+                if (grid[i] == 0) {
+                    int mask = candidates[i];
+                    if (mask == 0) {
+                        return -1;
+                    }
+                    if ((mask & (mask - 1)) == 0) {
+                        // Two singles of one round may clash; the next candidates() call sees it.
+                        grid[i] = SudokuUnits.digit(mask);
+                        filled++;
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return filled;
+    }
+}
@@ -0,0 +1,175 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class CandidateEngineTest {
+
+    // Solution of the puzzle in SudokuGraphTest.testUpdatePossibilities().
+    static final String SOLUTION =
+            "534678912672195348198342567859761423426853791713924856961537284287419635345286179";
+
+    static int[] parse(String board) {
+        int[] grid = new int[81];
+        for (int i = 0; i < 81; i++) {
+            char c = board.charAt(i);
+            grid[i] = c == '.' ? 0 : c - '0';
+        }
+        return grid;
+    }
+
+    @DisplayName("WHEN candidates are computed for the whole board, THEN every empty cell's mask "
+            + "should match the values left by fillPossibilities() AND filled cells should be 0")
+    @Test
+    void testCandidatesMatchFillPossibilities() {
+        int[] grid = parse(SOLUTION);
+        Random rng = new Random(1);
+        for (int i = 0; i < 81; i++) {
+            if (rng.nextInt(3) > 0) {
+                grid[i] = 0;
+            }
+        }
+        SudokuGraph s = new SudokuGraph();
+        for (int i = 0; i < 81; i++) {
+            if (grid[i] != 0) {
+                s.addVertex(new SudokuVertex(i, grid[i]));
+            }
+        }
+        s.fillNotDone();
+
+        short[] candidates = new short[81];
+        assertTrue(CandidateEngine.create().candidates(grid, candidates));
+        for (int i = 0; i < 81; i++) {
+            if (grid[i] != 0) {
+                assertEquals(0, candidates[i]);
+                continue;
+            }
+            s.fillPossibilities(s.getVertex(i));
+            String expected = s.getVertex(i).possibilities;
+            String actual = "";
+            for (int d = 1; d < 10; d++) {
+                if ((candidates[i] & SudokuUnits.bit(d)) != 0) {
+                    actual += d;
+                }
+            }
+            assertEquals(expected, actual, "position " + i);
+        }
+    }
+
+    @DisplayName("GIVEN random partial boards, WHEN masks are computed by the selected engine and "
+            + "the scalar engine, THEN both should agree")
+    @Test
+    void testEnginesAgree() {
+        CandidateEngine engine = CandidateEngine.create();
+        CandidateEngine scalar = new ScalarCandidateEngine();
+        Random rng = new Random(2);
+        short[] expected = new short[81];
+        short[] actual = new short[81];
+        int[][] masks = new int[6][9];
+        for (int round = 0; round < 500; round++) {
+            int[] grid = new int[81];
+            for (int i = 0; i < 81; i++) {
+                grid[i] = rng.nextInt(4) == 0 ? rng.nextInt(10) : 0;
+            }
+            assertEquals(scalar.candidates(grid, expected), engine.candidates(grid, actual));
+            assertArrayEquals(expected, actual);
+            assertEquals(scalar.unitMasks(grid, masks[0], masks[1], masks[2]),
+                    engine.unitMasks(grid, masks[3], masks[4], masks[5]));
+            for (int k = 0; k < 3; k++) {
+                assertArrayEquals(masks[k], masks[k + 3]);
+            }
+            assertEquals(scalar.isValid(grid, false), engine.isValid(grid, false));
+        }
+    }
+
+    @DisplayName("GIVEN the vector module in this JVM, WHEN VectorCandidateEngine is built "
+            + "directly, THEN its masks, candidates and batch validation should match the scalar "
+            + "engine on the same boards, whether or not create() would have picked it")
+    @Test
+    void testVectorEngineMatchesScalar() {
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(),
+                "run with --add-modules jdk.incubator.vector");
+        CandidateEngine vector = new VectorCandidateEngine();
+        CandidateEngine scalar = new ScalarCandidateEngine();
+        Random rng = new Random(3);
+        int count = 64;
+        int[] grids = new int[81 * count];
+        short[] expected = new short[81];
+        short[] actual = new short[81];
+        int[][] masks = new int[6][9];
+        int[] solution = parse(SOLUTION);
+        for (int b = 0; b < count; b++) {
+            int[] grid = new int[81];
+            for (int i = 0; i < 81; i++) {
+                // Solutions, solutions with a few cells cleared or changed, and random boards.
+                switch (b % 4) {
+                    case 0 -> grid[i] = solution[i];
+                    case 1 -> grid[i] = rng.nextInt(8) == 0 ? 0 : solution[i];
+                    case 2 -> grid[i] = rng.nextInt(40) == 0 ? rng.nextInt(10) : solution[i];
+                    default -> grid[i] = rng.nextInt(4) == 0 ? rng.nextInt(10) : 0;
+                }
+            }
+            System.arraycopy(grid, 0, grids, 81 * b, 81);
+            assertEquals(scalar.candidates(grid, expected), vector.candidates(grid, actual));
+            assertArrayEquals(expected, actual);
+            assertEquals(scalar.unitMasks(grid, masks[0], masks[1], masks[2]),
+                    vector.unitMasks(grid, masks[3], masks[4], masks[5]));
+            for (int k = 0; k < 3; k++) {
+                assertArrayEquals(masks[k], masks[k + 3]);
+            }
+            assertEquals(scalar.isValid(grid, true), vector.isValid(grid, true));
+            assertEquals(scalar.isValid(grid, false), vector.isValid(grid, false));
+        }
+        for (boolean complete : new boolean[]{true, false}) {
+            boolean[] scalarValid = new boolean[count];
+            boolean[] vectorValid = new boolean[count];
+            int validCount = scalar.validateBatch(grids, count, complete, scalarValid);
+            assertTrue(validCount > 0 && validCount < count);
+            assertEquals(validCount, vector.validateBatch(grids, count, complete, vectorValid));
+            assertArrayEquals(scalarValid, vectorValid);
+        }
+    }
+
+    @DisplayName("GIVEN a batch of solutions with some corrupted boards, WHEN the batch is "
+            + "validated, THEN exactly the untouched boards should be reported valid")
+    @Test
+    void testValidateBatch() {
+        int[] solution = parse(SOLUTION);
+        int count = 10;
+        int[] grids = new int[81 * count];
+        for (int b = 0; b < count; b++) {
+            System.arraycopy(solution, 0, grids, 81 * b, 81);
+        }
+        // Board 3 repeats a digit, board 7 is missing one.
+        grids[81 * 3 + 40] = grids[81 * 3 + 41];
+        grids[81 * 7 + 80] = 0;
+
+        boolean[] valid = new boolean[count];
+        assertEquals(8, CandidateEngine.create().validateBatch(grids, count, true, valid));
+        for (int b = 0; b < count; b++) {
+            assertEquals(b != 3 && b != 7, valid[b]);
+        }
+        assertEquals(9, CandidateEngine.create().validateBatch(grids, count, false, valid));
+    }
+
+    @DisplayName("WHEN singles are propagated to a fixpoint, THEN every filled cell should agree "
+            + "with the solution AND a board with a repeated digit should be rejected")
+    @Test
+    void testPropagate() {
+        int[] solution = parse(SOLUTION);
+        int[] grid = parse(
+                "53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79");
+        short[] candidates = new short[81];
+        assertTrue(CandidateEngine.create().propagate(grid, candidates) > 0);
+        for (int i = 0; i < 81; i++) {
+            assertTrue(grid[i] == 0 || grid[i] == solution[i]);
+        }
+
+        grid[2] = 5;
+        assertEquals(-1, CandidateEngine.create().propagate(grid, candidates));
+    }
+}
@@ -0,0 +1,676 @@
+package graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * A small message-passing graph neural network over the cells of a board that scores every
+ * (cell, digit) candidate, for `SudokuSolver` to branch on the cells and values it is most sure
+ * of (see `SudokuSolver.setNetwork()`).
+ *
+ * Each cell starts from 18 features: the one-hot digit of a filled cell, or the candidate digits
+ * of an empty one.  An input layer maps them to `hidden` values per cell, and each of `layers`
+ * rounds then passes messages between peers: a cell's message is the mean, over its units, of
+ * the mean state of the unit's other cells, and its new state is
+ * `relu(selfWeights * state + messageWeights * message + bias)`.  Summing the states of each unit
+ * once makes a round cost O(cells * units per cell) rather than O(cells * peers).  An output
+ * layer gives 9 scores per cell, read as logits of a softmax over the cell's candidates.
+ *
+ * Weights are trained offline on solved puzzles (`train()`, on the CPU), saved with `write()` and
+ * loaded with `read()`.  Inference reuses buffers allocated at construction and allocates
+ * nothing; the buffers make an instance single-threaded, and `copy()` gives another thread its
+ * own buffers over the same weights.
+ *
+ * An inference costs far more than a search node, so a network is only worth running near the
+ * root of searches, where a good first value saves a whole subtree.  `calibrate()` times solves
+ * of a sample with the network used on the first 0, 1, 2, 4... search levels and keeps the
+ * fastest; 0, the plain fewest-candidates search, wins unless the network saves more node time
+ * than it costs.  The chosen depth is saved with the weights.
+ */
+public final class CandidateNetwork {
+
+    private static final int DIGITS = SudokuUnits.DIGITS;
+
+    // Input features per cell: one-hot digit, then candidate digits.
+    private static final int FEATURES = 2 * DIGITS;
+
+    // First int of a weights file ("GNNW") and version of its format.
+    private static final int MAGIC = 0x474E4E57;
+    private static final int VERSION = 1;
+
+    // Search depths calibrate() tries, in levels of the search tree.
+    private static final int[] LEVELS = {0, 1, 2, 4, 8, 16, 32};
+
+    private final SudokuUnits units;
+
+    // Values per cell of the hidden states, and number of message-passing rounds.
+    private final int hidden;
+    private final int layers;
+
+    // All weights and biases, laid out as described at inWeights() and after.
+    final float[] params;
+
+    // Search levels on which SudokuSolver uses the network by default.
+    private int levels;
+
+    // states[l][cell * hidden + k]: hidden state after layer l (0 being the input layer).
+    private final float[][] states;
+
+    // messages[l][cell * hidden + k]: message a cell received in round l.
+    private final float[][] messages;
+
+    // Sum of the states of the cells of each unit, and the scores of the last evaluate().
+    private final float[] unitSums;
+    private final float[] scores;
+
+    // Digits filled in each unit, for freeDigits().
+    private final int[] used;
+
+    // Gradients with respect to the states and messages of a round, and per-unit gradient sums.
+    private final float[] stateGrad;
+    private final float[] previousGrad;
+    private final float[] messageGrad;
+    private final float[] unitGrad;
+
+    /**
+     * Create a network over the cells of 'units' with 'hidden' values per cell and 'layers'
+     * message-passing rounds, its weights drawn at random from 'seed'.
+     */
+    public CandidateNetwork(SudokuUnits units, int hidden, int layers, long seed) {
+        this(units, hidden, layers, new float[parameterCount(hidden, layers)]);
+        SplittableRandom random = new SplittableRandom(seed);
+        initialize(random, inWeights(), hidden, FEATURES);
+        for (int l = 0; l < layers; l++) {
+            initialize(random, selfWeights(l), hidden, hidden);
+            initialize(random, messageWeights(l), hidden, hidden);
+        }
+        initialize(random, outWeights(), DIGITS, hidden);
+    }
+
+    private CandidateNetwork(SudokuUnits units, int hidden, int layers, float[] params) {
+        if (hidden < 1 || layers < 0) {
+            throw new IllegalArgumentException("bad shape: " + hidden + " x " + layers);
+        }
+        this.units = units;
+        this.hidden = hidden;
+        this.layers = layers;
+        this.params = params;
+        int size = units.cells * hidden;
+        states = new float[layers + 1][size];
+        messages = new float[layers][size];
+        unitSums = new float[units.units.length * hidden];
+        scores = new float[units.cells * DIGITS];
+        stateGrad = new float[size];
+        previousGrad = new float[size];
+        messageGrad = new float[size];
+        unitGrad = new float[units.units.length * hidden];
+        used = new int[units.units.length];
+    }
+
+    // Glorot-uniform weights for a rows-by-columns matrix at 'offset'.
+    private void initialize(SplittableRandom random, int offset, int rows, int columns) {
+        double limit = Math.sqrt(6.0 / (rows + columns));
+        for (int i = 0; i < rows * columns; i++) {
+            params[offset + i] = (float) random.nextDouble(-limit, limit);
+        }
+    }
+
+    private static int parameterCount(int hidden, int layers) {
+        return hidden * FEATURES + hidden + layers * (2 * hidden * hidden + hidden)
+                + DIGITS * hidden + DIGITS;
+    }
+
+    // Offsets into 'params': input weights [k * FEATURES + feature] and biases [k], then per
+    // round the self and message weights [j * hidden + k] and biases [j], then the output
+    // weights [digit * hidden + k] and biases [digit].
+    private int inWeights() {
+        return 0;
+    }
+
+    private int inBias() {
+        return hidden * FEATURES;
+    }
+
+    private int selfWeights(int layer) {
+        return inBias() + hidden + layer * (2 * hidden * hidden + hidden);
+    }
+
+    private int messageWeights(int layer) {
+        return selfWeights(layer) + hidden * hidden;
+    }
+
+    private int layerBias(int layer) {
+        return messageWeights(layer) + hidden * hidden;
+    }
+
+    private int outWeights() {
+        return selfWeights(layers);
+    }
+
+    private int outBias() {
+        return outWeights() + DIGITS * hidden;
+    }
+
+    /**
+     * Returns a network sharing this one's weights, with its own buffers.
+     */
+    public CandidateNetwork copy() {
+        CandidateNetwork copy = new CandidateNetwork(units, hidden, layers, params);
+        copy.levels = levels;
+        return copy;
+    }
+
+    /**
+     * Returns the units of the boards this network scores.
+     */
+    public SudokuUnits units() {
+        return units;
+    }
+
+    /**
+     * Returns the number of search levels the network is used on by default, as chosen by
+     * calibrate(); 0 means never.
+     */
+    public int levels() {
+        return levels;
+    }
+
+    /**
+     * Sets the number of search levels the network is used on by default.
+     */
+    public void setLevels(int levels) {
+        if (levels < 0) {
+            throw new IllegalArgumentException("levels must not be negative: " + levels);
+        }
+        this.levels = levels;
+    }
+
+    /**
+     * Score every candidate of the board 'grid' (0 for empty cells), where 'free' holds the
+     * candidate digits of each empty cell; read the scores with score().
+     */
+    public void evaluate(int[] grid, int[] free) {
+        int cells = units.cells;
+        float[] input = states[0];
+        int bias = inBias();
+        for (int cell = 0; cell < cells; cell++) {
+            int o = cell * hidden;
+            for (int k = 0; k < hidden; k++) {
+                input[o + k] = params[bias + k];
+            }
+            if (grid[cell] != 0) {
+                addColumn(input, o, grid[cell] - 1);
+            } else {
+                for (int rest = free[cell]; rest != 0; rest &= rest - 1) {
+                    addColumn(input, o, DIGITS + Integer.numberOfTrailingZeros(rest));
+                }
+            }
+            for (int k = 0; k < hidden; k++) {
+                input[o + k] = Math.max(input[o + k], 0);
+            }
+        }
+        for (int l = 0; l < layers; l++) {
+            propagate(l);
+        }
+        float[] last = states[layers];
+        int weights = outWeights();
+        int outBias = outBias();
+        for (int cell = 0; cell < cells; cell++) {
+            int o = cell * hidden;
+            for (int d = 0; d < DIGITS; d++) {
+                float sum = params[outBias + d];
+                int row = weights + d * hidden;
+                for (int k = 0; k < hidden; k++) {
+                    sum += params[row + k] * last[o + k];
+                }
+                scores[cell * DIGITS + d] = sum;
+            }
+        }
+    }
+
+    // Add column 'feature' of the input weights to the state at 'o'.
+    private void addColumn(float[] state, int o, int feature) {
+        for (int k = 0; k < hidden; k++) {
+            state[o + k] += params[k * FEATURES + feature];
+        }
+    }
+
+    // Message-passing round 'l', from states[l] to states[l + 1].
+    private void propagate(int l) {
+        float[] in = states[l];
+        float[] out = states[l + 1];
+        float[] message = messages[l];
+        Arrays.fill(unitSums, 0);
+        for (int u = 0; u < units.units.length; u++) {
+            int uo = u * hidden;
+            for (int cell : units.units[u]) {
+                int o = cell * hidden;
+                for (int k = 0; k < hidden; k++) {
+                    unitSums[uo + k] += in[o + k];
+                }
+            }
+        }
+        for (int cell = 0; cell < units.cells; cell++) {
+            int o = cell * hidden;
+            for (int k = 0; k < hidden; k++) {
+                message[o + k] = 0;
+            }
+            for (int u : units.unitsOf[cell]) {
+                float weight = messageWeight(cell, u);
+                int uo = u * hidden;
+                for (int k = 0; k < hidden; k++) {
+                    message[o + k] += weight * (unitSums[uo + k] - in[o + k]);
+                }
+            }
+        }
+        int self = selfWeights(l);
+        int other = messageWeights(l);
+        int bias = layerBias(l);
+        for (int cell = 0; cell < units.cells; cell++) {
+            int o = cell * hidden;
+            for (int j = 0; j < hidden; j++) {
+                float sum = params[bias + j];
+                int row = j * hidden;
+                for (int k = 0; k < hidden; k++) {
+                    sum += params[self + row + k] * in[o + k]
+                            + params[other + row + k] * message[o + k];
+                }
+                out[o + j] = Math.max(sum, 0);
+            }
+        }
+    }
+
+    // Weight of unit 'u' of 'cell' in the cell's message: the mean over units of the mean over
+    // the unit's other cells.
+    private float messageWeight(int cell, int u) {
+        int others = units.units[u].length - 1;
+        return others == 0 ? 0 : 1f / (others * units.unitsOf[cell].length);
+    }
+
+    /**
+     * Returns the score of 'digit' at 'cell' from the last evaluate(); higher is more likely.
+     */
+    public float score(int cell, int digit) {
+        return scores[cell * DIGITS + digit - 1];
+    }
+
+    /**
+     * Returns the log of the probability of the most likely digit of 'mask' at 'cell', under a
+     * softmax of the scores of those digits: 0 when the network is sure, lower when it is not.
+     */
+    public double confidence(int cell, int mask) {
+        int o = cell * DIGITS;
+        float best = Float.NEGATIVE_INFINITY;
+        for (int rest = mask; rest != 0; rest &= rest - 1) {
+            best = Math.max(best, scores[o + Integer.numberOfTrailingZeros(rest)]);
+        }
+        double sum = 0;
+        for (int rest = mask; rest != 0; rest &= rest - 1) {
+            sum += Math.exp(scores[o + Integer.numberOfTrailingZeros(rest)] - best);
+        }
+        return -Math.log(sum);
+    }
+
+    /**
+     * Store in 'free' the digits each empty cell of 'grid' may take given the filled cells of its
+     * units, and 0 for filled cells.
+     */
+    public void freeDigits(int[] grid, int[] free) {
+        Arrays.fill(used, 0);
+        for (int cell = 0; cell < units.cells; cell++) {
+            if (grid[cell] != 0) {
+                for (int u : units.unitsOf[cell]) {
+                    used[u] |= SudokuUnits.bit(grid[cell]);
+                }
+            }
+        }
+        for (int cell = 0; cell < units.cells; cell++) {
+            int mask = 0;
+            if (grid[cell] == 0) {
+                mask = SudokuUnits.ALL_DIGITS;
+                for (int u : units.unitsOf[cell]) {
+                    mask &= ~used[u];
+                }
+            }
+            free[cell] = mask;
+        }
+    }
+
+    /**
+     * Evaluate 'grid' and add to 'gradient' the gradient of the mean cross-entropy, over its empty
+     * cells, of the softmax of each cell's candidates against the value the cell has in
+     * 'solution'.  Returns that mean loss, or 0 if the board is full.
+     */
+    double backpropagate(int[] grid, int[] free, int[] solution, float[] gradient) {
+        evaluate(grid, free);
+        int cells = units.cells;
+        int empty = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            if (grid[cell] == 0) {
+                empty++;
+            }
+        }
+        if (empty == 0) {
+            return 0;
+        }
+        double loss = 0;
+        float[] last = states[layers];
+        Arrays.fill(stateGrad, 0);
+        int weights = outWeights();
+        int outBias = outBias();
+        for (int cell = 0; cell < cells; cell++) {
+            if (grid[cell] != 0) {
+                continue;
+            }
+            int target = solution[cell] - 1;
+            int mask = free[cell] | 1 << target;
+            int so = cell * DIGITS;
+            // Log of the softmax denominator, relative to the best score.
+            float best = Float.NEGATIVE_INFINITY;
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                best = Math.max(best, scores[so + Integer.numberOfTrailingZeros(rest)]);
+            }
+            double sum = 0;
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                sum += Math.exp(scores[so + Integer.numberOfTrailingZeros(rest)] - best);
+            }
+            double logSum = Math.log(sum);
+            loss += logSum - (scores[so + target] - best);
+            int o = cell * hidden;
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                int d = Integer.numberOfTrailingZeros(rest);
+                double p = Math.exp(scores[so + d] - best - logSum);
+                float g = (float) ((p - (d == target ? 1 : 0)) / empty);
+                gradient[outBias + d] += g;
+                int row = weights + d * hidden;
+                for (int k = 0; k < hidden; k++) {
+                    gradient[row + k] += g * last[o + k];
+                    stateGrad[o + k] += g * params[row + k];
+                }
+            }
+        }
+        float[] grad = stateGrad;
+        float[] previous = previousGrad;
+        for (int l = layers - 1; l >= 0; l--) {
+            backpropagate(l, grad, previous, gradient);
+            float[] swap = grad;
+            grad = previous;
+            previous = swap;
+        }
+        float[] input = states[0];
+        int inBias = inBias();
+        for (int cell = 0; cell < cells; cell++) {
+            int o = cell * hidden;
+            for (int k = 0; k < hidden; k++) {
+                float dz = input[o + k] > 0 ? grad[o + k] : 0;
+                if (dz == 0) {
+                    continue;
+                }
+                gradient[inBias + k] += dz;
+                if (grid[cell] != 0) {
+                    gradient[k * FEATURES + grid[cell] - 1] += dz;
+                } else {
+                    for (int rest = free[cell]; rest != 0; rest &= rest - 1) {
+                        gradient[k * FEATURES + DIGITS + Integer.numberOfTrailingZeros(rest)] += dz;
+                    }
+                }
+            }
+        }
+        return loss / empty;
+    }
+
+    // Backpropagate 'grad', the gradient of states[l + 1], through round 'l': add the weight
+    // gradients to 'gradient' and store the gradient of states[l] in 'previous'.
+    private void backpropagate(int l, float[] grad, float[] previous, float[] gradient) {
+        float[] in = states[l];
+        float[] out = states[l + 1];
+        float[] message = messages[l];
+        Arrays.fill(previous, 0);
+        Arrays.fill(messageGrad, 0);
+        int self = selfWeights(l);
+        int other = messageWeights(l);
+        int bias = layerBias(l);
+        for (int cell = 0; cell < units.cells; cell++) {
+            int o = cell * hidden;
+            for (int j = 0; j < hidden; j++) {
+                float dz = out[o + j] > 0 ? grad[o + j] : 0;
+                if (dz == 0) {
+                    continue;
+                }
+                gradient[bias + j] += dz;
+                int row = j * hidden;
+                for (int k = 0; k < hidden; k++) {
+                    gradient[self + row + k] += dz * in[o + k];
+                    gradient[other + row + k] += dz * message[o + k];
+                    previous[o + k] += dz * params[self + row + k];
+                    messageGrad[o + k] += dz * params[other + row + k];
+                }
+            }
+        }
+        // message[cell] = sum over units u of cell of weight * (unitSum[u] - in[cell]).
+        Arrays.fill(unitGrad, 0);
+        for (int cell = 0; cell < units.cells; cell++) {
+            int o = cell * hidden;
+            for (int u : units.unitsOf[cell]) {
+                float weight = messageWeight(cell, u);
+                int uo = u * hidden;
+                for (int k = 0; k < hidden; k++) {
+                    unitGrad[uo + k] += weight * messageGrad[o + k];
+                    previous[o + k] -= weight * messageGrad[o + k];
+                }
+            }
+        }
+        for (int cell = 0; cell < units.cells; cell++) {
+            int o = cell * hidden;
+            for (int u : units.unitsOf[cell]) {
+                int uo = u * hidden;
+                for (int k = 0; k < hidden; k++) {
+                    previous[o + k] += unitGrad[uo + k];
+                }
+            }
+        }
+    }
+
+    /**
+     * Train the network for 'epochs' passes over 'puzzles' and their 'solutions' with Adam.
+     * Each pass shows every puzzle once, with a random part (up to 60%) of its empty cells filled
+     * in from its solution so that boards from deeper in the search are seen too.  Returns the
+     * mean loss of each pass.
+     */
+    public double[] train(List<int[]> puzzles, List<int[]> solutions, int epochs, long seed) {
+        final int batch = 32;
+        final double rate = 0.005;
+        final double beta1 = 0.9;
+        final double beta2 = 0.999;
+        SplittableRandom random = new SplittableRandom(seed);
+        float[] gradient = new float[params.length];
+        double[] mean = new double[params.length];
+        double[] variance = new double[params.length];
+        int[] board = new int[units.cells];
+        int[] free = new int[units.cells];
+        int[] order = new int[puzzles.size()];
+        double[] losses = new double[epochs];
+        long step = 0;
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            for (int i = 0; i < order.length; i++) {
+                int j = random.nextInt(i + 1);
+                order[i] = order[j];
+                order[j] = i;
+            }
+            double total = 0;
+            for (int start = 0; start < order.length; start += batch) {
+                int end = Math.min(order.length, start + batch);
+                Arrays.fill(gradient, 0);
+                for (int i = start; i < end; i++) {
+                    int[] puzzle = puzzles.get(order[i]);
+                    int[] solution = solutions.get(order[i]);
+                    double fill = random.nextDouble(0.6);
+                    for (int cell = 0; cell < units.cells; cell++) {
+                        board[cell] = puzzle[cell] == 0 && random.nextDouble() < fill
+                                ? solution[cell] : puzzle[cell];
+                    }
+                    freeDigits(board, free);
+                    total += backpropagate(board, free, solution, gradient);
+                }
+                step++;
+                double correction1 = 1 - Math.pow(beta1, step);
+                double correction2 = 1 - Math.pow(beta2, step);
+                for (int p = 0; p < params.length; p++) {
+                    double g = gradient[p] / (end - start);
+                    mean[p] = beta1 * mean[p] + (1 - beta1) * g;
+                    variance[p] = beta2 * variance[p] + (1 - beta2) * g * g;
+                    params[p] -= (float) (rate * (mean[p] / correction1)
+                            / (Math.sqrt(variance[p] / correction2) + 1e-8));
+                }
+            }
+            losses[epoch] = total / Math.max(1, order.length);
+        }
+        return losses;
+    }
+
+    /**
+     * Time solving 'puzzles' with the network used on the first 0, 1, 2, 4... levels of the
+     * search, set levels() to the fastest and return it.  Each setting solves the sample twice
+     * and the second pass is timed, so that the JIT has compiled both paths.
+     */
+    public int calibrate(List<int[]> puzzles) {
+        long fastest = Long.MAX_VALUE;
+        int best = 0;
+        SudokuSolver solver = new SudokuSolver(units);
+        for (int candidate : LEVELS) {
+            solver.setNetwork(this, candidate);
+            long nanos = 0;
+            for (int pass = 0; pass < 2; pass++) {
+                long start = System.nanoTime();
+                for (int[] puzzle : puzzles) {
+                    solver.load(puzzle);
+                }
+                nanos = System.nanoTime() - start;
+            }
+            if (nanos < fastest) {
+                fastest = nanos;
+                best = candidate;
+            }
+        }
+        levels = best;
+        return best;
+    }
+
+    /**
+     * Write the shape, levels() and weights to 'path', replacing the file if it exists.
+     */
+    public void write(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(hidden);
+            out.writeInt(layers);
+            out.writeInt(levels);
+            for (float param : params) {
+                out.writeFloat(param);
+            }
+        }
+    }
+
+    /**
+     * Return the network written to 'path' by write(), over the cells of 'units'.  Throws
+     * IOException if the file is not a weights file.
+     */
+    public static CandidateNetwork read(Path path, SudokuUnits units) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(path + " is not a network weights file");
+            }
+            int hidden = in.readInt();
+            int layers = in.readInt();
+            int levels = in.readInt();
+            if (hidden < 1 || hidden > 1024 || layers < 0 || layers > 64 || levels < 0) {
+                throw new IOException(path + " is not a network weights file");
+            }
+            float[] params = new float[parameterCount(hidden, layers)];
+            for (int p = 0; p < params.length; p++) {
+                params[p] = in.readFloat();
+            }
+            CandidateNetwork network = new CandidateNetwork(units, hidden, layers, params);
+            network.levels = levels;
+            return network;
+        }
+    }
+
+    /**
+     * Train or evaluate a network on a corpus of classic puzzles, one per line.
+     *
+     * `train corpus.txt weights.bin [epochs [hidden [layers]]]` solves the corpus, trains on 90%
+     * of it (default 10 epochs, 16 hidden values, 2 rounds), calibrates levels() on the other
+     * 10% and writes the weights.  `eval weights.bin corpus.txt` prints the nodes and time of
+     * solving the corpus with the network used on each number of levels calibrate() tries.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || !args[0].equals("train") && !args[0].equals("eval")) {
+            System.err.println("usage: CandidateNetwork train corpus.txt weights.bin [epochs "
+                    + "[hidden [layers]]] | eval weights.bin corpus.txt");
+            System.exit(2);
+        }
+        if (args[0].equals("eval")) {
+            CandidateNetwork network = read(Path.of(args[1]), SudokuUnits.CLASSIC);
+            List<int[]> puzzles = readPuzzles(Path.of(args[2]));
+            for (int levels : LEVELS) {
+                SudokuSolver solver = new SudokuSolver();
+                solver.setNetwork(network, levels);
+                long nodes = 0;
+                long start = System.nanoTime();
+                for (int[] puzzle : puzzles) {
+                    solver.load(puzzle);
+                    nodes += solver.nodes();
+                }
+                System.out.printf("network on %d levels: %d nodes, %.1f us per puzzle%n", levels,
+                        nodes, (System.nanoTime() - start) / 1e3 / puzzles.size());
+            }
+            return;
+        }
+        List<int[]> puzzles = new ArrayList<>();
+        List<int[]> solutions = new ArrayList<>();
+        SudokuSolver solver = new SudokuSolver();
+        for (int[] puzzle : readPuzzles(Path.of(args[1]))) {
+            if (solver.load(puzzle) == SolveResult.Status.SOLVED) {
+                puzzles.add(puzzle);
+                solutions.add(solver.solution());
+            }
+        }
+        int epochs = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int hidden = args.length > 4 ? Integer.parseInt(args[4]) : 16;
+        int layers = args.length > 5 ? Integer.parseInt(args[5]) : 2;
+        int split = puzzles.size() * 9 / 10;
+        CandidateNetwork network = new CandidateNetwork(SudokuUnits.CLASSIC, hidden, layers, 1);
+        double[] losses = network.train(puzzles.subList(0, split), solutions.subList(0, split),
+                epochs, 1);
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            System.out.printf("epoch %d: loss %.4f%n", epoch + 1, losses[epoch]);
+        }
+        int levels = network.calibrate(puzzles.subList(split, puzzles.size()));
+        System.out.println("network used on " + levels + " search levels");
+        network.write(Path.of(args[2]));
+    }
+
+    private static List<int[]> readPuzzles(Path path) throws IOException {
+        List<int[]> puzzles = new ArrayList<>();
+        for (String line : Files.readAllLines(path)) {
+            int[] puzzle = PuzzleIO.parse(line.strip());
+            if (puzzle != null) {
+                puzzles.add(puzzle);
+            }
+        }
+        return puzzles;
+    }
+}
@@ -0,0 +1,149 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.sun.management.ThreadMXBean;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CandidateNetworkTest {
+
+    @DisplayName("GIVEN a small network and a partly filled board, WHEN the loss gradient is "
+            + "backpropagated, THEN it should match the finite differences of the loss")
+    @Test
+    void testGradient() {
+        CandidateNetwork network = new CandidateNetwork(SudokuUnits.CLASSIC, 4, 2, 7);
+        int[] puzzle = CandidateEngineTest.parse(SudokuSolverTest.PUZZLE);
+        int[] solution = CandidateEngineTest.parse(CandidateEngineTest.SOLUTION);
+        int[] free = new int[81];
+        network.freeDigits(puzzle, free);
+        float[] gradient = new float[network.params.length];
+        network.backpropagate(puzzle, free, solution, gradient);
+
+        SplittableRandom random = new SplittableRandom(3);
+        float[] unused = new float[network.params.length];
+        for (int i = 0; i < 40; i++) {
+            int p = random.nextInt(network.params.length);
+            float saved = network.params[p];
+            float step = 1e-3f;
+            network.params[p] = saved + step;
+            double above = network.backpropagate(puzzle, free, solution, unused);
+            network.params[p] = saved - step;
+            double below = network.backpropagate(puzzle, free, solution, unused);
+            network.params[p] = saved;
+            double numeric = (above - below) / (2 * step);
+            assertEquals(numeric, gradient[p], 1e-3 + 0.05 * Math.abs(numeric), "param " + p);
+        }
+    }
+
+    @DisplayName("GIVEN a network written to a file, WHEN it is read back, THEN it should give the "
+            + "same scores and search levels")
+    @Test
+    void testReadWrite(@TempDir Path dir) throws IOException {
+        CandidateNetwork network = new CandidateNetwork(SudokuUnits.CLASSIC, 8, 2, 5);
+        network.setLevels(3);
+        Path file = dir.resolve("weights.bin");
+        network.write(file);
+        CandidateNetwork read = CandidateNetwork.read(file, SudokuUnits.CLASSIC);
+        assertEquals(3, read.levels());
+
+        int[] puzzle = CandidateEngineTest.parse(HintFinderTest.NYT_HARD);
+        int[] free = new int[81];
+        network.freeDigits(puzzle, free);
+        network.evaluate(puzzle, free);
+        read.evaluate(puzzle, free);
+        for (int cell = 0; cell < 81; cell++) {
+            for (int digit = 1; digit <= 9; digit++) {
+                assertEquals(network.score(cell, digit), read.score(cell, digit));
+            }
+        }
+        Files.writeString(file, "not weights");
+        assertThrows(IOException.class, () -> CandidateNetwork.read(file, SudokuUnits.CLASSIC));
+    }
+
+    @DisplayName("GIVEN solved random puzzles, WHEN a network is trained on them and guides every "
+            + "level of the search, THEN its loss on them should fall AND every puzzle should get "
+            + "the same status as without the network, with a valid solution")
+    @Test
+    void testTrainAndSolve() {
+        List<int[]> puzzles = new ArrayList<>();
+        List<int[]> solutions = new ArrayList<>();
+        SudokuSolver plain = new SudokuSolver();
+        for (int[] puzzle : BatchSolver.randomPuzzles(400, 24, 36, 9)) {
+            if (plain.load(puzzle) == SolveResult.Status.SOLVED) {
+                puzzles.add(puzzle);
+                solutions.add(plain.solution());
+            }
+        }
+        CandidateNetwork network = new CandidateNetwork(SudokuUnits.CLASSIC, 16, 2, 1);
+        double before = meanLoss(network, puzzles, solutions);
+        double[] losses = network.train(puzzles, solutions, 8, 2);
+        assertEquals(8, losses.length);
+        double after = meanLoss(network, puzzles, solutions);
+        assertTrue(after < 0.97 * before, before + " -> " + after);
+
+        SudokuSolver guided = new SudokuSolver();
+        guided.setNetwork(network, 81);
+        List<int[]> checked = new ArrayList<>(puzzles.subList(0, 50));
+        checked.add(CandidateEngineTest.parse(HintFinderTest.NYT_HARD));
+        int[] wrong = CandidateEngineTest.parse(SudokuSolverTest.PUZZLE);
+        wrong[2] = 1;
+        checked.add(wrong);
+        for (int[] puzzle : checked) {
+            SolveResult.Status status = plain.load(puzzle);
+            assertEquals(status, guided.load(puzzle));
+            if (status == SolveResult.Status.SOLVED) {
+                assertTrue(SudokuSolverTest.solves(guided, guided.solution()));
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> new SudokuSolver(
+                SudokuUnits.CLASSIC).setNetwork(network, -1));
+    }
+
+    // Mean loss of 'network' over 'puzzles' as given.
+    private static double meanLoss(CandidateNetwork network, List<int[]> puzzles,
+            List<int[]> solutions) {
+        float[] gradient = new float[network.params.length];
+        int[] free = new int[81];
+        double total = 0;
+        for (int i = 0; i < puzzles.size(); i++) {
+            network.freeDigits(puzzles.get(i), free);
+            total += network.backpropagate(puzzles.get(i), free, solutions.get(i), gradient);
+        }
+        return total / puzzles.size();
+    }
+
+    @DisplayName("GIVEN a warmed-up network, WHEN it guides thousands of solves, THEN the solving "
+            + "thread should allocate no memory")
+    @Test
+    void testGuidedSolvingAllocatesNothing() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        int[][] puzzles = {
+                CandidateEngineTest.parse(SudokuSolverTest.PUZZLE),
+                CandidateEngineTest.parse(HintFinderTest.NYT_HARD)};
+        SudokuSolver solver = new SudokuSolver();
+        solver.setNetwork(new CandidateNetwork(SudokuUnits.CLASSIC, 8, 2, 3), 4);
+        for (int round = 0; round < 2; round++) {
+            int solves = 2000;
+            long before = threads.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < solves; i++) {
+                assertEquals(SolveResult.Status.SOLVED, solver.load(puzzles[i % puzzles.length]));
+            }
+            long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+            if (round == 1) {
+                assertTrue(allocated < solves, allocated + " bytes allocated");
+            }
+        }
+    }
+}
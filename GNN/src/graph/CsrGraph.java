@@ -0,0 +1,367 @@
+package graph;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * An immutable directed graph stored in compressed sparse row (CSR) form.  The outgoing edges of
+ * vertex `v` are the entries `[offsets[v]..offsets[v+1])` of `targets` (and of `weights`, if the
+ * graph is weighted), sorted by target; incoming edges are stored the same way in a second,
+ * transposed copy.  Vertices are the ints `0..vertexCount()-1` and label themselves.
+ *
+ * Edge iteration is allocation-free either through `forEachNeighbor()` or through the index-based
+ * cursor `edgeStart(v)`/`edgeEnd(v)`/`target(e)`/`weight(e)`:
+ *
+ *     for (int e = g.edgeStart(v); e < g.edgeEnd(v); e++) { visit(g.target(e), g.weight(e)); }
+ *
+ * `CsrVertex.outgoingEdges()` and `incomingEdges()` provide read-only `Map` views for code written
+ * against the `Vertex` interface.
+ */
+public class CsrGraph implements Graph<CsrGraph.CsrVertex> {
+
+    // offsets[v] is the index in 'targets' of the first outgoing edge of v; offsets[n] = edges.
+    private final int[] offsets;
+
+    // Target of each outgoing edge, sorted within each vertex.
+    private final int[] targets;
+
+    // Weight of each outgoing edge, or null if every edge weighs 1.
+    private final int[] weights;
+
+    // Same as 'offsets', 'targets' and 'weights', for incoming edges.
+    private final int[] inOffsets;
+    private final int[] sources;
+    private final int[] inWeights;
+
+    // Vertex objects, created on first use by getVertex().
+    private final CsrVertex[] vertices;
+
+    /**
+     * Create a graph from arrays in CSR form.  Requires `targets` to be sorted within each vertex
+     * and `weights` to be null or as long as `targets`.
+     */
+    private CsrGraph(int[] offsets, int[] targets, int[] weights) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        int n = offsets.length - 1;
+        vertices = new CsrVertex[n];
+
+        // Transpose by counting sort on target; sources come out sorted as edges are scanned in
+        // source order.
+        inOffsets = new int[n + 1];
+        for (int target : targets) {
+            inOffsets[target + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            inOffsets[v + 1] += inOffsets[v];
+        }
+        sources = new int[targets.length];
+        inWeights = weights == null ? null : new int[targets.length];
+        int[] next = Arrays.copyOf(inOffsets, n);
+        for (int v = 0; v < n; v++) {
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                int slot = next[targets[e]]++;
+                sources[slot] = v;
+                if (weights != null) {
+                    inWeights[slot] = weights[e];
+                }
+            }
+        }
+    }
+
+    /**
+     * Create an unweighted graph on `adjacency.length` vertices with an edge from `v` to each
+     * vertex of `adjacency[v]`.  Requires the entries of `adjacency[v]` to be distinct.
+     */
+    public static CsrGraph fromAdjacency(int[][] adjacency) {
+        Builder builder = new Builder(adjacency.length);
+        for (int v = 0; v < adjacency.length; v++) {
+            for (int w : adjacency[v]) {
+                builder.addEdge(v, w, 1);
+            }
+        }
+        return builder.build(false);
+    }
+
+    @Override
+    public int vertexCount() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Returns the number of edges in the graph.
+     */
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    /**
+     * Returns whether edges carry weights other than 1.
+     */
+    public boolean isWeighted() {
+        return weights != null;
+    }
+
+    @Override
+    public CsrVertex getVertex(int id) {
+        if (vertices[id] == null) {
+            vertices[id] = new CsrVertex(id);
+        }
+        return vertices[id];
+    }
+
+    @Override
+    public int degree(int id) {
+        return offsets[id + 1] - offsets[id];
+    }
+
+    /**
+     * Returns the number of incoming edges of the vertex with id 'id'.
+     */
+    public int inDegree(int id) {
+        return inOffsets[id + 1] - inOffsets[id];
+    }
+
+    @Override
+    public void forEachNeighbor(int id, IntConsumer action) {
+        for (int e = offsets[id]; e < offsets[id + 1]; e++) {
+            action.accept(targets[e]);
+        }
+    }
+
+    /**
+     * Calls 'action' with the id of every vertex that has an edge to the vertex with id 'id'.
+     */
+    public void forEachIncoming(int id, IntConsumer action) {
+        for (int e = inOffsets[id]; e < inOffsets[id + 1]; e++) {
+            action.accept(sources[e]);
+        }
+    }
+
+    // Index of the first outgoing edge of vertex 'id'.
+    public int edgeStart(int id) {
+        return offsets[id];
+    }
+
+    // Index one past the last outgoing edge of vertex 'id'.
+    public int edgeEnd(int id) {
+        return offsets[id + 1];
+    }
+
+    // Vertex that outgoing edge 'e' leads to.
+    public int target(int e) {
+        return targets[e];
+    }
+
+    // Weight of outgoing edge 'e'.
+    public int weight(int e) {
+        return weights == null ? 1 : weights[e];
+    }
+
+    // Index of the first incoming edge of vertex 'id'.
+    public int inEdgeStart(int id) {
+        return inOffsets[id];
+    }
+
+    // Index one past the last incoming edge of vertex 'id'.
+    public int inEdgeEnd(int id) {
+        return inOffsets[id + 1];
+    }
+
+    // Vertex that incoming edge 'e' comes from.
+    public int source(int e) {
+        return sources[e];
+    }
+
+    // Weight of incoming edge 'e'.
+    public int inWeight(int e) {
+        return inWeights == null ? 1 : inWeights[e];
+    }
+
+    /**
+     * A vertex of a CsrGraph.  Its edge maps are views of the graph's arrays, not copies.
+     */
+    public class CsrVertex implements Vertex<Integer> {
+
+        private final int id;
+
+        private CsrVertex(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public Integer label() {
+            return id;
+        }
+
+        @Override
+        public int edgeCount() {
+            return degree(id) + inDegree(id);
+        }
+
+        @Override
+        public Map<Integer, Integer> outgoingEdges() {
+            return new EdgeMap(targets, weights, offsets[id], offsets[id + 1]);
+        }
+
+        @Override
+        public Map<Integer, Integer> incomingEdges() {
+            return new EdgeMap(sources, inWeights, inOffsets[id], inOffsets[id + 1]);
+        }
+    }
+
+    /**
+     * Read-only map from neighbor to weight over the sorted slice `[start..end)` of `ends`.
+     */
+    private static class EdgeMap extends AbstractMap<Integer, Integer> {
+
+        private final int[] ends;
+        private final int[] weights;
+        private final int start;
+        private final int end;
+
+        EdgeMap(int[] ends, int[] weights, int start, int end) {
+            this.ends = ends;
+            this.weights = weights;
+            this.start = start;
+            this.end = end;
+        }
+
+        // Index of edge to 'key', or a negative number if there is none.
+        private int find(Object key) {
+            return key instanceof Integer k ? Arrays.binarySearch(ends, start, end, k) : -1;
+        }
+
+        @Override
+        public int size() {
+            return end - start;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return find(key) >= 0;
+        }
+
+        @Override
+        public Integer get(Object key) {
+            int e = find(key);
+            return e < 0 ? null : weights == null ? 1 : weights[e];
+        }
+
+        @Override
+        public Set<Entry<Integer, Integer>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return end - start;
+                }
+
+                @Override
+                public Iterator<Entry<Integer, Integer>> iterator() {
+                    return new Iterator<>() {
+                        private int e = start;
+
+                        @Override
+                        public boolean hasNext() {
+                            return e < end;
+                        }
+
+                        @Override
+                        public Entry<Integer, Integer> next() {
+                            if (e >= end) {
+                                throw new NoSuchElementException();
+                            }
+                            int w = weights == null ? 1 : weights[e];
+                            return new SimpleImmutableEntry<>(ends[e++], w);
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    /**
+     * Collects edges and packs them into a CsrGraph.
+     */
+    public static class Builder {
+
+        private final int vertexCount;
+        private int[] from = new int[16];
+        private int[] to = new int[16];
+        private int[] weight = new int[16];
+        private int edges;
+
+        /**
+         * Start a graph on 'vertexCount' vertices and no edges.
+         */
+        public Builder(int vertexCount) {
+            this.vertexCount = vertexCount;
+        }
+
+        /**
+         * Add an edge from 'source' to 'target' weighing 'w'.  Requires both ids to be in
+         * `[0..vertexCount)` and the edge not to have been added before.
+         */
+        public Builder addEdge(int source, int target, int w) {
+            if (source < 0 || source >= vertexCount || target < 0 || target >= vertexCount) {
+                throw new IndexOutOfBoundsException(source + " -> " + target);
+            }
+            if (edges == from.length) {
+                from = Arrays.copyOf(from, 2 * edges);
+                to = Arrays.copyOf(to, 2 * edges);
+                weight = Arrays.copyOf(weight, 2 * edges);
+            }
+            from[edges] = source;
+            to[edges] = target;
+            weight[edges] = w;
+            edges++;
+            return this;
+        }
+
+        /**
+         * Add edges in both directions between 'a' and 'b', weighing 'w'.
+         */
+        public Builder addUndirectedEdge(int a, int b, int w) {
+            addEdge(a, b, w);
+            return addEdge(b, a, w);
+        }
+
+        /**
+         * Return the graph of the edges added so far.  Weights are kept only if 'weighted'.
+         */
+        public CsrGraph build(boolean weighted) {
+            int[] offsets = new int[vertexCount + 1];
+            for (int e = 0; e < edges; e++) {
+                offsets[from[e] + 1]++;
+            }
+            for (int v = 0; v < vertexCount; v++) {
+                offsets[v + 1] += offsets[v];
+            }
+            // Pack edges as (target, weight) pairs per source, then sort each row by target.
+            long[] packed = new long[edges];
+            int[] next = Arrays.copyOf(offsets, vertexCount);
+            for (int e = 0; e < edges; e++) {
+                packed[next[from[e]]++] = ((long) to[e] << 32) | (weight[e] & 0xFFFFFFFFL);
+            }
+            int[] targets = new int[edges];
+            int[] weights = weighted ? new int[edges] : null;
+            for (int v = 0; v < vertexCount; v++) {
+                Arrays.sort(packed, offsets[v], offsets[v + 1]);
+                for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                    targets[e] = (int) (packed[e] >>> 32);
+                    if (weighted) {
+                        weights[e] = (int) packed[e];
+                    }
+                }
+            }
+            return new CsrGraph(offsets, targets, weights);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class CsrGraphTest {
+
+    @DisplayName("GIVEN edges added in any order, WHEN the graph is built, THEN each vertex's "
+            + "outgoing and incoming edges should be sorted by neighbor with their weights")
+    @Test
+    void testBuild() {
+        CsrGraph g = new CsrGraph.Builder(4)
+                .addEdge(0, 3, 7)
+                .addEdge(0, 1, 2)
+                .addEdge(2, 0, 5)
+                .addUndirectedEdge(1, 2, 4)
+                .build(true);
+
+        assertEquals(4, g.vertexCount());
+        assertEquals(5, g.edgeCount());
+        assertEquals(Map.of(1, 2, 3, 7), g.getVertex(0).outgoingEdges());
+        assertEquals(Map.of(2, 5), g.getVertex(0).incomingEdges());
+        assertEquals(Map.of(0, 2, 2, 4), g.getVertex(1).incomingEdges());
+        assertEquals(Map.of(), g.getVertex(3).outgoingEdges());
+        assertEquals(3, g.getVertex(0).edgeCount());
+
+        List<Integer> targets = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        for (int e = g.edgeStart(0); e < g.edgeEnd(0); e++) {
+            targets.add(g.target(e));
+            weights.add(g.weight(e));
+        }
+        assertEquals(List.of(1, 3), targets);
+        assertEquals(List.of(2, 7), weights);
+
+        List<Integer> sources = new ArrayList<>();
+        g.forEachIncoming(0, sources::add);
+        assertEquals(List.of(2), sources);
+    }
+
+    @DisplayName("WHEN the Sudoku peer graph is built, THEN every position should have the 20 "
+            + "positions sharing its row, column or box as neighbors, and edges weigh 1")
+    @Test
+    void testPeerGraph() {
+        CsrGraph g = SudokuGraph.peerGraph();
+        assertEquals(81, g.vertexCount());
+        assertEquals(81 * 20, g.edgeCount());
+        assertFalse(g.isWeighted());
+        for (int v = 0; v < 81; v++) {
+            SudokuVertex vertex = new SudokuVertex(v, 0);
+            assertEquals(20, g.degree(v));
+            List<Integer> neighbors = new ArrayList<>();
+            g.forEachNeighbor(v, neighbors::add);
+            for (int w : neighbors) {
+                assertTrue(vertex.row.contains(w) || vertex.col.contains(w)
+                        || vertex.box.contains(w));
+                assertEquals(1, g.getVertex(v).outgoingEdges().get(w));
+            }
+            assertFalse(g.getVertex(v).outgoingEdges().containsKey(v));
+            assertEquals(g.getVertex(v).outgoingEdges(), g.getVertex(v).incomingEdges());
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+
+/**
+ * A min priority queue of distinct elements of type `KeyType` associated with (extrinsic) integer
+ * priorities, implemented using a d-ary heap paired with a hash table.  Behaves like `MinQueue`,
+ * but is meant for large queues:
+ *
+ * - Each node has 'arity' children (4 by default), so the heap is half as deep as a binary one
+ *   and the children compared at each level of a sift down sit next to each other in memory.
+ * - Sifting is iterative and moves a hole rather than swapping: entries on the path move one
+ *   level each, and the sifted entry is written once where the hole stops.
+ * - Priorities are kept in an `int[]` parallel to the heap, so comparisons read no objects, and
+ *   each entry records its own slot, so the hash table is only used by addOrUpdate(),
+ *   contains() and remove(), once per call, never while sifting.
+ * - With assertions enabled, each mutation checks the invariant only along the path it touched,
+ *   so a run stays O(log n) per operation rather than O(n).
+ */
+public class DaryHeap<KeyType> implements PriorityQueue<KeyType> {
+
+    /**
+     * An element of the queue and its current index in `heap`.
+     */
+    private static final class Entry<KeyType> {
+        private final KeyType key;
+        private int slot;
+
+        Entry(KeyType key) {
+            this.key = key;
+        }
+    }
+
+    // Number of children of each node.
+    private final int arity;
+
+    // Maps each element in the queue to its entry.  Only maps elements that are in the queue.
+    private final Map<KeyType, Entry<KeyType>> index = new HashMap<>();
+
+    // heap[0..size) is a min-heap of entries: priorities[i] >= priorities[(i-1)/arity] for all
+    // i in [1..size), and heap[i].slot == i.
+    private Entry<KeyType>[] heap;
+
+    // priorities[i] is the priority of heap[i].
+    private int[] priorities;
+
+    // Number of elements in the queue.
+    private int size;
+
+    /**
+     * Create an empty 4-ary queue.
+     */
+    public DaryHeap() {
+        this(4);
+    }
+
+    /**
+     * Create an empty queue whose heap nodes have 'arity' children.  Requires `arity >= 2`.
+     */
+    @SuppressWarnings("unchecked")
+    public DaryHeap(int arity) {
+        if (arity < 2) {
+            throw new IllegalArgumentException("arity must be at least 2: " + arity);
+        }
+        this.arity = arity;
+        heap = (Entry<KeyType>[]) new Entry<?>[16];
+        priorities = new int[16];
+    }
+
+    /**
+     * Assert that our class invariant holds for the nodes on the path from index 'slot' to the
+     * root and for their children, which is everything a sift ending or starting at 'slot' can
+     * have changed.  Returns true if it does (or if assertions are disabled).
+     */
+    private boolean checkPath(int slot) {
+        assert index.size() == size;
+        for (int i = Math.min(slot, size - 1); i >= 0; i = i == 0 ? -1 : (i - 1) / arity) {
+            assert heap[i].slot == i;
+            assert index.get(heap[i].key) == heap[i];
+            assert i == 0 || priorities[i] >= priorities[(i - 1) / arity];
+            int end = Math.min(i * arity + 1 + arity, size);
+            for (int c = i * arity + 1; c < end; c++) {
+                assert priorities[c] >= priorities[i];
+                assert heap[c].slot == c;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return whether this queue contains no elements.
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Return the number of elements contained in this queue.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return an element associated with the smallest priority in this queue.  This is the same
+     * element that would be removed by a call to `remove()` (assuming no mutations in between).
+     * Throws NoSuchElementException if this queue is empty.
+     */
+    @Override
+    public KeyType get() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return heap[0].key;
+    }
+
+    /**
+     * Return the minimum priority associated with an element in this queue.  Throws
+     * NoSuchElementException if this queue is empty.
+     */
+    @Override
+    public int minPriority() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return priorities[0];
+    }
+
+    /**
+     * If `key` is already contained in this queue, change its associated priority to `priority`.
+     * Otherwise, add it to this queue with that priority.
+     */
+    @Override
+    public void addOrUpdate(KeyType key, int priority) {
+        Entry<KeyType> entry = index.get(key);
+        if (entry == null) {
+            entry = new Entry<>(key);
+            index.put(key, entry);
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+                priorities = Arrays.copyOf(priorities, size * 2);
+            }
+            int start = size++;
+            siftUp(entry, priority, start);
+            assert checkPath(start);
+        } else if (priority < priorities[entry.slot]) {
+            int start = entry.slot;
+            siftUp(entry, priority, start);
+            assert checkPath(start);
+        } else if (priority > priorities[entry.slot]) {
+            siftDown(entry, priority, entry.slot);
+            assert checkPath(entry.slot);
+        }
+    }
+
+    /**
+     * Return whether `key` is contained in this queue.
+     */
+    @Override
+    public boolean contains(KeyType key) {
+        return index.containsKey(key);
+    }
+
+    /**
+     * Remove and return the element associated with the smallest priority in this queue.  If
+     * multiple elements are tied for the smallest priority, an arbitrary one will be removed.
+     * Throws NoSuchElementException if this queue is empty.
+     */
+    @Override
+    public KeyType remove() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        KeyType root = heap[0].key;
+        index.remove(root);
+        size--;
+        // The last entry fills the hole left at the root.
+        Entry<KeyType> last = heap[size];
+        heap[size] = null;
+        if (size > 0) {
+            siftDown(last, priorities[size], 0);
+            assert checkPath(last.slot);
+        }
+        assert index.size() == size;
+        return root;
+    }
+
+    /**
+     * Remove all elements from this queue (making it empty).
+     */
+    @Override
+    public void clear() {
+        index.clear();
+        Arrays.fill(heap, 0, size, null);
+        size = 0;
+        assert index.isEmpty();
+    }
+
+    /**
+     * Place 'entry' with 'priority' at the hole at index 'hole', after moving down the ancestors
+     * of the hole with a larger priority.
+     */
+    private void siftUp(Entry<KeyType> entry, int priority, int hole) {
+        while (hole > 0) {
+            int parent = (hole - 1) / arity;
+            int parentPriority = priorities[parent];
+            if (priority >= parentPriority) {
+                break;
+            }
+            move(parent, hole);
+            hole = parent;
+        }
+        place(entry, priority, hole);
+    }
+
+    /**
+     * Place 'entry' with 'priority' at the hole at index 'hole', after moving up the smallest
+     * child of the hole while it has a smaller priority.
+     */
+    private void siftDown(Entry<KeyType> entry, int priority, int hole) {
+        while (true) {
+            int first = hole * arity + 1;
+            if (first >= size) {
+                break;
+            }
+            int end = Math.min(first + arity, size);
+            int child = first;
+            int childPriority = priorities[first];
+            for (int c = first + 1; c < end; c++) {
+                if (priorities[c] < childPriority) {
+                    child = c;
+                    childPriority = priorities[c];
+                }
+            }
+            if (childPriority >= priority) {
+                break;
+            }
+            move(child, hole);
+            hole = child;
+        }
+        place(entry, priority, hole);
+    }
+
+    // Move the entry at index 'from' to index 'to'.
+    private void move(int from, int to) {
+        Entry<KeyType> moved = heap[from];
+        heap[to] = moved;
+        priorities[to] = priorities[from];
+        moved.slot = to;
+    }
+
+    // Put 'entry' with 'priority' at index 'slot'.
+    private void place(Entry<KeyType> entry, int priority, int slot) {
+        heap[slot] = entry;
+        priorities[slot] = priority;
+        entry.slot = slot;
+    }
+
+    /**
+     * Return the distances from 'source' to every vertex of 'graph' (Integer.MAX_VALUE if not
+     * reachable), with 'weight' giving the non-negative weight of the edge between two vertex ids,
+     * computed by Dijkstra's algorithm with 'queue' holding the vertices reached but not settled.
+     */
+    static int[] distances(Graph<?> graph, int source, IntBinaryOperator weight,
+            PriorityQueue<Integer> queue) {
+        int[] distance = new int[graph.vertexCount()];
+        Arrays.fill(distance, Integer.MAX_VALUE);
+        boolean[] settled = new boolean[distance.length];
+        // Vertex being settled, read by 'relax'.
+        int[] current = new int[1];
+        IntConsumer relax = w -> {
+            int v = current[0];
+            if (!settled[w]) {
+                int d = distance[v] + weight.applyAsInt(v, w);
+                if (d < distance[w]) {
+                    distance[w] = d;
+                    queue.addOrUpdate(w, d);
+                }
+            }
+        };
+        queue.clear();
+        distance[source] = 0;
+        queue.addOrUpdate(source, 0);
+        while (!queue.isEmpty()) {
+            int v = queue.remove();
+            settled[v] = true;
+            current[0] = v;
+            graph.forEachNeighbor(v, relax);
+        }
+        return distance;
+    }
+
+    /**
+     * Return a random graph on 'vertices' vertices with about 'degree' undirected edges per
+     * vertex.
+     */
+    static CsrGraph randomGraph(int vertices, int degree, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        CsrGraph.Builder builder = new CsrGraph.Builder(vertices);
+        Set<Long> added = new HashSet<>();
+        for (int v = 0; v < vertices; v++) {
+            for (int i = 0; i < degree / 2; i++) {
+                int w = random.nextInt(vertices);
+                if (w != v && added.add((long) Math.min(v, w) * vertices + Math.max(v, w))) {
+                    builder.addUndirectedEdge(v, w, 1);
+                }
+            }
+        }
+        return builder.build(false);
+    }
+
+    /**
+     * Return a pseudo-random weight in [1..256] for the edge between 'v' and 'w', the same in
+     * both directions.
+     */
+    static int edgeWeight(int v, int w) {
+        long h = (long) Math.min(v, w) * 0x9E3779B97F4A7C15L + Math.max(v, w);
+        h *= 0xBF58476D1CE4E5B9L;
+        return (int) (h >>> 56) + 1;
+    }
+
+    /**
+     * Compare `MinQueue` with binary and 4-ary heaps running Dijkstra's algorithm on a random
+     * graph.  Arguments: [vertices [degree]], default 200000 and 8.
+     */
+    public static void main(String[] args) {
+        int vertices = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int degree = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        CsrGraph graph = randomGraph(vertices, degree, 1);
+        List<PriorityQueue<Integer>> queues =
+                List.of(new MinQueue<>(), new DaryHeap<>(2), new DaryHeap<>(4), new DaryHeap<>(8));
+        List<String> names = List.of("MinQueue", "DaryHeap(2)", "DaryHeap(4)", "DaryHeap(8)");
+        long check = 0;
+        for (int pass = 0; pass < 5; pass++) {
+            for (int q = 0; q < queues.size(); q++) {
+                long start = System.nanoTime();
+                int[] distance = distances(graph, pass, DaryHeap::edgeWeight, queues.get(q));
+                long nanos = System.nanoTime() - start;
+                check += distance[distance.length - 1];
+                System.out.printf("%-12s %8.1f ms%n", names.get(q), nanos / 1e6);
+            }
+        }
+        System.out.println("checksum " + check);
+    }
+}
@@ -0,0 +1,117 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class DaryHeapTest {
+
+    @DisplayName("GIVEN DaryHeaps of several arities and a MinQueue, WHEN they receive the same "
+            + "random adds, updates and removals, THEN they should agree on size, contents and "
+            + "minimum priority after each one AND remove elements in non-decreasing priority")
+    @Test
+    void testMatchesMinQueue() {
+        for (int arity : new int[]{2, 3, 4, 8}) {
+            PriorityQueue<Integer> expected = new MinQueue<>();
+            PriorityQueue<Integer> q = new DaryHeap<>(arity);
+            Random rng = new Random(arity);
+            for (int i = 0; i < 3000; i++) {
+                int key = rng.nextInt(200);
+                if (rng.nextInt(4) == 0 && !q.isEmpty()) {
+                    int priority = q.minPriority();
+                    int removed = q.remove();
+                    assertEquals(priority, expected.minPriority());
+                    expected.addOrUpdate(removed, Integer.MIN_VALUE);
+                    assertEquals(removed, expected.remove());
+                } else {
+                    int priority = rng.nextInt(100) - 50;
+                    q.addOrUpdate(key, priority);
+                    expected.addOrUpdate(key, priority);
+                }
+                assertEquals(expected.size(), q.size());
+                assertEquals(expected.contains(key), q.contains(key));
+                if (!q.isEmpty()) {
+                    assertEquals(expected.minPriority(), q.minPriority());
+                }
+            }
+            int previous = Integer.MIN_VALUE;
+            while (!q.isEmpty()) {
+                int priority = q.minPriority();
+                Integer key = q.get();
+                assertEquals(key, q.remove());
+                assertFalse(q.contains(key));
+                assertTrue(priority >= previous);
+                previous = priority;
+            }
+        }
+    }
+
+    @DisplayName("GIVEN a DaryHeap of strings, WHEN elements are added, updated both ways, "
+            + "removed and cleared, THEN it should follow the PriorityQueue contract "
+            + "AND an arity below 2 should be rejected")
+    @Test
+    void testGenericKeys() {
+        PriorityQueue<String> q = new DaryHeap<>();
+        assertThrows(NoSuchElementException.class, q::get);
+        assertThrows(NoSuchElementException.class, q::minPriority);
+        assertThrows(NoSuchElementException.class, q::remove);
+        for (int i = 0; i < 40; i++) {
+            q.addOrUpdate("k" + i, i);
+        }
+        assertEquals(40, q.size());
+        q.addOrUpdate("k" + 30, -1);
+        q.addOrUpdate("k" + 0, 100);
+        assertEquals(40, q.size());
+        assertEquals("k30", q.remove());
+        assertEquals("k1", q.get());
+        assertEquals(1, q.minPriority());
+        assertFalse(q.contains("k30"));
+        assertTrue(q.contains("k0"));
+
+        q.clear();
+        assertTrue(q.isEmpty());
+        assertFalse(q.contains("k0"));
+        assertThrows(NoSuchElementException.class, q::remove);
+        q.addOrUpdate("again", 5);
+        assertEquals("again", q.remove());
+        assertThrows(IllegalArgumentException.class, () -> new DaryHeap<String>(1));
+    }
+
+    @DisplayName("GIVEN assertions enabled, WHEN Dijkstra's algorithm runs with a DaryHeap on a "
+            + "graph of 100000 vertices, THEN the invariant checks should only cost their paths, "
+            + "keeping the run well under a minute instead of quadratic in the queue size")
+    @Test
+    void testLargeQueueUnderAssertions() {
+        CsrGraph graph = DaryHeap.randomGraph(100_000, 8, 6);
+        long start = System.nanoTime();
+        int[] distance = DaryHeap.distances(graph, 0, DaryHeap::edgeWeight, new DaryHeap<>());
+        assertEquals(0, distance[0]);
+        assertTrue(System.nanoTime() - start < 60_000_000_000L);
+    }
+
+    @DisplayName("GIVEN a random weighted graph, WHEN Dijkstra's algorithm runs over the Graph "
+            + "interface with a DaryHeap and with a MinQueue, THEN both should find the same "
+            + "distances")
+    @Test
+    void testDistances() {
+        CsrGraph graph = DaryHeap.randomGraph(2000, 6, 4);
+        int[] expected = DaryHeap.distances(graph, 0, DaryHeap::edgeWeight, new MinQueue<>());
+        for (int arity : new int[]{2, 4}) {
+            assertArrayEquals(expected, DaryHeap.distances(graph, 0, DaryHeap::edgeWeight,
+                    new DaryHeap<>(arity)));
+        }
+        assertEquals(0, expected[0]);
+        // Every edge is relaxed: no distance exceeds a neighbor's plus the edge between them.
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++) {
+                int w = graph.target(e);
+                if (expected[v] != Integer.MAX_VALUE) {
+                    assertTrue(expected[w] <= expected[v] + DaryHeap.edgeWeight(v, w));
+                }
+            }
+        }
+    }
+}
@@ -1,9 +1,27 @@
 package graph;
 
+import java.util.function.IntConsumer;
+
 public interface Graph<VertexType extends Vertex<?>>{
 
     /**
      * Returns number of vertices in the graph.
      */
     int vertexCount();
+
+    /**
+     * Returns the vertex with id 'id'.  Vertices are numbered 0 to vertexCount() - 1.
+     */
+    VertexType getVertex(int id);
+
+    /**
+     * Returns the number of outgoing edges of the vertex with id 'id'.
+     */
+    int degree(int id);
+
+    /**
+     * Calls 'action' with the id of every vertex that the vertex with id 'id' has an outgoing edge
+     * to.  Unlike Vertex.outgoingEdges(), this neither boxes ids nor builds a map.
+     */
+    void forEachNeighbor(int id, IntConsumer action);
 }
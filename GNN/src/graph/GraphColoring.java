@@ -0,0 +1,255 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Exact graph coloring by backtracking in DSatur order: the next vertex colored is always the
+ * uncolored vertex with the most distinct colors among its neighbors (its saturation), ties broken
+ * by the number of uncolored neighbors.  Vertices are kept in a `MinQueue` keyed by that order, and
+ * a coloring fails as soon as an uncolored vertex has no color left.
+ *
+ * Works on any `Graph` whose edges are symmetric (an edge from `v` to `w` implies one from `w` to
+ * `v`), such as `SudokuGraph.peerGraph()` (9 colors, givens precolored) or interference graphs for
+ * register allocation.  An instance keeps its arrays between calls to `color()`, so reusing one
+ * instance for many colorings of the same graph allocates little.
+ */
+public class GraphColoring {
+
+    private final Graph<?> graph;
+
+    // Number of vertices of 'graph'.
+    private final int n;
+
+    // Number of colors available.
+    private final int k;
+
+    // count[v * k + c] is the number of neighbors of v colored c.
+    private final int[] count;
+
+    // Number of distinct colors among the neighbors of each vertex.
+    private final int[] saturation;
+
+    // Number of uncolored neighbors of each vertex.
+    private final int[] uncoloredDegree;
+
+    // Number of vertices of each color.
+    private final int[] uses;
+
+    // Uncolored vertices, smallest priority() first.
+    private final MinQueue<Integer> queue = new MinQueue<>();
+
+    // Coloring being built: color of each vertex, or -1.
+    private int[] coloring;
+
+    // Color being added or removed by 'assignNeighbor' and 'unassignNeighbor'.
+    private int currentColor;
+
+    // Set by 'assignNeighbor' when an uncolored neighbor runs out of colors.
+    private boolean wipeout;
+
+    // Number of colors tried since this instance was created.
+    private long nodes;
+
+    // Number of vertices colored in 'coloring', and the largest such number in this call.
+    private int colored;
+    private int bestColored;
+
+    // Copy of 'coloring' when 'bestColored' vertices were colored.
+    private int[] best;
+
+    // Called every SudokuGraph.MONITOR_INTERVAL nodes with the node count, or null.
+    private LongConsumer progress;
+
+    // Neighbor updates, stored in fields so that iterating neighbors allocates nothing.
+    private final IntConsumer assignNeighbor = this::assignNeighbor;
+    private final IntConsumer unassignNeighbor = this::unassignNeighbor;
+    private final IntConsumer countUncolored = w -> {
+        if (coloring[w] < 0) {
+            currentColor++;
+        }
+    };
+
+    /**
+     * Prepare to color 'graph' with 'colors' colors.
+     */
+    public GraphColoring(Graph<?> graph, int colors) {
+        this.graph = graph;
+        this.n = graph.vertexCount();
+        this.k = colors;
+        count = new int[n * k];
+        saturation = new int[n];
+        uncoloredDegree = new int[n];
+        uses = new int[k];
+    }
+
+    /**
+     * Returns the number of colors tried so far.
+     */
+    public long nodes() {
+        return nodes;
+    }
+
+    /**
+     * Sets a callback receiving the node count every SudokuGraph.MONITOR_INTERVAL nodes, or removes
+     * it if 'progress' is null.  The callback may throw an unchecked exception to abandon the
+     * search, leaving 'coloring' partially filled.
+     */
+    public void setProgress(LongConsumer progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * Returns a copy of the most complete coloring reached by the last call to color(), in the
+     * same form as its argument.  Useful when that call was abandoned by the progress callback.
+     */
+    public int[] best() {
+        return best.clone();
+    }
+
+    /**
+     * Extend 'coloring' (the color in `[0..k)` of each vertex, or -1 if uncolored) to a proper
+     * coloring of the whole graph, keeping the colors already set.  Returns whether one exists;
+     * if not, 'coloring' is left as it was given.
+     */
+    public boolean color(int[] coloring) {
+        this.coloring = coloring;
+        Arrays.fill(count, 0);
+        Arrays.fill(saturation, 0);
+        Arrays.fill(uses, 0);
+        queue.clear();
+        best = coloring.clone();
+        colored = 0;
+        for (int c : coloring) {
+            if (c >= 0) {
+                colored++;
+            }
+        }
+        bestColored = colored;
+
+        // Precolored vertices first: count their colors around every vertex.
+        for (int v = 0; v < n; v++) {
+            int c = coloring[v];
+            if (c >= 0) {
+                uses[c]++;
+                for (int w : neighbors(v)) {
+                    if (coloring[w] == c) {
+                        return false;
+                    }
+                    if (count[w * k + c]++ == 0) {
+                        saturation[w]++;
+                    }
+                }
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            if (coloring[v] < 0) {
+                currentColor = 0;
+                graph.forEachNeighbor(v, countUncolored);
+                uncoloredDegree[v] = currentColor;
+                if (saturation[v] == k) {
+                    return false;
+                }
+                queue.addOrUpdate(v, priority(v));
+            }
+        }
+        return search();
+    }
+
+    /**
+     * Return the neighbors of 'v' as an array.  Only used while setting up, where allocation
+     * does not matter.
+     */
+    private int[] neighbors(int v) {
+        int[] result = new int[graph.degree(v)];
+        int[] size = {0};
+        graph.forEachNeighbor(v, w -> result[size[0]++] = w);
+        return result;
+    }
+
+    /**
+     * Queue priority of uncolored vertex 'v': most saturated first, then most uncolored neighbors.
+     */
+    private int priority(int v) {
+        return -(saturation[v] * (n + 1) + uncoloredDegree[v]);
+    }
+
+    /**
+     * Color the vertices left in 'queue'.  Returns true once all are colored; otherwise restores
+     * 'queue' and the counts to their state on entry and returns false.
+     */
+    private boolean search() {
+        if (queue.isEmpty()) {
+            return true;
+        }
+        int v = queue.remove();
+        // Colors no vertex uses yet are interchangeable, so only the first of them is tried.
+        boolean triedUnused = false;
+        for (int c = 0; c < k; c++) {
+            if (count[v * k + c] != 0 || (uses[c] == 0 && triedUnused)) {
+                continue;
+            }
+            triedUnused |= uses[c] == 0;
+            nodes++;
+            if (progress != null && (nodes & (SudokuGraph.MONITOR_INTERVAL - 1)) == 0) {
+                progress.accept(nodes);
+            }
+            if (assign(v, c) && search()) {
+                return true;
+            }
+            unassign(v, c);
+        }
+        queue.addOrUpdate(v, priority(v));
+        return false;
+    }
+
+    /**
+     * Color 'v' with 'c' and update its neighbors.  Returns false if an uncolored neighbor has no
+     * color left; the assignment must be undone with unassign() either way.
+     */
+    private boolean assign(int v, int c) {
+        coloring[v] = c;
+        uses[c]++;
+        if (++colored > bestColored) {
+            bestColored = colored;
+            System.arraycopy(coloring, 0, best, 0, n);
+        }
+        currentColor = c;
+        wipeout = false;
+        graph.forEachNeighbor(v, assignNeighbor);
+        return !wipeout;
+    }
+
+    /**
+     * Undo assign(v, c).
+     */
+    private void unassign(int v, int c) {
+        currentColor = c;
+        graph.forEachNeighbor(v, unassignNeighbor);
+        uses[c]--;
+        colored--;
+        coloring[v] = -1;
+    }
+
+    private void assignNeighbor(int w) {
+        if (count[w * k + currentColor]++ == 0) {
+            saturation[w]++;
+        }
+        if (coloring[w] < 0) {
+            uncoloredDegree[w]--;
+            queue.addOrUpdate(w, priority(w));
+            wipeout |= saturation[w] == k;
+        }
+    }
+
+    private void unassignNeighbor(int w) {
+        if (--count[w * k + currentColor] == 0) {
+            saturation[w]--;
+        }
+        if (coloring[w] < 0) {
+            uncoloredDegree[w]++;
+            queue.addOrUpdate(w, priority(w));
+        }
+    }
+}
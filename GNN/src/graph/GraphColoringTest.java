@@ -0,0 +1,83 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class GraphColoringTest {
+
+    /**
+     * Return an undirected cycle on 'n' vertices.
+     */
+    static CsrGraph cycle(int n) {
+        CsrGraph.Builder builder = new CsrGraph.Builder(n);
+        for (int v = 0; v < n; v++) {
+            builder.addUndirectedEdge(v, (v + 1) % n, 1);
+        }
+        return builder.build(false);
+    }
+
+    /**
+     * Assert that no edge of 'g' joins two vertices of the same color and every vertex is colored.
+     */
+    static void assertProper(Graph<?> g, int[] coloring) {
+        for (int v = 0; v < g.vertexCount(); v++) {
+            int c = coloring[v];
+            assertTrue(c >= 0);
+            g.forEachNeighbor(v, w -> assertNotEquals(c, coloring[w]));
+        }
+    }
+
+    @DisplayName("GIVEN an odd cycle, WHEN it is colored, THEN 2 colors should not be enough "
+            + "AND 3 colors should give a proper coloring")
+    @Test
+    void testOddCycle() {
+        CsrGraph g = cycle(7);
+        int[] coloring = new int[7];
+        Arrays.fill(coloring, -1);
+        assertFalse(new GraphColoring(g, 2).color(coloring));
+        assertArrayEquals(new int[]{-1, -1, -1, -1, -1, -1, -1}, coloring);
+        assertTrue(new GraphColoring(g, 3).color(coloring));
+        assertProper(g, coloring);
+    }
+
+    @DisplayName("GIVEN precolored vertices, WHEN the graph is colored, THEN their colors should be "
+            + "kept AND adjacent vertices precolored alike should make coloring fail")
+    @Test
+    void testPrecolored() {
+        CsrGraph g = cycle(6);
+        int[] coloring = {-1, -1, 1, -1, -1, 0};
+        GraphColoring colorer = new GraphColoring(g, 2);
+        assertTrue(colorer.color(coloring));
+        assertEquals(1, coloring[2]);
+        assertEquals(0, coloring[5]);
+        assertProper(g, coloring);
+
+        int[] clash = {0, 0, -1, -1, -1, -1};
+        assertFalse(colorer.color(clash));
+    }
+
+    @DisplayName("WHEN Sudoku boards are solved by coloring their peer graph, THEN the givens "
+            + "should be kept AND the board should be a valid solution")
+    @Test
+    void testSudoku() {
+        String[] puzzles = {
+                "53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79",
+                ".5.8....64.....2.56..........2...1..7..9.64.........5.2.95..73.....1...4.3..8....",
+                // A sparse board with several solutions.
+                "...............3.85..1.2.......5.7.....4...1...9.......5......73..2.1........4...9",
+        };
+        for (String puzzle : puzzles) {
+            int[] grid = CandidateEngineTest.parse(puzzle);
+            SudokuGraph s = SudokuGraph.fromGrid(grid);
+            assertTrue(s.solve(SolveStrategy.COLORING), puzzle);
+            int[] solution = s.toGrid();
+            for (int i = 0; i < 81; i++) {
+                assertTrue(grid[i] == 0 || grid[i] == solution[i]);
+            }
+            assertTrue(new ScalarCandidateEngine().isValid(solution, true));
+        }
+    }
+}
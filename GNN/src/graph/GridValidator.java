@@ -0,0 +1,265 @@
+package graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Checks classic grids for repeated digits in one pass over the cells, keeping a digit mask for
+ * each of the 27 units: a cell conflicts when its digit's bit is already set in its row, column
+ * or box mask.  The first conflicting cell in reading order is reported with the unit that
+ * already held its digit, or, when a complete grid is required, the first empty cell.
+ *
+ * `validate(Path, ...)` streams a file of puzzles in one-line format (see `PuzzleIO`) through a
+ * large buffer and checks each line straight from its bytes, without creating a String or a grid
+ * per line, so a file is checked about as fast as it can be read.
+ *
+ * An instance reuses its masks, so it must not be shared between threads.
+ */
+public final class GridValidator {
+
+    /**
+     * First problem found in a grid: 'digit' repeated at 'cell' in 'unit' (see `SudokuUnits`:
+     * rows 0..8, columns 9..17, boxes 18..26), or 'cell' empty in a grid required to be complete,
+     * in which case 'unit' is -1 and 'digit' 0.
+     */
+    public record Conflict(int cell, int unit, int digit) {
+
+        @Override
+        public String toString() {
+            if (unit < 0) {
+                return Hint.cellName(cell) + " is empty";
+            }
+            return Hint.cellName(cell) + ": " + digit + " repeated in " + Hint.unitName(unit);
+        }
+    }
+
+    /**
+     * Receives the lines of a file that are not valid grids.
+     */
+    public interface Listener {
+
+        /**
+         * Called for line 'line' (counting from 1) of the file, with its first problem, or with
+         * null if the line is not a grid at all.
+         */
+        void invalid(long line, Conflict conflict);
+    }
+
+    /**
+     * Totals of a file check: lines holding a grid that passed or failed, lines that are not grids
+     * (blank lines are not counted), and the bytes read and time taken.
+     */
+    public record Report(long valid, long invalid, long malformed, long bytes, long nanos) {
+
+        // Megabytes of the file checked per second.
+        public double megabytesPerSecond() {
+            return nanos == 0 ? 0 : bytes * 1e3 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d valid, %d invalid, %d malformed; %.1f MB/s", valid, invalid,
+                    malformed, megabytesPerSecond());
+        }
+    }
+
+    // UNITS[3 * cell ..] are the row, column and box units of 'cell'.
+    private static final int[] UNITS = new int[3 * 81];
+
+    static {
+        for (int cell = 0; cell < 81; cell++) {
+            UNITS[3 * cell] = SudokuUnits.row(cell);
+            UNITS[3 * cell + 1] = 9 + SudokuUnits.col(cell);
+            UNITS[3 * cell + 2] = 18 + SudokuUnits.box(cell);
+        }
+    }
+
+    // Size of the buffer files are read through.
+    private static final int BUFFER = 1 << 20;
+
+    // Digits seen so far in each unit of the grid being checked.
+    private final int[] masks = new int[27];
+
+    // Unit and digit of the last conflict found by scan().
+    private int conflictUnit;
+    private int conflictDigit;
+
+    /**
+     * Return the first problem of 'grid' (81 values, 0 for empty), or null if no unit repeats a
+     * digit and, if 'complete', no cell is empty.
+     */
+    public Conflict check(int[] grid, boolean complete) {
+        Arrays.fill(masks, 0);
+        for (int cell = 0; cell < 81; cell++) {
+            int value = grid[cell];
+            if (value == 0) {
+                if (complete) {
+                    return new Conflict(cell, -1, 0);
+                }
+                continue;
+            }
+            if (!add(cell, value)) {
+                return new Conflict(cell, conflictUnit, conflictDigit);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check 'path', one grid per line in one-line format, passing every line that is not a valid
+     * grid to 'listener' (which may be null).  Characters after the 81st cell of a line are
+     * ignored, as by PuzzleIO.parse().
+     */
+    public Report validate(Path path, boolean complete, Listener listener) throws IOException {
+        long start = System.nanoTime();
+        long valid = 0;
+        long invalid = 0;
+        long malformed = 0;
+        long bytes = 0;
+        long lineNumber = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER);
+        byte[] data = buffer.array();
+        // Whether the start of the buffer continues a line longer than the buffer, already checked.
+        boolean skipping = false;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (true) {
+                int read = channel.read(buffer);
+                boolean eof = read < 0;
+                if (!eof) {
+                    bytes += read;
+                }
+                int end = buffer.position();
+                int lineStart = 0;
+                while (lineStart < end) {
+                    int lineEnd = indexOf(data, (byte) '\n', lineStart, end);
+                    if (lineEnd < 0) {
+                        if (!eof && !(lineStart == 0 && end == data.length)) {
+                            // Incomplete line: finish reading it first.
+                            break;
+                        }
+                        lineEnd = end;
+                    }
+                    boolean truncated = lineEnd == end && !eof;
+                    if (!skipping) {
+                        lineNumber++;
+                        int length = lineEnd - lineStart;
+                        if (length > 0 && data[lineStart + length - 1] == '\r') {
+                            length--;
+                        }
+                        if (length > 0) {
+                            int cell = scan(data, lineStart, length, complete);
+                            if (cell == -1) {
+                                valid++;
+                            } else if (cell == -2) {
+                                malformed++;
+                                if (listener != null) {
+                                    listener.invalid(lineNumber, null);
+                                }
+                            } else {
+                                invalid++;
+                                if (listener != null) {
+                                    listener.invalid(lineNumber,
+                                            new Conflict(cell, conflictUnit, conflictDigit));
+                                }
+                            }
+                        }
+                    }
+                    skipping = truncated;
+                    lineStart = lineEnd + 1;
+                }
+                if (eof) {
+                    break;
+                }
+                // Keep the incomplete last line for the next read.
+                buffer.position(Math.min(lineStart, end)).limit(end);
+                buffer.compact();
+            }
+        }
+        return new Report(valid, invalid, malformed, bytes, System.nanoTime() - start);
+    }
+
+    /**
+     * Check the line of 'length' bytes at 'offset' of 'data'.  Returns -1 if it is a valid grid,
+     * -2 if it is not a grid, and otherwise the first problem cell, with its unit and digit in
+     * 'conflictUnit' and 'conflictDigit'.
+     */
+    private int scan(byte[] data, int offset, int length, boolean complete) {
+        if (length < 81) {
+            return -2;
+        }
+        Arrays.fill(masks, 0);
+        int problem = -1;
+        for (int cell = 0; cell < 81; cell++) {
+            int c = data[offset + cell];
+            if (c >= '1' && c <= '9') {
+                if (problem == -1 && !add(cell, c - '0')) {
+                    problem = cell;
+                }
+            } else if (c == '.' || c == '0') {
+                if (complete && problem == -1) {
+                    conflictUnit = -1;
+                    conflictDigit = 0;
+                    problem = cell;
+                }
+            } else {
+                return -2;
+            }
+        }
+        return problem;
+    }
+
+    /**
+     * Add 'value' at 'cell' to the unit masks.  Returns false, with the unit already holding it in
+     * 'conflictUnit', if one of the cell's units already holds 'value'.
+     */
+    private boolean add(int cell, int value) {
+        int bit = 1 << (value - 1);
+        int base = 3 * cell;
+        for (int i = 0; i < 3; i++) {
+            int unit = UNITS[base + i];
+            if ((masks[unit] & bit) != 0) {
+                conflictUnit = unit;
+                conflictDigit = value;
+                return false;
+            }
+            masks[unit] |= bit;
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] data, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (data[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Check files of grids.  Arguments: [--partial] files...; without `--partial` every grid must
+     * be complete.  Prints each file's totals and its first 10 problems.
+     */
+    public static void main(String[] args) throws IOException {
+        boolean complete = true;
+        GridValidator validator = new GridValidator();
+        for (String arg : args) {
+            if (arg.equals("--partial")) {
+                complete = false;
+                continue;
+            }
+            long[] shown = {0};
+            Report report = validator.validate(Path.of(arg), complete, (line, conflict) -> {
+                if (shown[0]++ < 10) {
+                    System.out.println(arg + ":" + line + ": "
+                            + (conflict == null ? "not a grid" : conflict));
+                }
+            });
+            System.out.println(arg + ": " + report);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GridValidatorTest {
+
+    @DisplayName("GIVEN solved, clashing and partial grids, WHEN they are checked, THEN the first "
+            + "repeated digit should be reported with its cell and unit AND empty cells should only "
+            + "fail grids required to be complete")
+    @Test
+    void testCheck() {
+        GridValidator validator = new GridValidator();
+        int[] grid = CandidateEngineTest.parse(CandidateEngineTest.SOLUTION);
+        assertNull(validator.check(grid, true));
+
+        // Cell 1 gets the 5 of cell 0, which row 0 already holds.
+        grid[1] = 5;
+        assertEquals(new GridValidator.Conflict(1, 0, 5), validator.check(grid, true));
+        assertEquals("r1c2: 5 repeated in row 1", validator.check(grid, false).toString());
+
+        int[] puzzle = CandidateEngineTest.parse(SudokuSolverTest.PUZZLE);
+        assertNull(validator.check(puzzle, false));
+        assertEquals(new GridValidator.Conflict(2, -1, 0), validator.check(puzzle, true));
+    }
+
+    @DisplayName("GIVEN a file mixing valid, clashing and malformed lines with CRLF, a line longer "
+            + "than the read buffer and an unterminated last line, WHEN it is validated, THEN every "
+            + "line should be counted once AND problems should be reported with their line numbers")
+    @Test
+    void testValidateFile(@TempDir Path dir) throws IOException {
+        String solution = CandidateEngineTest.SOLUTION;
+        String clash = "55" + solution.substring(2);
+        StringBuilder text = new StringBuilder();
+        text.append(solution).append("\n");
+        text.append(clash).append("\r\n");
+        text.append("\n");
+        text.append("not a grid\n");
+        // Comments after the 81st cell are ignored; this one spans several reads.
+        text.append(solution).append(" ").append("#".repeat(3 << 20)).append("\n");
+        text.append(SudokuSolverTest.PUZZLE).append("\r\n");
+        for (int i = 0; i < 1000; i++) {
+            text.append(solution).append("\n");
+        }
+        text.append(clash);
+        Path file = dir.resolve("grids.txt");
+        Files.writeString(file, text);
+
+        GridValidator validator = new GridValidator();
+        List<String> problems = new ArrayList<>();
+        GridValidator.Report report = validator.validate(file, true,
+                (line, conflict) -> problems.add(line + ": " + conflict));
+        assertEquals(1002, report.valid());
+        assertEquals(3, report.invalid());
+        assertEquals(1, report.malformed());
+        assertEquals(Files.size(file), report.bytes());
+        assertEquals(List.of("2: r1c2: 5 repeated in row 1", "4: null", "6: r1c3 is empty",
+                "1007: r1c2: 5 repeated in row 1"), problems);
+
+        report = validator.validate(file, false, null);
+        assertEquals(1003, report.valid());
+        assertEquals(2, report.invalid());
+    }
+}
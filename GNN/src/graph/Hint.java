@@ -0,0 +1,93 @@
+package graph;
+
+/**
+ * One logical deduction on a Sudoku board, as returned by `SudokuGraph.nextHint()`.  A placement
+ * (a single) puts 'value' in 'cell'; an elimination removes the digits of the mask 'digits' from
+ * the candidates of 'cells'.  'unit' is the unit the deduction was found in (see `SudokuUnits`:
+ * rows 0..8, columns 9..17, boxes 18..26), or -1 for a naked single.
+ */
+public record Hint(Technique technique, int cell, int value, int unit, int digits, int[] cells) {
+
+    /**
+     * Techniques `nextHint()` looks for, cheapest first.
+     */
+    public enum Technique {
+        // A cell with a single candidate left.
+        NAKED_SINGLE("Naked single"),
+        // A digit with a single cell left in a unit.
+        HIDDEN_SINGLE("Hidden single"),
+        // A digit confined to the intersection of a box with a row or column, so it can be removed
+        // from the rest of the other unit.
+        LOCKED_CANDIDATES("Locked candidates"),
+        // Two cells of a unit with the same two candidates, which no other cell of the unit takes.
+        NAKED_PAIR("Naked pair");
+
+        private final String description;
+
+        Technique(String description) {
+            this.description = description;
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    // Placement of 'value' in 'cell'.
+    static Hint placement(Technique technique, int cell, int value, int unit) {
+        return new Hint(technique, cell, value, unit, 0, new int[0]);
+    }
+
+    // Elimination of 'digits' from 'cells'.
+    static Hint elimination(Technique technique, int unit, int digits, int[] cells) {
+        return new Hint(technique, -1, 0, unit, digits, cells);
+    }
+
+    /**
+     * Returns whether the hint fills a cell rather than eliminating candidates.
+     */
+    public boolean isPlacement() {
+        return value != 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(technique.toString()).append(": ");
+        if (isPlacement()) {
+            text.append(cellName(cell)).append(" = ").append(value);
+        } else {
+            text.append("remove ").append(digitList(digits)).append(" from");
+            for (int c : cells) {
+                text.append(' ').append(cellName(c));
+            }
+        }
+        if (unit >= 0) {
+            text.append(" (").append(unitName(unit)).append(')');
+        }
+        return text.toString();
+    }
+
+    // Name of 'cell' as row and column counted from 1, e.g. "r1c3".
+    static String cellName(int cell) {
+        return "r" + (SudokuUnits.row(cell) + 1) + "c" + (SudokuUnits.col(cell) + 1);
+    }
+
+    // Name of classic unit 'unit', e.g. "box 5".
+    static String unitName(int unit) {
+        String kind = unit < 9 ? "row " : unit < 18 ? "column " : "box ";
+        return kind + (unit % 9 + 1);
+    }
+
+    // Digits of 'mask' separated by commas.
+    private static String digitList(int mask) {
+        StringBuilder text = new StringBuilder();
+        for (int rest = mask; rest != 0; rest &= rest - 1) {
+            if (!text.isEmpty()) {
+                text.append(',');
+            }
+            text.append(SudokuUnits.digit(rest));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,238 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Finds the next logical deduction on a classic board, trying techniques cheapest first and
+ * stopping at the first one that applies.  The candidate masks are cached between calls: cells
+ * filled since the last call only clear their digit from their peers, and eliminations returned as
+ * hints stay applied, so successive hints on a board being solved cost a scan of the board each
+ * rather than a recomputation.  The masks are rebuilt when a cell was cleared or changed.
+ */
+class HintFinder {
+
+    private static final SudokuUnits UNITS = SudokuUnits.CLASSIC;
+
+    private final CandidateEngine engine;
+
+    // Board the masks were computed for.
+    private final int[] grid = new int[81];
+
+    // Candidates of each empty cell of 'grid', minus earlier eliminations; 0 for filled cells.
+    private final short[] masks = new short[81];
+
+    // Whether 'grid' and 'masks' have been computed at all.
+    private boolean cached;
+
+    HintFinder(CandidateEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Forget the cached masks and eliminations, e.g. because a different puzzle was loaded.
+     */
+    void invalidate() {
+        cached = false;
+    }
+
+    /**
+     * Return the next deduction on 'board' (81 values, 0 for empty), or null if none of the
+     * techniques applies or the board has a repeated digit or a cell without candidates.  An
+     * elimination returned is remembered, so the next call moves on to another deduction.
+     */
+    Hint next(int[] board) {
+        if (!update(board) || hasDeadCell()) {
+            return null;
+        }
+        Hint hint = nakedSingle();
+        if (hint == null) {
+            hint = hiddenSingle();
+        }
+        if (hint == null) {
+            hint = lockedCandidates();
+        }
+        if (hint == null) {
+            hint = nakedPair();
+        }
+        if (hint != null && !hint.isPlacement()) {
+            for (int cell : hint.cells()) {
+                masks[cell] &= (short) ~hint.digits();
+            }
+        }
+        return hint;
+    }
+
+    /**
+     * Bring 'grid' and 'masks' up to date with 'board'.  Returns false if 'board' repeats a digit
+     * in a unit.
+     */
+    private boolean update(int[] board) {
+        boolean rebuild = !cached;
+        for (int cell = 0; cell < 81 && !rebuild; cell++) {
+            rebuild = grid[cell] != 0 && board[cell] != grid[cell];
+        }
+        if (rebuild) {
+            System.arraycopy(board, 0, grid, 0, 81);
+            cached = engine.candidates(grid, masks);
+            return cached;
+        }
+        for (int cell = 0; cell < 81; cell++) {
+            if (board[cell] != grid[cell]) {
+                int bit = SudokuUnits.bit(board[cell]);
+                grid[cell] = board[cell];
+                masks[cell] = 0;
+                for (int peer : UNITS.peers[cell]) {
+                    if (grid[peer] == board[cell]) {
+                        // A duplicate: rebuilding reports it and keeps 'masks' exact.
+                        cached = false;
+                        return update(board);
+                    }
+                    masks[peer] &= (short) ~bit;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return whether an empty cell has no candidates left, so the board is already wrong and no
+     * technique may be trusted to say otherwise.
+     */
+    private boolean hasDeadCell() {
+        for (int cell = 0; cell < 81; cell++) {
+            if (grid[cell] == 0 && masks[cell] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Hint nakedSingle() {
+        for (int cell = 0; cell < 81; cell++) {
+            int mask = masks[cell];
+            if (grid[cell] == 0 && Integer.bitCount(mask) == 1) {
+                return Hint.placement(Hint.Technique.NAKED_SINGLE, cell, SudokuUnits.digit(mask),
+                        -1);
+            }
+        }
+        return null;
+    }
+
+    private Hint hiddenSingle() {
+        for (int u = 0; u < UNITS.units.length; u++) {
+            int once = 0;
+            int twice = 0;
+            for (int cell : UNITS.units[u]) {
+                twice |= once & masks[cell];
+                once |= masks[cell];
+            }
+            int hidden = once & ~twice;
+            if (hidden != 0) {
+                int bit = hidden & -hidden;
+                for (int cell : UNITS.units[u]) {
+                    if ((masks[cell] & bit) != 0) {
+                        return Hint.placement(Hint.Technique.HIDDEN_SINGLE, cell,
+                                SudokuUnits.digit(bit), u);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Look for a digit whose cells in one unit all lie in a second unit, and which the second unit
+     * still has elsewhere: pointing (box, then row or column) and claiming (row or column, then
+     * box) at once.
+     */
+    private Hint lockedCandidates() {
+        for (int u = 0; u < UNITS.units.length; u++) {
+            int[] unit = UNITS.units[u];
+            for (int bit = 1; bit <= SudokuUnits.ALL_DIGITS; bit <<= 1) {
+                int first = -1;
+                int cellCount = 0;
+                for (int cell : unit) {
+                    if ((masks[cell] & bit) != 0) {
+                        if (first < 0) {
+                            first = cell;
+                        }
+                        cellCount++;
+                    }
+                }
+                if (cellCount < 2) {
+                    continue;
+                }
+                for (int other : UNITS.unitsOf[first]) {
+                    if (other != u && containsAll(other, unit, bit)) {
+                        int[] cells = outside(other, u, bit);
+                        if (cells.length > 0) {
+                            return Hint.elimination(Hint.Technique.LOCKED_CANDIDATES, u, bit,
+                                    cells);
+                        }
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private Hint nakedPair() {
+        for (int u = 0; u < UNITS.units.length; u++) {
+            int[] unit = UNITS.units[u];
+            for (int i = 0; i < unit.length; i++) {
+                int pair = masks[unit[i]];
+                if (Integer.bitCount(pair) != 2) {
+                    continue;
+                }
+                for (int j = i + 1; j < unit.length; j++) {
+                    if (masks[unit[j]] == pair) {
+                        int[] cells = new int[unit.length];
+                        int count = 0;
+                        for (int cell : unit) {
+                            if (cell != unit[i] && cell != unit[j] && (masks[cell] & pair) != 0) {
+                                cells[count++] = cell;
+                            }
+                        }
+                        if (count > 0) {
+                            return Hint.elimination(Hint.Technique.NAKED_PAIR, u, pair,
+                                    Arrays.copyOf(cells, count));
+                        }
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    // Whether every cell of 'cells' that has candidate 'bit' belongs to unit 'u'.
+    private boolean containsAll(int u, int[] cells, int bit) {
+        for (int cell : cells) {
+            if ((masks[cell] & bit) != 0 && !inUnit(cell, u)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Cells of unit 'u' outside unit 'except' that have candidate 'bit'.
+    private int[] outside(int u, int except, int bit) {
+        int[] unit = UNITS.units[u];
+        int[] cells = new int[unit.length];
+        int count = 0;
+        for (int cell : unit) {
+            if ((masks[cell] & bit) != 0 && !inUnit(cell, except)) {
+                cells[count++] = cell;
+            }
+        }
+        return Arrays.copyOf(cells, count);
+    }
+
+    private static boolean inUnit(int cell, int u) {
+        for (int v : UNITS.unitsOf[cell]) {
+            if (v == u) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
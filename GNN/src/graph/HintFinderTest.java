@@ -0,0 +1,91 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.EnumSet;
+import java.util.Set;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class HintFinderTest {
+
+    // A harder puzzle with a unique solution.
+    static final String NYT_HARD =
+            ".5.8....64.....2.56..........2...1..7..9.64.........5.2.95..73.....1...4.3..8....";
+
+    /**
+     * Apply hints to 'puzzle' until none is left, checking each against 'solution', and return the
+     * techniques used.
+     */
+    static Set<Hint.Technique> followHints(int[] puzzle, int[] solution) {
+        SudokuGraph s = SudokuGraph.fromGrid(puzzle);
+        Set<Hint.Technique> used = EnumSet.noneOf(Hint.Technique.class);
+        for (Hint hint = s.nextHint(); hint != null; hint = s.nextHint()) {
+            used.add(hint.technique());
+            if (hint.isPlacement()) {
+                assertEquals(solution[hint.cell()], hint.value(), hint.toString());
+            } else {
+                assertTrue(hint.cells().length > 0);
+                for (int cell : hint.cells()) {
+                    assertEquals(0, SudokuUnits.bit(solution[cell]) & hint.digits(), hint.toString());
+                }
+            }
+            s.applyHint(hint);
+        }
+        return used;
+    }
+
+    @DisplayName("WHEN the hints of an easy puzzle are applied one after another, THEN every "
+            + "placement should match the solution AND the board should end up solved")
+    @Test
+    void testHintsSolveEasyPuzzle() {
+        int[] solution = CandidateEngineTest.parse(CandidateEngineTest.SOLUTION);
+        int[] puzzle = CandidateEngineTest.parse(SudokuSolverTest.PUZZLE);
+        Set<Hint.Technique> used = followHints(puzzle, solution);
+        assertTrue(used.contains(Hint.Technique.NAKED_SINGLE));
+
+        SudokuGraph s = SudokuGraph.fromGrid(puzzle);
+        Hint hint;
+        while ((hint = s.nextHint()) != null) {
+            s.applyHint(hint);
+        }
+        assertArrayEquals(solution, s.toGrid());
+    }
+
+    @DisplayName("WHEN hints are followed on a harder puzzle, THEN eliminations should never remove "
+            + "a solution digit AND an empty board or a contradictory board should give no hint")
+    @Test
+    void testEliminationsAreSound() {
+        int[] puzzle = CandidateEngineTest.parse(NYT_HARD);
+        SudokuSolver solver = new SudokuSolver();
+        assertEquals(SolveResult.Status.SOLVED, solver.load(puzzle));
+        Set<Hint.Technique> used = followHints(puzzle, solver.solution());
+        assertTrue(used.contains(Hint.Technique.HIDDEN_SINGLE));
+
+        assertNull(SudokuGraph.fromGrid(new int[81]).nextHint());
+        int[] clash = new int[81];
+        clash[0] = 5;
+        clash[1] = 5;
+        assertNull(SudokuGraph.fromGrid(clash).nextHint());
+    }
+
+    @DisplayName("GIVEN a board without repeated digits whose first cell has no candidate left, "
+            + "WHEN a hint is asked for, THEN there should be none, even though other techniques "
+            + "would still find deductions elsewhere")
+    @Test
+    void testCellWithoutCandidates() {
+        int[] board = new int[81];
+        for (int col = 1; col < 9; col++) {
+            board[col] = col;
+        }
+        board[9] = 9;
+        assertNull(SudokuGraph.fromGrid(board).nextHint());
+
+        // The same board reached by filling a cell after the masks were cached.
+        HintFinder finder = new HintFinder(CandidateEngine.create());
+        board[9] = 0;
+        assertNotNull(finder.next(board));
+        board[9] = 9;
+        assertNull(finder.next(board));
+    }
+}
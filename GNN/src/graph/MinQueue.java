@@ -13,13 +13,25 @@ import java.util.NoSuchElementException;
 public class MinQueue<KeyType> implements PriorityQueue<KeyType> {
 
     /**
-     * Pairs an element `key` with its associated priority `priority`.
+     * Pairs an element `key` with its associated priority `priority`.  The priority is mutable so
+     * that `update()` can change it in place instead of allocating a new entry.
      */
-    private record Entry<KeyType>(KeyType key, int priority) {
-        // Note: This is equivalent to declaring a static nested class with fields `key` and
-        //  `priority` and a corresponding constructor and observers, overriding `equals()` and
-        //  `hashCode()` to depend on the fields, and overriding `toString()` to print their values.
-        // https://docs.oracle.com/en/java/javase/17/language/records.html
+    private static final class Entry<KeyType> {
+        private final KeyType key;
+        private int priority;
+
+        Entry(KeyType key, int priority) {
+            this.key = key;
+            this.priority = priority;
+        }
+
+        KeyType key() {
+            return key;
+        }
+
+        int priority() {
+            return priority;
+        }
     }
 
     /**
@@ -186,8 +198,9 @@ public class MinQueue<KeyType> implements PriorityQueue<KeyType> {
     private void update(KeyType key, int priority) {
         assert index.containsKey(key);
         // update priority in index and heap
-        int priorityOld = heap.get(index.get(key)).priority();
-        heap.set(index.get(key), new Entry<KeyType>(key, priority));
+        Entry<KeyType> entry = heap.get(index.get(key));
+        int priorityOld = entry.priority();
+        entry.priority = priority;
 
         // if increase priority: bubble-down
         if (priorityOld < priority) {
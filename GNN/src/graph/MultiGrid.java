@@ -0,0 +1,172 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Layout of an overlapping multi-grid puzzle such as Samurai Sudoku: several classic 9-by-9 grids
+ * placed on a larger plane, sharing the cells where they overlap.  The board numbers the cells of
+ * the plane covered by some grid in reading order, and `units` holds the rows, columns and boxes
+ * of every grid over those cells, a box shared by two grids appearing once.  A shared cell is a
+ * single cell of the board, so a digit placed or ruled out there holds in every grid containing
+ * it, and `SudokuSolver(units)` solves the whole board as one puzzle.
+ *
+ * Grids must be placed at multiples of 3 rows and columns, so that overlapping grids share whole
+ * boxes.  Instances are immutable and may be shared between threads.
+ */
+public final class MultiGrid {
+
+    /**
+     * Samurai Sudoku: four grids at the corners of a 21-by-21 plane and one in the middle,
+     * sharing one corner box with each, in the order top left, top right, middle, bottom left,
+     * bottom right.
+     */
+    public static final MultiGrid SAMURAI =
+            new MultiGrid(new int[][]{{0, 0}, {0, 12}, {6, 6}, {12, 0}, {12, 12}});
+
+    // Units of the board.
+    public final SudokuUnits units;
+
+    // cells[g][i] is the board cell holding cell i of grid g.
+    private final int[][] cells;
+
+    // gridUnits[g] lists the 27 units of grid g: its rows, columns and boxes.
+    private final int[][] gridUnits;
+
+    /**
+     * Create the layout of grids whose top left cells are at the (row, column) pairs 'origins'
+     * of the plane.
+     */
+    public MultiGrid(int[][] origins) {
+        int rows = 0;
+        int columns = 0;
+        for (int[] origin : origins) {
+            if (origin[0] < 0 || origin[1] < 0 || origin[0] % 3 != 0 || origin[1] % 3 != 0) {
+                throw new IllegalArgumentException("grids must be placed at non-negative "
+                        + "multiples of 3: " + Arrays.toString(origin));
+            }
+            rows = Math.max(rows, origin[0] + 9);
+            columns = Math.max(columns, origin[1] + 9);
+        }
+        // Board cell of each plane position, -1 where no grid covers it.
+        int[] index = new int[rows * columns];
+        Arrays.fill(index, -1);
+        for (int[] origin : origins) {
+            for (int i = 0; i < 81; i++) {
+                index[(origin[0] + SudokuUnits.row(i)) * columns + origin[1] + SudokuUnits.col(i)]
+                        = 0;
+            }
+        }
+        int count = 0;
+        for (int p = 0; p < index.length; p++) {
+            if (index[p] == 0) {
+                index[p] = count++;
+            }
+        }
+        cells = new int[origins.length][81];
+        for (int g = 0; g < origins.length; g++) {
+            for (int i = 0; i < 81; i++) {
+                cells[g][i] = index[(origins[g][0] + SudokuUnits.row(i)) * columns + origins[g][1]
+                        + SudokuUnits.col(i)];
+            }
+        }
+        // Translate the classic units into each grid, keeping one copy of each shared unit.
+        List<int[]> all = new ArrayList<>();
+        Map<List<Integer>, Integer> seen = new HashMap<>();
+        gridUnits = new int[origins.length][];
+        for (int g = 0; g < origins.length; g++) {
+            int[][] classic = SudokuUnits.CLASSIC.units;
+            gridUnits[g] = new int[classic.length];
+            for (int u = 0; u < classic.length; u++) {
+                int[] unit = new int[classic[u].length];
+                List<Integer> key = new ArrayList<>(unit.length);
+                for (int i = 0; i < unit.length; i++) {
+                    unit[i] = cells[g][classic[u][i]];
+                    key.add(unit[i]);
+                }
+                Integer existing = seen.putIfAbsent(key, all.size());
+                if (existing == null) {
+                    gridUnits[g][u] = all.size();
+                    all.add(unit);
+                } else {
+                    gridUnits[g][u] = existing;
+                }
+            }
+        }
+        units = new SudokuUnits(count, all.toArray(new int[0][]));
+    }
+
+    /**
+     * Returns the number of grids.
+     */
+    public int grids() {
+        return cells.length;
+    }
+
+    /**
+     * Returns the board cell holding cell 'i' (0..80, in reading order) of grid 'grid'.
+     */
+    public int cell(int grid, int i) {
+        return cells[grid][i];
+    }
+
+    /**
+     * Returns the units of grid 'grid'.
+     */
+    int[] gridUnits(int grid) {
+        return gridUnits[grid];
+    }
+
+    /**
+     * Return the board described by 'lines', one grid per line in one-line format (see
+     * `PuzzleIO`), in the order of the grids; or null if there are not enough lines, a line is
+     * not a grid, or two grids give a shared cell different values.
+     */
+    public int[] parse(List<String> lines) {
+        if (lines.size() < grids()) {
+            return null;
+        }
+        int[] board = new int[units.cells];
+        for (int g = 0; g < grids(); g++) {
+            int[] grid = PuzzleIO.parse(lines.get(g).strip());
+            if (grid == null) {
+                return null;
+            }
+            for (int i = 0; i < 81; i++) {
+                int cell = cells[g][i];
+                if (grid[i] != 0) {
+                    if (board[cell] != 0 && board[cell] != grid[i]) {
+                        return null;
+                    }
+                    board[cell] = grid[i];
+                }
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Return the 81 values of grid 'grid' of 'board'.
+     */
+    public int[] grid(int[] board, int grid) {
+        int[] values = new int[81];
+        for (int i = 0; i < 81; i++) {
+            values[i] = board[cells[grid][i]];
+        }
+        return values;
+    }
+
+    /**
+     * Return 'board' in the format parse() reads: one line per grid.
+     */
+    public String format(int[] board) {
+        StringBuilder text = new StringBuilder();
+        for (int g = 0; g < grids(); g++) {
+            text.append(PuzzleIO.format(grid(board, g))).append('\n');
+        }
+        return text.toString();
+    }
+}
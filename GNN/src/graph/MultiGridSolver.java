@@ -0,0 +1,282 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Solves overlapping multi-grid puzzles (see `MultiGrid`) in two phases.
+ *
+ * First, each grid propagates on its own task: it removes the digits of solved cells from the
+ * rest of their units, and fills in hidden singles, over the grid's 27 units until nothing
+ * changes.  All grids work on one array of candidate masks, so a digit ruled out at a shared cell
+ * by one grid is seen by the grids overlapping it.  Every change only clears bits, with a
+ * compare-and-set, and each is justified by bits that can only be cleared further, so grids
+ * running at the same time never undo or contradict each other's work.  Grids are run in rounds
+ * until a round in which no grid changed anything: the fixpoint of all grids together.
+ *
+ * Then the cells solved by propagation become the givens of a `SudokuSolver` over the whole
+ * board, which searches the rest with the same units, so a branch in one grid is propagated
+ * into its neighbours at every node rather than reconciled after the fact.
+ *
+ * Not thread-safe; the executor runs one task per grid and may be shared.
+ */
+public final class MultiGridSolver {
+
+    // Outcomes of one grid's propagation.
+    private static final int STABLE = 0;
+    private static final int CHANGED = 1;
+    private static final int CONTRADICTION = 2;
+
+    private final MultiGrid layout;
+
+    // Runs the grids' propagation, or null to run it on the calling thread.
+    private final ExecutorService pool;
+
+    private final SudokuSolver solver;
+
+    // Rounds of the last propagation.
+    private int rounds;
+
+    /**
+     * Create a solver for puzzles of 'layout' that propagates the grids on 'pool', or on the
+     * calling thread if 'pool' is null.
+     */
+    public MultiGridSolver(MultiGrid layout, ExecutorService pool) {
+        this.layout = layout;
+        this.pool = pool;
+        solver = new SudokuSolver(layout.units);
+    }
+
+    /**
+     * Returns the number of rounds of grid propagation of the last solve.
+     */
+    public int rounds() {
+        return rounds;
+    }
+
+    /**
+     * Solve 'board' (one value per cell of the layout, 0 for empty).  The result holds the
+     * solution, or the board as far as it got, and the search nodes after propagation.  The
+     * solve is CANCELLED if the thread is interrupted while grids propagate.
+     */
+    public SolveResult solve(int[] board) {
+        SudokuUnits units = layout.units;
+        AtomicIntegerArray masks = new AtomicIntegerArray(units.cells);
+        for (int cell = 0; cell < units.cells; cell++) {
+            int value = board[cell];
+            masks.set(cell, value == 0 ? SudokuUnits.ALL_DIGITS : SudokuUnits.bit(value));
+        }
+        boolean consistent;
+        try {
+            consistent = propagate(masks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new SolveResult(SolveResult.Status.CANCELLED, 0, board.clone());
+        }
+        int[] reduced = new int[units.cells];
+        for (int cell = 0; cell < units.cells; cell++) {
+            int mask = masks.get(cell);
+            if (mask != 0 && (mask & (mask - 1)) == 0) {
+                reduced[cell] = SudokuUnits.digit(mask);
+            }
+        }
+        if (!consistent) {
+            return new SolveResult(SolveResult.Status.UNSOLVABLE, 0, board.clone());
+        }
+        solver.load(reduced);
+        return solver.result();
+    }
+
+    /**
+     * Propagate every grid over 'masks' in rounds until none changes.  Returns false if a grid
+     * found a contradiction.
+     */
+    boolean propagate(AtomicIntegerArray masks) throws InterruptedException {
+        List<Callable<Integer>> tasks = new ArrayList<>(layout.grids());
+        for (int g = 0; g < layout.grids(); g++) {
+            int grid = g;
+            tasks.add(() -> propagateGrid(grid, masks));
+        }
+        rounds = 0;
+        boolean changed = true;
+        while (changed) {
+            rounds++;
+            changed = false;
+            if (pool == null) {
+                for (int g = 0; g < layout.grids(); g++) {
+                    int outcome = propagateGrid(g, masks);
+                    if (outcome == CONTRADICTION) {
+                        return false;
+                    }
+                    changed |= outcome == CHANGED;
+                }
+                continue;
+            }
+            for (Future<Integer> future : pool.invokeAll(tasks)) {
+                int outcome;
+                try {
+                    outcome = future.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("grid propagation failed", e.getCause());
+                }
+                if (outcome == CONTRADICTION) {
+                    return false;
+                }
+                changed |= outcome == CHANGED;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Apply naked and hidden singles in the units of grid 'g' until they change nothing, and
+     * return whether they changed something, or found a contradiction.
+     */
+    private int propagateGrid(int g, AtomicIntegerArray masks) {
+        int[][] unitCells = layout.units.units;
+        int outcome = STABLE;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int u : layout.gridUnits(g)) {
+                int[] cells = unitCells[u];
+                // Digits of the solved cells of the unit, which no other cell of it may take.
+                int solved = 0;
+                for (int cell : cells) {
+                    int mask = masks.get(cell);
+                    if (mask == 0) {
+                        return CONTRADICTION;
+                    }
+                    if ((mask & (mask - 1)) == 0) {
+                        if ((solved & mask) != 0) {
+                            return CONTRADICTION;
+                        }
+                        solved |= mask;
+                    }
+                }
+                int once = 0;
+                int twice = 0;
+                for (int cell : cells) {
+                    int mask = masks.get(cell);
+                    if ((mask & (mask - 1)) != 0) {
+                        int left = clear(masks, cell, solved);
+                        if (left == 0) {
+                            return CONTRADICTION;
+                        }
+                        if (left != mask) {
+                            changed = true;
+                        }
+                        mask = left;
+                    }
+                    twice |= once & mask;
+                    once |= mask;
+                }
+                if (once != SudokuUnits.ALL_DIGITS) {
+                    return CONTRADICTION;
+                }
+                // Digits with one place left in the unit go there.
+                for (int hidden = once & ~twice & ~solved; hidden != 0; hidden &= hidden - 1) {
+                    int bit = hidden & -hidden;
+                    for (int cell : cells) {
+                        int mask = masks.get(cell);
+                        if ((mask & bit) != 0) {
+                            if (mask != bit) {
+                                clear(masks, cell, ~bit);
+                                changed = true;
+                            }
+                            break;
+                        }
+                    }
+                }
+            }
+            if (changed) {
+                outcome = CHANGED;
+            }
+        }
+        return outcome;
+    }
+
+    // Clear the bits of 'bits' from the mask of 'cell' and return the mask left.
+    private static int clear(AtomicIntegerArray masks, int cell, int bits) {
+        while (true) {
+            int mask = masks.get(cell);
+            int left = mask & ~bits;
+            if (left == mask || masks.compareAndSet(cell, mask, left)) {
+                return left;
+            }
+        }
+    }
+
+    /**
+     * Compare solving random Samurai puzzles with `SudokuSolver` alone and with grid
+     * propagation first, on the calling thread and on one thread per grid.  Arguments:
+     * [puzzles [percent of cells given]], default 200 and 35.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int givens = args.length > 1 ? Integer.parseInt(args[1]) : 35;
+        MultiGrid layout = MultiGrid.SAMURAI;
+        List<int[]> puzzles = randomPuzzles(layout, count, givens, 1);
+        ExecutorService pool = Executors.newFixedThreadPool(layout.grids());
+        try {
+            SudokuSolver whole = new SudokuSolver(layout.units);
+            MultiGridSolver sequential = new MultiGridSolver(layout, null);
+            MultiGridSolver parallel = new MultiGridSolver(layout, pool);
+            for (int pass = 0; pass < 3; pass++) {
+                long start = System.nanoTime();
+                long nodes = 0;
+                for (int[] puzzle : puzzles) {
+                    whole.load(puzzle);
+                    nodes += whole.nodes();
+                }
+                report("SudokuSolver", count, nodes, System.nanoTime() - start);
+                for (MultiGridSolver solver : new MultiGridSolver[]{sequential, parallel}) {
+                    start = System.nanoTime();
+                    nodes = 0;
+                    for (int[] puzzle : puzzles) {
+                        nodes += solver.solve(puzzle).nodes();
+                    }
+                    report(solver == parallel ? "grids on " + layout.grids() + " threads"
+                            : "grids on 1 thread", count, nodes, System.nanoTime() - start);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void report(String name, int count, long nodes, long nanos) {
+        System.out.printf("%-20s %8.1f us per puzzle, %d nodes%n", name, nanos / 1e3 / count,
+                nodes);
+    }
+
+    /**
+     * Return 'count' puzzles of 'layout' made by keeping about 'percent'% of the cells of random
+     * solutions.  They may have several solutions.
+     */
+    static List<int[]> randomPuzzles(MultiGrid layout, int count, int percent, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        SudokuSolver generator = new SudokuSolver(layout.units);
+        generator.setValueOrder(SudokuSolver.ValueOrder.RANDOM);
+        List<int[]> puzzles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            generator.setSeed(random.nextLong());
+            generator.load(new int[layout.units.cells]);
+            int[] puzzle = generator.solution();
+            for (int cell = 0; cell < puzzle.length; cell++) {
+                if (random.nextInt(100) >= percent) {
+                    puzzle[cell] = 0;
+                }
+            }
+            puzzles.add(puzzle);
+        }
+        return puzzles;
+    }
+}
@@ -0,0 +1,105 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class MultiGridSolverTest {
+
+    @DisplayName("GIVEN the Samurai layout, WHEN its tables are built, THEN it should have 369 "
+            + "cells and 131 units, with each corner grid sharing one box with the middle grid "
+            + "AND boards should read back as written")
+    @Test
+    void testSamuraiLayout() {
+        MultiGrid samurai = MultiGrid.SAMURAI;
+        assertEquals(5, samurai.grids());
+        assertEquals(369, samurai.units.cells);
+        assertEquals(5 * 27 - 4, samurai.units.units.length);
+        // Bottom right box of the top left grid is the top left box of the middle grid, etc.
+        assertEquals(samurai.cell(0, 60), samurai.cell(2, 0));
+        assertEquals(samurai.cell(0, 80), samurai.cell(2, 20));
+        assertEquals(samurai.cell(1, 54), samurai.cell(2, 6));
+        assertEquals(samurai.cell(3, 6), samurai.cell(2, 54));
+        assertEquals(samurai.cell(4, 0), samurai.cell(2, 60));
+        assertNotEquals(samurai.cell(0, 0), samurai.cell(2, 0));
+
+        int[] board = MultiGridSolver.randomPuzzles(samurai, 1, 40, 3).get(0);
+        List<String> lines = List.of(samurai.format(board).split("\n"));
+        assertEquals(5, lines.size());
+        assertArrayEquals(board, samurai.parse(lines));
+
+        // The middle grid contradicting the top left one at a shared cell.
+        String[] conflicting = lines.toArray(new String[0]);
+        conflicting[0] = conflicting[0].substring(0, 60) + "1" + conflicting[0].substring(61);
+        conflicting[2] = "2" + conflicting[2].substring(1);
+        assertNull(samurai.parse(List.of(conflicting)));
+        assertNull(samurai.parse(lines.subList(0, 4)));
+        assertThrows(IllegalArgumentException.class, () -> new MultiGrid(new int[][]{{0, 4}}));
+    }
+
+    @DisplayName("GIVEN random Samurai puzzles, WHEN they are solved with the grids propagating "
+            + "on one thread and on one thread per grid, THEN both should agree with SudokuSolver "
+            + "over the whole board AND every grid of every solution should be a valid Sudoku")
+    @Test
+    void testSolve() throws InterruptedException {
+        MultiGrid samurai = MultiGrid.SAMURAI;
+        List<int[]> puzzles = MultiGridSolver.randomPuzzles(samurai, 30, 35, 5);
+        ExecutorService pool = Executors.newFixedThreadPool(samurai.grids());
+        try {
+            SudokuSolver whole = new SudokuSolver(samurai.units);
+            CandidateEngine engine = CandidateEngine.create();
+            for (MultiGridSolver solver : new MultiGridSolver[]{
+                    new MultiGridSolver(samurai, null), new MultiGridSolver(samurai, pool)}) {
+                for (int[] puzzle : puzzles) {
+                    SolveResult result = solver.solve(puzzle);
+                    assertEquals(whole.load(puzzle), result.status());
+                    assertEquals(SolveResult.Status.SOLVED, result.status());
+                    assertTrue(solver.rounds() >= 1);
+                    int[] solution = result.grid();
+                    for (int cell = 0; cell < puzzle.length; cell++) {
+                        assertTrue(puzzle[cell] == 0 || puzzle[cell] == solution[cell]);
+                    }
+                    for (int g = 0; g < samurai.grids(); g++) {
+                        assertTrue(engine.isValid(samurai.grid(solution, g), true),
+                                Arrays.toString(samurai.grid(solution, g)));
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @DisplayName("GIVEN a Samurai solution with cells cleared, WHEN it is solved, THEN grid "
+            + "propagation alone should complete it AND a given clashing with a peer in another "
+            + "grid should be found unsolvable without searching")
+    @Test
+    void testPropagation() {
+        MultiGrid samurai = MultiGrid.SAMURAI;
+        int[] solution = MultiGridSolver.randomPuzzles(samurai, 1, 100, 7).get(0);
+        int[] puzzle = solution.clone();
+        for (int cell = 0; cell < puzzle.length; cell += 5) {
+            puzzle[cell] = 0;
+        }
+        MultiGridSolver solver = new MultiGridSolver(samurai, null);
+        SolveResult result = solver.solve(puzzle);
+        assertEquals(SolveResult.Status.SOLVED, result.status());
+        assertEquals(0, result.nodes());
+        assertArrayEquals(solution, result.grid());
+        assertTrue(solver.rounds() >= 2);
+
+        // Cell 3 of the middle grid's top row gets the digit of cell 0 of that row, a cell of the
+        // box it shares with the top left grid.
+        int[] clash = new int[samurai.units.cells];
+        clash[samurai.cell(2, 0)] = 5;
+        clash[samurai.cell(2, 3)] = 5;
+        result = solver.solve(clash);
+        assertEquals(SolveResult.Status.UNSOLVABLE, result.status());
+        assertEquals(0, result.nodes());
+    }
+}
@@ -0,0 +1,238 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Races several solve strategies on one puzzle and returns the first definitive answer (solved or
+ * proven unsolvable).  Each strategy solves its own `SudokuGraph` copy of the puzzle on a thread
+ * of the portfolio's pool; once one answers, the others are cancelled by interrupting their
+ * threads, which every strategy notices within `SudokuGraph.MONITOR_INTERVAL` nodes.
+ *
+ * The pool runs `parallelism` strategies at a time and starts the rest as threads free up, so with
+ * fewer threads than strategies the start order matters.  In adaptive mode the portfolio learns
+ * that order per puzzle feature (the number of givens, in four bands): it keeps a moving average
+ * of each strategy's time to win in each band and starts the fastest first.  Strategies not yet
+ * measured in a band count as fastest, so each gets tried; a strategy that lost a race it was
+ * running in is charged at least twice the winner's time.
+ *
+ * Each race is recorded in `SolveMetrics.global()` once, under the strategy that gave the answer,
+ * with the race's own time; the strategies it cancelled are not recorded.
+ *
+ * Thread-safe: several puzzles may be solved at once, sharing the pool.  Close the portfolio to
+ * stop its threads.
+ */
+public class PortfolioSolver implements AutoCloseable {
+
+    /**
+     * Answer of a race: the strategy that gave it, its result and how long that strategy ran, in
+     * microseconds.  'winner' is null if no strategy answered definitively, in which case 'result'
+     * is the best of the TIMEOUT or CANCELLED results.
+     */
+    public record Outcome(SolveStrategy winner, SolveResult result, long micros) {
+    }
+
+    // Number of bands of givens used as the feature of a puzzle.
+    private static final int BANDS = 4;
+
+    // Weight of a new time in the moving averages.
+    private static final double ALPHA = 0.2;
+
+    // Start time of a strategy that has not started.  System.nanoTime() may return any value,
+    // including 0, but in practice never this one.
+    private static final long NOT_STARTED = Long.MIN_VALUE;
+
+    private final List<SolveStrategy> strategies;
+    private final int parallelism;
+    private final boolean adaptive;
+    private final ExecutorService executor;
+
+    // Number of races won by each strategy, indexed by SolveStrategy.ordinal().
+    private final AtomicLongArray wins = new AtomicLongArray(SolveStrategy.values().length);
+
+    // estimates[band * strategies.size() + i]: average micros for strategies.get(i) to win a
+    // puzzle of that band, 0 if unknown.  Guarded by 'this'.
+    private final double[] estimates;
+
+    /**
+     * Create a portfolio racing 'strategies', at most 'parallelism' at a time.  If 'adaptive', the
+     * order strategies start in is learned per band of givens; otherwise it is the order of
+     * 'strategies'.
+     */
+    public PortfolioSolver(List<SolveStrategy> strategies, int parallelism, boolean adaptive) {
+        this.strategies = List.copyOf(strategies);
+        this.parallelism = parallelism;
+        this.adaptive = adaptive;
+        estimates = new double[BANDS * strategies.size()];
+        executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "portfolio");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Race the strategies on 'puzzle' (81 values, 0 for empty) within 'budget', which applies to
+     * each strategy separately, and return the first definitive answer.  Throws
+     * InterruptedException if the calling thread is interrupted while waiting, after cancelling
+     * the race.
+     */
+    public Outcome solve(int[] puzzle, SolveBudget budget) throws InterruptedException {
+        long raceStart = System.nanoTime();
+        int band = band(puzzle);
+        List<Integer> order = startOrder(band);
+        // Start time of each strategy in System.nanoTime(), NOT_STARTED if it has not started.
+        AtomicLongArray started = new AtomicLongArray(strategies.size());
+        for (int i = 0; i < strategies.size(); i++) {
+            started.set(i, NOT_STARTED);
+        }
+        CompletionService<Outcome> race = new ExecutorCompletionService<>(executor);
+        List<Future<Outcome>> futures = new ArrayList<>(order.size());
+        for (int i : order) {
+            SolveStrategy strategy = strategies.get(i);
+            futures.add(race.submit(() -> {
+                long start = System.nanoTime();
+                started.set(i, start);
+                SudokuGraph graph = SudokuGraph.fromGrid(puzzle);
+                SolveResult result = graph.solveUnrecorded(strategy, budget);
+                return new Outcome(strategy, result, (System.nanoTime() - start) / 1000);
+            }));
+        }
+
+        Outcome answer = null;
+        // Strategy of 'answer' when no strategy answered definitively.
+        SolveStrategy best = null;
+        ExecutionException failure = null;
+        try {
+            for (int n = 0; n < futures.size(); n++) {
+                Outcome outcome;
+                try {
+                    outcome = race.take().get();
+                } catch (ExecutionException e) {
+                    failure = e;
+                    continue;
+                }
+                SolveResult.Status status = outcome.result().status();
+                if (status == SolveResult.Status.SOLVED
+                        || status == SolveResult.Status.UNSOLVABLE) {
+                    answer = outcome;
+                    break;
+                }
+                if (answer == null || filled(outcome) > filled(answer)) {
+                    answer = new Outcome(null, outcome.result(), outcome.micros());
+                    best = outcome.winner();
+                }
+            }
+        } finally {
+            for (Future<Outcome> future : futures) {
+                future.cancel(true);
+            }
+        }
+        if (answer == null) {
+            throw new IllegalStateException("every strategy failed", failure.getCause());
+        }
+        SolveMetrics.global().record(answer.winner() != null ? answer.winner() : best,
+                answer.result().status(), answer.result().nodes(), System.nanoTime() - raceStart);
+        if (answer.winner() != null) {
+            wins.incrementAndGet(answer.winner().ordinal());
+            record(band, answer, started);
+        }
+        return answer;
+    }
+
+    /**
+     * Returns the number of races 'strategy' has won.
+     */
+    public long wins(SolveStrategy strategy) {
+        return wins.get(strategy.ordinal());
+    }
+
+    /**
+     * Returns the strategies in the order they would be started for 'puzzle'.
+     */
+    public List<SolveStrategy> startOrder(int[] puzzle) {
+        List<SolveStrategy> order = new ArrayList<>();
+        for (int i : startOrder(band(puzzle))) {
+            order.add(strategies.get(i));
+        }
+        return order;
+    }
+
+    /**
+     * Returns the number of strategies run at a time.
+     */
+    public int parallelism() {
+        return parallelism;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    // Indices into 'strategies' in start order for puzzles of 'band'.
+    private synchronized List<Integer> startOrder(int band) {
+        List<Integer> order = new ArrayList<>(strategies.size());
+        for (int i = 0; i < strategies.size(); i++) {
+            order.add(i);
+        }
+        if (adaptive) {
+            int base = band * strategies.size();
+            // Stable, so unmeasured strategies (estimate 0) keep their given order at the front.
+            order.sort(Comparator.comparingDouble(i -> estimates[base + i]));
+        }
+        return order;
+    }
+
+    // Update the estimates of 'band' after 'answer' won a race, given the start times of the
+    // strategies.  Only strategies that started before the winner finished lost to it: one picked
+    // up by a freed thread just before being cancelled never really competed.
+    private synchronized void record(int band, Outcome answer, AtomicLongArray started) {
+        int base = band * strategies.size();
+        int winner = strategies.indexOf(answer.winner());
+        update(base + winner, Math.max(1, answer.micros()));
+        long finished = started.get(winner) + answer.micros() * 1000;
+        for (int i = 0; i < strategies.size(); i++) {
+            long start = started.get(i);
+            // Times from System.nanoTime() may wrap around, so only their difference is ordered.
+            if (i != winner && start != NOT_STARTED && start - finished < 0) {
+                update(base + i, Math.max(estimates[base + i], 2.0 * Math.max(1, answer.micros())));
+            }
+        }
+    }
+
+    private void update(int slot, double micros) {
+        double old = estimates[slot];
+        estimates[slot] = old == 0 ? micros : (1 - ALPHA) * old + ALPHA * micros;
+    }
+
+    // Band of 'puzzle' by number of givens: up to 21, 22..25, 26..30, and more.
+    static int band(int[] puzzle) {
+        int givens = 0;
+        for (int value : puzzle) {
+            if (value != 0) {
+                givens++;
+            }
+        }
+        return givens <= 21 ? 0 : givens <= 25 ? 1 : givens <= 30 ? 2 : 3;
+    }
+
+    // Number of filled cells of the board of 'outcome'.
+    private static int filled(Outcome outcome) {
+        int filled = 0;
+        for (int value : outcome.result().grid()) {
+            if (value != 0) {
+                filled++;
+            }
+        }
+        return filled;
+    }
+}
@@ -0,0 +1,61 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class PortfolioSolverTest {
+
+    @DisplayName("GIVEN every strategy racing at once, WHEN a puzzle is solved, THEN the first answer "
+            + "should be a valid solution AND its strategy should be recorded as the winner AND "
+            + "the race should count as one solve in the global metrics")
+    @Test
+    void testRace() throws InterruptedException {
+        List<SolveStrategy> all = List.of(SolveStrategy.values());
+        try (PortfolioSolver portfolio = new PortfolioSolver(all, all.size(), false)) {
+            int[] puzzle = CandidateEngineTest.parse(HintFinderTest.NYT_HARD);
+            SolveMetrics metrics = SolveMetrics.global();
+            long solves = metrics.getSolves();
+            long cancelled = metrics.getCancelled();
+            PortfolioSolver.Outcome outcome =
+                    portfolio.solve(puzzle, SolveBudget.of(Duration.ofSeconds(30)));
+            assertEquals(solves + 1, metrics.getSolves());
+            assertEquals(cancelled, metrics.getCancelled());
+            assertEquals(SolveResult.Status.SOLVED, outcome.result().status());
+            assertTrue(CandidateEngine.create().isValid(outcome.result().grid(), true));
+            assertNotNull(outcome.winner());
+            assertEquals(1, portfolio.wins(outcome.winner()));
+
+            int[] clash = new int[81];
+            clash[0] = 3;
+            clash[80] = 3;
+            clash[8] = 3;
+            outcome = portfolio.solve(clash, SolveBudget.UNLIMITED);
+            assertEquals(SolveResult.Status.UNSOLVABLE, outcome.result().status());
+        }
+    }
+
+    @DisplayName("GIVEN one thread and an adaptive portfolio, WHEN puzzles of one band are solved "
+            + "repeatedly, THEN every strategy should be tried first once AND the fastest should "
+            + "then be started first")
+    @Test
+    void testAdaptiveOrder() throws InterruptedException {
+        List<SolveStrategy> strategies = List.of(SolveStrategy.SOLVER_B, SolveStrategy.BITMASK);
+        try (PortfolioSolver portfolio = new PortfolioSolver(strategies, 1, true)) {
+            int[] puzzle = CandidateEngineTest.parse(HintFinderTest.NYT_HARD);
+            assertEquals(strategies, portfolio.startOrder(puzzle));
+            for (int i = 0; i < 4; i++) {
+                portfolio.solve(puzzle, SolveBudget.UNLIMITED);
+            }
+            assertEquals(1, portfolio.wins(SolveStrategy.SOLVER_B));
+            assertEquals(SolveStrategy.BITMASK, portfolio.startOrder(puzzle).getFirst());
+
+            // Other bands are learned separately.
+            assertEquals(strategies,
+                    portfolio.startOrder(CandidateEngineTest.parse(SudokuSolverTest.PUZZLE)));
+        }
+    }
+}
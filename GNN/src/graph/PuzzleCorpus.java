@@ -0,0 +1,220 @@
+package graph;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * A file of puzzles, one per line, read lazily so that memory use does not depend on the number of
+ * puzzles.  `index()` scans the file once and only remembers the offset of every `PAGE`-th line;
+ * `get()` then reads the page of `PAGE` lines containing the requested one and keeps the
+ * `CACHED_PAGES` most recently used pages.  A million-puzzle file therefore costs about 8 KB of
+ * offsets plus the cached pages.
+ *
+ * Safe for use by one indexing thread and any number of reading threads.  Reading threads must not
+ * be interrupted, as interrupting a read closes the underlying channel.
+ */
+public class PuzzleCorpus implements Closeable {
+
+    // Number of lines per page.
+    public static final int PAGE = 1024;
+
+    // Number of pages kept in memory.
+    private static final int CACHED_PAGES = 8;
+
+    // Size of the blocks read from the file.
+    private static final int BLOCK = 1 << 16;
+
+    private final Path path;
+
+    private final FileChannel channel;
+
+    /**
+     * checkpoints[p] is the file offset of line `p * PAGE`.  Only the first
+     * `(size + PAGE - 1) / PAGE` entries are meaningful.
+     */
+    private long[] checkpoints = new long[16];
+
+    // Number of lines indexed so far.
+    private int size;
+
+    // Whether index() has reached the end of the file.
+    private boolean indexed;
+
+    // Most recently used pages by page number, eldest first.
+    private final Map<Integer, String[]> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String[]> eldest) {
+            return size() > CACHED_PAGES;
+        }
+    };
+
+    /**
+     * Open the puzzle file at 'path'.  Its lines only become available as `index()` reaches them.
+     */
+    public PuzzleCorpus(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    /**
+     * Return the number of lines indexed so far.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Return whether the whole file has been indexed.
+     */
+    public synchronized boolean isIndexed() {
+        return indexed;
+    }
+
+    /**
+     * Scan the file, making its lines available to `get()` as they are found, and call
+     * 'onProgress' with the number of lines indexed after every `64 * PAGE` lines and at the end.
+     * Meant to run on a background thread; returns early if the corpus is closed meanwhile.
+     */
+    public void index(IntConsumer onProgress) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BLOCK);
+        long position = 0;
+        long lineStart = 0;
+        int lines = 0;
+        while (true) {
+            buffer.clear();
+            int read;
+            try {
+                read = channel.read(buffer, position);
+            } catch (ClosedChannelException e) {
+                return;
+            }
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    lines++;
+                    lineStart = position + i + 1;
+                    if (lines % PAGE == 0) {
+                        addCheckpoint(lines, lineStart);
+                    }
+                    if (lines % (64 * PAGE) == 0) {
+                        onProgress.accept(lines);
+                    }
+                }
+            }
+            position += read;
+        }
+        // A last line without a line terminator still counts.
+        int total = position > lineStart ? lines + 1 : lines;
+        synchronized (this) {
+            size = total;
+            indexed = true;
+        }
+        onProgress.accept(total);
+    }
+
+    /**
+     * Record that line 'line' starts at 'offset', making all lines before it available.
+     */
+    private synchronized void addCheckpoint(int line, long offset) {
+        int page = line / PAGE;
+        if (page >= checkpoints.length) {
+            checkpoints = Arrays.copyOf(checkpoints, 2 * checkpoints.length);
+        }
+        checkpoints[page] = offset;
+        size = line;
+    }
+
+    /**
+     * Return line 'i' of the file, without its line terminator.  Requires `0 <= i < size()`.
+     * Throws UncheckedIOException if the file cannot be read.
+     */
+    public String get(int i) {
+        if (i < 0 || i >= size()) {
+            throw new IndexOutOfBoundsException(i);
+        }
+        int page = i / PAGE;
+        String[] lines;
+        synchronized (this) {
+            lines = pages.get(page);
+        }
+        if (lines == null) {
+            try {
+                lines = readPage(page);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            synchronized (this) {
+                pages.put(page, lines);
+            }
+        }
+        return lines[i % PAGE];
+    }
+
+    /**
+     * Return line 'i' of the file if its page is in memory, or null without reading the file if
+     * it is not.  Requires `0 <= i < size()`.
+     */
+    public synchronized String getIfCached(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException(i);
+        }
+        String[] lines = pages.get(i / PAGE);
+        return lines == null ? null : lines[i % PAGE];
+    }
+
+    /**
+     * Read the lines of page 'page' from the file.  The last page may be shorter than `PAGE`.
+     */
+    private String[] readPage(int page) throws IOException {
+        long position;
+        synchronized (this) {
+            position = checkpoints[page];
+        }
+        String[] lines = new String[PAGE];
+        int count = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(BLOCK);
+        StringBuilder line = new StringBuilder(96);
+        while (count < PAGE) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            byte[] bytes = buffer.array();
+            for (int i = 0; i < read && count < PAGE; i++) {
+                if (bytes[i] == '\n') {
+                    lines[count++] = line.toString();
+                    line.setLength(0);
+                } else if (bytes[i] != '\r') {
+                    line.append((char) (bytes[i] & 0xFF));
+                }
+            }
+            position += read;
+        }
+        if (count < PAGE && line.length() > 0) {
+            lines[count++] = line.toString();
+        }
+        return count == PAGE ? lines : Arrays.copyOf(lines, count);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
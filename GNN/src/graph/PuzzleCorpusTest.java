@@ -0,0 +1,74 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PuzzleCorpusTest {
+
+    @DisplayName("GIVEN a file spanning several pages, WHEN it is indexed, THEN every line should "
+            + "be returned by get() in any order, without its line terminator")
+    @Test
+    void testIndexAndGet(@TempDir Path dir) throws IOException {
+        int count = 3 * PuzzleCorpus.PAGE + 17;
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            // Mix line terminators and leave the last line unterminated.
+            text.append("line ").append(i).append(i % 2 == 0 ? "\n" : "\r\n");
+        }
+        text.setLength(text.length() - 1);
+        Path file = dir.resolve("corpus.txt");
+        Files.writeString(file, text);
+
+        try (PuzzleCorpus corpus = new PuzzleCorpus(file)) {
+            List<Integer> progress = new ArrayList<>();
+            corpus.index(progress::add);
+            assertTrue(corpus.isIndexed());
+            assertEquals(count, corpus.size());
+            assertEquals(count, progress.getLast());
+            for (int i = count - 1; i >= 0; i -= 7) {
+                assertEquals("line " + i, corpus.get(i));
+            }
+            assertEquals("line 0", corpus.get(0));
+            assertThrows(IndexOutOfBoundsException.class, () -> corpus.get(count));
+        }
+    }
+
+    @DisplayName("GIVEN an indexed file, WHEN lines are looked up without reading, THEN only "
+            + "lines of pages already read should be returned")
+    @Test
+    void testGetIfCached(@TempDir Path dir) throws IOException {
+        int count = 2 * PuzzleCorpus.PAGE;
+        Path file = dir.resolve("corpus.txt");
+        Files.writeString(file, "line\n".repeat(count));
+
+        try (PuzzleCorpus corpus = new PuzzleCorpus(file)) {
+            corpus.index(lines -> { });
+            assertNull(corpus.getIfCached(5));
+            assertEquals("line", corpus.get(5));
+            assertEquals("line", corpus.getIfCached(PuzzleCorpus.PAGE - 1));
+            assertNull(corpus.getIfCached(PuzzleCorpus.PAGE));
+            assertThrows(IndexOutOfBoundsException.class, () -> corpus.getIfCached(count));
+        }
+    }
+
+    @DisplayName("WHEN a board is written and read back, THEN it should be unchanged AND lines "
+            + "that are not puzzles should be rejected")
+    @Test
+    void testFormatAndParse() {
+        int[] grid = CandidateEngineTest.parse(CandidateEngineTest.SOLUTION);
+        grid[10] = 0;
+        String line = PuzzleIO.format(grid);
+        assertEquals('.', line.charAt(10));
+        assertArrayEquals(grid, PuzzleIO.parse(line + " # comment"));
+        assertNull(PuzzleIO.parse(line.substring(1)));
+        assertNull(PuzzleIO.parse(line.replace('.', 'x')));
+    }
+}
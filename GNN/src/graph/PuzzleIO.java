@@ -0,0 +1,61 @@
+package graph;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reading and writing puzzles in the common one-line format: 81 cells in position order, digits
+ * `1`-`9` for values and `.` or `0` for empty cells.  Anything after the 81st cell on a line (a
+ * comment, a rating) is ignored.
+ */
+public final class PuzzleIO {
+
+    private PuzzleIO() {
+    }
+
+    /**
+     * Return the board described by the first 81 characters of 'line', or null if they are not 81
+     * cells.
+     */
+    public static int[] parse(CharSequence line) {
+        if (line.length() < 81) {
+            return null;
+        }
+        int[] grid = new int[81];
+        for (int i = 0; i < 81; i++) {
+            char c = line.charAt(i);
+            if (c >= '1' && c <= '9') {
+                grid[i] = c - '0';
+            } else if (c != '.' && c != '0') {
+                return null;
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Return 'grid' in one-line format, with `.` for empty cells.
+     */
+    public static String format(int[] grid) {
+        char[] line = new char[81];
+        for (int i = 0; i < 81; i++) {
+            line[i] = grid[i] == 0 ? '.' : (char) ('0' + grid[i]);
+        }
+        return new String(line);
+    }
+
+    /**
+     * Write 'grids' to 'path', one per line, replacing the file if it exists.
+     */
+    public static void write(Path path, Iterable<int[]> grids) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.US_ASCII)) {
+            for (int[] grid : grids) {
+                out.write(format(grid));
+                out.newLine();
+            }
+        }
+    }
+}
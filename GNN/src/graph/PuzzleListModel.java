@@ -0,0 +1,164 @@
+package graph;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import javax.swing.AbstractListModel;
+import javax.swing.SwingWorker;
+
+/**
+ * List model over the puzzles of a `PuzzleCorpus`.  Rows are only read from the corpus when a list
+ * asks for them, which a `JList` with a prototype cell value only does for the visible rows, so
+ * scrolling through millions of puzzles reads a page at a time.  A row whose page is not in memory
+ * is shown as a placeholder while the page is read in the background, so scrolling never waits
+ * for the disk.  Also remembers whether recently solved rows turned out solvable, so that the list
+ * can mark them.
+ *
+ * Must be used on the Swing Event Dispatch Thread, except for `setResult()`.
+ */
+public class PuzzleListModel extends AbstractListModel<String> {
+
+    private static final long serialVersionUID = 1L;
+
+    // Maximum number of solve results remembered.
+    private static final int MAX_RESULTS = 100_000;
+
+    // Shown in place of a puzzle whose page is being read.
+    private static final String LOADING = "...";
+
+    // Shown in place of a puzzle whose page could not be read.
+    private static final String UNREADABLE = "(unreadable)";
+
+    // Corpus listed, or null if none is open.
+    private transient PuzzleCorpus corpus;
+
+    // Number of rows announced to listeners; grows while the corpus is indexed.
+    private int size;
+
+    // Solve results of recently solved rows, eldest first.
+    private final transient Map<Integer, Boolean> results = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Boolean> eldest) {
+            return size() > MAX_RESULTS;
+        }
+    };
+
+    // Pages of 'corpus' being read in the background, and pages that failed to read.
+    private final transient Set<Integer> loading = new HashSet<>();
+    private final transient Set<Integer> failed = new HashSet<>();
+
+    /**
+     * List the puzzles of 'corpus' instead of the current ones, or none if 'corpus' is null.
+     */
+    public void setCorpus(PuzzleCorpus corpus) {
+        int oldSize = size;
+        this.corpus = corpus;
+        size = 0;
+        loading.clear();
+        failed.clear();
+        synchronized (results) {
+            results.clear();
+        }
+        if (oldSize > 0) {
+            fireIntervalRemoved(this, 0, oldSize - 1);
+        }
+        grow();
+    }
+
+    /**
+     * Announce the rows indexed since the last call.
+     */
+    public void grow() {
+        int newSize = corpus == null ? 0 : corpus.size();
+        if (newSize > size) {
+            int oldSize = size;
+            size = newSize;
+            fireIntervalAdded(this, oldSize, newSize - 1);
+        }
+    }
+
+    /**
+     * Return the puzzle of row 'i', or null if it is not a puzzle.
+     */
+    public int[] puzzle(int i) {
+        return PuzzleIO.parse(corpus.get(i));
+    }
+
+    /**
+     * Record whether the puzzle of row 'i' was solved.  May be called from any thread; call
+     * `resultChanged()` on the Event Dispatch Thread afterwards to redraw the row.
+     */
+    public void setResult(int i, boolean solved) {
+        synchronized (results) {
+            results.put(i, solved);
+        }
+    }
+
+    /**
+     * Redraw row 'i' after its result changed.
+     */
+    public void resultChanged(int i) {
+        if (i < size) {
+            fireContentsChanged(this, i, i);
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public String getElementAt(int i) {
+        Boolean solved;
+        synchronized (results) {
+            solved = results.get(i);
+        }
+        String mark = solved == null ? "  " : solved ? "\u2713 " : "\u2717 ";
+        String line = corpus.getIfCached(i);
+        if (line == null) {
+            int page = i / PuzzleCorpus.PAGE;
+            line = failed.contains(page) ? UNREADABLE : LOADING;
+            prefetch(page);
+        }
+        return mark + (i + 1) + ": " + line;
+    }
+
+    /**
+     * Read page 'page' of the corpus in the background, unless it is already being read or
+     * failed, and redraw its rows once it is in memory.
+     */
+    private void prefetch(int page) {
+        if (failed.contains(page) || !loading.add(page)) {
+            return;
+        }
+        PuzzleCorpus read = corpus;
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() {
+                read.get(page * PuzzleCorpus.PAGE);
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                if (corpus != read) {
+                    return;
+                }
+                loading.remove(page);
+                try {
+                    get();
+                } catch (ExecutionException | InterruptedException e) {
+                    failed.add(page);
+                }
+                int first = page * PuzzleCorpus.PAGE;
+                int last = Math.min(first + PuzzleCorpus.PAGE, size) - 1;
+                if (first <= last) {
+                    fireContentsChanged(PuzzleListModel.this, first, last);
+                }
+            }
+        }.execute();
+    }
+}
@@ -0,0 +1,99 @@
+package graph;
+
+/**
+ * When a randomized search gives up on its current run and starts over.  Run `i` (counting from 0)
+ * may expand `cutoff(i)` nodes; cutoffs grow without bound, so a search with restarts is still
+ * complete and eventually proves a puzzle unsolvable.  Restarting with fresh random choices cuts
+ * off the long runs behind heavy-tailed solve times, which lowers the tail latency over a corpus
+ * even where it costs a little on average.
+ */
+public final class RestartPolicy {
+
+    // Policy that never restarts.
+    public static final RestartPolicy NONE = new RestartPolicy(0, 0, 0);
+
+    // 0 for none, 1 for Luby, 2 for geometric.
+    private final int kind;
+
+    // Cutoff of the first run, or the unit the Luby sequence is multiplied by.
+    private final long first;
+
+    // Growth of geometric cutoffs from one run to the next.
+    private final double factor;
+
+    private RestartPolicy(int kind, long first, double factor) {
+        this.kind = kind;
+        this.first = first;
+        this.factor = factor;
+    }
+
+    /**
+     * Return a policy with cutoffs `unit` times the Luby sequence 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, ...,
+     * which is within a constant factor of the best fixed cutoff without knowing it in advance.
+     * Requires `unit >= 1`.
+     */
+    public static RestartPolicy luby(long unit) {
+        if (unit < 1) {
+            throw new IllegalArgumentException("Luby unit must be at least 1: " + unit);
+        }
+        return new RestartPolicy(1, unit, 0);
+    }
+
+    /**
+     * Return a policy with cutoffs `first`, `first * factor`, `first * factor^2`, ...  Requires
+     * `first >= 1` and `factor > 1`.
+     */
+    public static RestartPolicy geometric(long first, double factor) {
+        if (first < 1) {
+            throw new IllegalArgumentException("first cutoff must be at least 1: " + first);
+        }
+        if (!(factor > 1)) {
+            throw new IllegalArgumentException("factor must be greater than 1: " + factor);
+        }
+        return new RestartPolicy(2, first, factor);
+    }
+
+    /**
+     * Returns whether this policy ever restarts.
+     */
+    public boolean restarts() {
+        return kind != 0;
+    }
+
+    /**
+     * Return the number of nodes run 'run' may expand, Long.MAX_VALUE if it is never cut off.
+     */
+    public long cutoff(int run) {
+        return switch (kind) {
+            case 1 -> first * lubyTerm(run + 1);
+            case 2 -> (long) Math.min(first * Math.pow(factor, run), Long.MAX_VALUE);
+            default -> Long.MAX_VALUE;
+        };
+    }
+
+    // Term 'i' of the Luby sequence, counting from 1.
+    static long lubyTerm(int i) {
+        // Find k with 2^(k-1) <= i < 2^k; the term is 2^(k-1) if i = 2^k - 1, else recurse.
+        int k = 1;
+        while ((1L << k) - 1 < i) {
+            k++;
+        }
+        while ((1L << k) - 1 != i) {
+            i -= (int) (1L << (k - 1)) - 1;
+            k = 1;
+            while ((1L << k) - 1 < i) {
+                k++;
+            }
+        }
+        return 1L << (k - 1);
+    }
+
+    @Override
+    public String toString() {
+        return switch (kind) {
+            case 1 -> "Luby restarts, unit " + first;
+            case 2 -> "geometric restarts from " + first + " by " + factor;
+            default -> "no restarts";
+        };
+    }
+}
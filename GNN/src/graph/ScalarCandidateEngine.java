@@ -0,0 +1,65 @@
+package graph;
+
+/**
+ * Plain Java implementation of `CandidateEngine`, used when the Vector API is unavailable.  Walks
+ * the 27 units of `SudokuUnits.CLASSIC` once per call.
+ */
+class ScalarCandidateEngine implements CandidateEngine {
+
+    // Scratch masks of the last board processed, indexed by unit number.
+    private final int[] used = new int[27];
+
+    /**
+     * Fill `used` with the digits of every unit of `grid`.  Returns false if a unit holds a digit
+     * twice.
+     */
+    private boolean fillUsed(int[] grid) {
+        int[][] units = SudokuUnits.CLASSIC.units;
+        int duplicates = 0;
+        for (int u = 0; u < 27; u++) {
+            int seen = 0;
+            for (int cell : units[u]) {
+                int bit = SudokuUnits.bit(grid[cell]);
+                duplicates |= seen & bit;
+                seen |= bit;
+            }
+            used[u] = seen;
+        }
+        return duplicates == 0;
+    }
+
+    @Override
+    public boolean unitMasks(int[] grid, int[] rowMasks, int[] colMasks, int[] boxMasks) {
+        boolean valid = fillUsed(grid);
+        System.arraycopy(used, 0, rowMasks, 0, 9);
+        System.arraycopy(used, 9, colMasks, 0, 9);
+        System.arraycopy(used, 18, boxMasks, 0, 9);
+        return valid;
+    }
+
+    @Override
+    public boolean candidates(int[] grid, short[] candidates) {
+        boolean valid = fillUsed(grid);
+        for (int i = 0; i < 81; i++) {
+            int taken = used[SudokuUnits.row(i)] | used[9 + SudokuUnits.col(i)]
+                    | used[18 + SudokuUnits.box(i)];
+            candidates[i] = grid[i] != 0 ? 0 : (short) (~taken & SudokuUnits.ALL_DIGITS);
+        }
+        return valid;
+    }
+
+    @Override
+    public boolean isValid(int[] grid, boolean complete) {
+        if (!fillUsed(grid)) {
+            return false;
+        }
+        if (complete) {
+            for (int u = 0; u < 27; u++) {
+                if (used[u] != SudokuUnits.ALL_DIGITS) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,240 @@
+package graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A recording of the steps of one `SudokuSolver` search, for finding out offline why a puzzle is
+ * slow.  Attach a trace with `SudokuSolver.setTrace()`; every solve then clears it, copies the
+ * givens and appends one event per step to a ring buffer of ints allocated up front, so recording
+ * costs an array store per event and allocates nothing.  Once the buffer is full the oldest events
+ * are overwritten: the last `capacity` events are kept.
+ *
+ * Traces are saved to a compact binary file (a header, the givens as bytes, then one int per
+ * event) and read back for replay, e.g. with the timeline of `SudokuApp`.
+ *
+ * Not thread-safe; a trace records one solver at a time.
+ */
+public final class SearchTrace {
+
+    /**
+     * Kinds of search steps.
+     */
+    public enum Kind {
+        // The search chose a value for a cell to branch on.
+        ASSIGN,
+        // Propagation filled in a naked or hidden single.
+        FORCE,
+        // A value chosen for a cell led nowhere and was ruled out.
+        ELIMINATE,
+        // The search emptied a cell while backtracking.
+        BACKTRACK
+    }
+
+    // Kinds by ordinal, to decode events without allocating.
+    private static final Kind[] KINDS = Kind.values();
+
+    // First int of a trace file ("STRC") and version of its format.
+    private static final int MAGIC = 0x53545243;
+    private static final int VERSION = 1;
+
+    // Events, each (kind << 24) | (value << 16) | cell, at index (number & mask).
+    private final int[] events;
+    private final int mask;
+
+    // Number of events recorded since the last start().
+    private long recorded;
+
+    // Givens of the traced puzzle.
+    private int[] givens = new int[0];
+
+    /**
+     * Create a trace keeping the last 'capacity' events, rounded up to a power of two.
+     */
+    public SearchTrace(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity out of range: " + capacity);
+        }
+        int length = Integer.highestOneBit(capacity);
+        events = new int[length < capacity ? 2 * length : length];
+        mask = events.length - 1;
+    }
+
+    /**
+     * Forget the events recorded and start a trace of a search of 'puzzle'.
+     */
+    void start(int[] puzzle) {
+        if (givens.length != puzzle.length) {
+            givens = new int[puzzle.length];
+        }
+        System.arraycopy(puzzle, 0, givens, 0, puzzle.length);
+        recorded = 0;
+    }
+
+    /**
+     * Append an event of 'kind' for 'value' at 'cell'.
+     */
+    void record(Kind kind, int cell, int value) {
+        events[(int) (recorded++ & mask)] = kind.ordinal() << 24 | value << 16 | cell;
+    }
+
+    /**
+     * Returns the number of events kept: the last `size()` of the `recorded()` events.
+     */
+    public int size() {
+        return (int) Math.min(recorded, events.length);
+    }
+
+    /**
+     * Returns the number of events recorded by the last search, including those overwritten.
+     */
+    public long recorded() {
+        return recorded;
+    }
+
+    /**
+     * Returns the number of events of the last search that were overwritten.
+     */
+    public long dropped() {
+        return recorded - size();
+    }
+
+    /**
+     * Returns a copy of the givens of the traced puzzle.
+     */
+    public int[] givens() {
+        return givens.clone();
+    }
+
+    /**
+     * Returns the kind of kept event 'i', counting from the oldest.
+     */
+    public Kind kind(int i) {
+        return KINDS[event(i) >>> 24];
+    }
+
+    /**
+     * Returns the cell of kept event 'i'.
+     */
+    public int cell(int i) {
+        return event(i) & 0xFFFF;
+    }
+
+    /**
+     * Returns the value of kept event 'i': the value assigned, ruled out or removed.
+     */
+    public int value(int i) {
+        return event(i) >>> 16 & 0xFF;
+    }
+
+    private int event(int i) {
+        if (i < 0 || i >= size()) {
+            throw new IndexOutOfBoundsException(i);
+        }
+        return events[(int) ((recorded - size() + i) & mask)];
+    }
+
+    /**
+     * Store in 'board' the board after the first 'step' kept events: the givens, plus the values
+     * assigned and not yet backtracked.  If events were dropped, cells assigned before the first
+     * kept event show as empty until assigned again.
+     */
+    public void boardAt(int step, int[] board) {
+        System.arraycopy(givens, 0, board, 0, givens.length);
+        for (int i = 0; i < step; i++) {
+            int event = event(i);
+            Kind kind = KINDS[event >>> 24];
+            if (kind == Kind.ASSIGN || kind == Kind.FORCE) {
+                board[event & 0xFFFF] = event >>> 16 & 0xFF;
+            } else if (kind == Kind.BACKTRACK) {
+                board[event & 0xFFFF] = 0;
+            }
+        }
+    }
+
+    /**
+     * Write the givens and kept events to 'path', replacing the file if it exists.
+     */
+    public void write(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(givens.length);
+            for (int value : givens) {
+                out.writeByte(value);
+            }
+            out.writeLong(recorded);
+            int size = size();
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeInt(event(i));
+            }
+        }
+    }
+
+    /**
+     * Return the trace written to 'path' by `write()`.  Throws IOException if the file is not a
+     * trace.
+     */
+    public static SearchTrace read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(path + " is not a search trace");
+            }
+            int[] givens = new int[in.readInt()];
+            for (int i = 0; i < givens.length; i++) {
+                givens[i] = in.readUnsignedByte();
+            }
+            long recorded = in.readLong();
+            int size = in.readInt();
+            if (size < 0 || size > recorded || size < recorded && Integer.bitCount(size) != 1) {
+                throw new IOException(path + " is not a search trace");
+            }
+            // Events are only dropped from a full buffer, whose size is a power of two, so the
+            // capacity is 'size' and the kept events are the last 'size' of 'recorded'.
+            SearchTrace trace = new SearchTrace(Math.max(1, size));
+            trace.givens = givens;
+            trace.recorded = recorded;
+            for (int i = 0; i < size; i++) {
+                trace.events[(int) ((recorded - size + i) & trace.mask)] = in.readInt();
+            }
+            return trace;
+        }
+    }
+
+    @Override
+    public String toString() {
+        int[] counts = new int[KINDS.length];
+        for (int i = 0; i < size(); i++) {
+            counts[event(i) >>> 24]++;
+        }
+        return recorded + " events, " + dropped() + " dropped; kept " + Arrays.toString(KINDS)
+                + ": " + Arrays.toString(counts);
+    }
+
+    /**
+     * Solve a puzzle with a trace and write the trace to a file.  Arguments: a puzzle in
+     * one-line format, the file to write and optionally the number of events to keep (default
+     * 2^20).
+     */
+    public static void main(String[] args) throws IOException {
+        int[] puzzle = PuzzleIO.parse(args[0]);
+        if (puzzle == null) {
+            System.err.println("not a puzzle: " + args[0]);
+            return;
+        }
+        SearchTrace trace = new SearchTrace(args.length > 2 ? Integer.parseInt(args[2]) : 1 << 20);
+        SudokuSolver solver = new SudokuSolver();
+        solver.setTrace(trace);
+        System.out.println(solver.load(puzzle) + " in " + solver.nodes() + " nodes: " + trace);
+        trace.write(Path.of(args[1]));
+    }
+}
@@ -0,0 +1,90 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SearchTraceTest {
+
+    @DisplayName("GIVEN a traced solve, WHEN the trace is replayed to its end, THEN it should show "
+            + "the solution AND every backtrack should empty a cell assigned earlier")
+    @Test
+    void testReplay() {
+        int[] puzzle = CandidateEngineTest.parse(SudokuGraphTest.SPARSE);
+        SearchTrace trace = new SearchTrace(1 << 16);
+        SudokuSolver solver = new SudokuSolver();
+        solver.setValueOrder(SudokuSolver.ValueOrder.RANDOM);
+        solver.setRestarts(RestartPolicy.luby(1));
+        solver.setTrace(trace);
+        assertEquals(SolveResult.Status.SOLVED, solver.load(puzzle));
+        assertEquals(0, trace.dropped());
+        assertTrue(trace.size() > 81 - 17);
+
+        int[] board = new int[81];
+        trace.boardAt(0, board);
+        assertArrayEquals(puzzle, board);
+        int[] replayed = trace.givens();
+        for (int i = 0; i < trace.size(); i++) {
+            int cell = trace.cell(i);
+            switch (trace.kind(i)) {
+                case ASSIGN, FORCE -> {
+                    assertEquals(0, replayed[cell]);
+                    replayed[cell] = trace.value(i);
+                }
+                case BACKTRACK -> {
+                    assertEquals(trace.value(i), replayed[cell]);
+                    replayed[cell] = 0;
+                }
+                case ELIMINATE -> assertEquals(0, replayed[cell]);
+            }
+        }
+        trace.boardAt(trace.size(), board);
+        assertArrayEquals(replayed, board);
+        assertArrayEquals(solver.solution(), board);
+
+        // An edit keeping the solution needs no search, and leaves the trace alone.
+        long recorded = trace.recorded();
+        int given = 0;
+        while (puzzle[given] == 0) {
+            given++;
+        }
+        assertEquals(SolveResult.Status.SOLVED, solver.clear(given));
+        assertEquals(0, solver.nodes());
+        assertEquals(recorded, trace.recorded());
+    }
+
+    @DisplayName("GIVEN a trace smaller than the search, WHEN it is written and read back, THEN "
+            + "the last events should be kept in order AND the count of dropped events preserved")
+    @Test
+    void testRingAndFile(@TempDir Path dir) throws IOException {
+        SearchTrace full = new SearchTrace(1 << 16);
+        SearchTrace ring = new SearchTrace(20);
+        for (SearchTrace trace : new SearchTrace[]{full, ring}) {
+            SudokuSolver solver = new SudokuSolver();
+            solver.setRestarts(RestartPolicy.luby(1));
+            solver.setTrace(trace);
+            solver.load(CandidateEngineTest.parse(HintFinderTest.NYT_HARD));
+        }
+        assertEquals(full.recorded(), ring.recorded());
+        assertEquals(32, ring.size());
+        assertEquals(full.recorded() - 32, ring.dropped());
+
+        Path file = dir.resolve("search.trace");
+        ring.write(file);
+        SearchTrace read = SearchTrace.read(file);
+        assertEquals(ring.recorded(), read.recorded());
+        assertEquals(ring.size(), read.size());
+        assertArrayEquals(ring.givens(), read.givens());
+        int offset = full.size() - ring.size();
+        for (int i = 0; i < read.size(); i++) {
+            assertEquals(full.kind(offset + i), read.kind(i));
+            assertEquals(full.cell(offset + i), read.cell(i));
+            assertEquals(full.value(offset + i), read.value(i));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> read.kind(read.size()));
+    }
+}
@@ -0,0 +1,88 @@
+package graph;
+
+import java.time.Duration;
+
+/**
+ * Limits on a single solve: a deadline, a maximum number of search nodes, or both.  Solvers do not
+ * consult the budget at every node; they call `check()` every `SudokuGraph.MONITOR_INTERVAL`
+ * nodes, so the clock is read once per interval and a budget may be overrun by at most one
+ * interval.  `check()` also stops the solve when the solving thread has been interrupted.
+ *
+ * A budget with a deadline is tied to the time it was created: create one per solve.
+ */
+public final class SolveBudget {
+
+    // Budget that never runs out; the solve still stops when its thread is interrupted.
+    public static final SolveBudget UNLIMITED =
+            new SolveBudget(Long.MAX_VALUE, false, Long.MAX_VALUE);
+
+    // Value of System.nanoTime() after which the solve stops, if 'hasDeadline'.
+    private final long deadline;
+
+    private final boolean hasDeadline;
+
+    // Number of nodes after which the solve stops.
+    private final long maxNodes;
+
+    private SolveBudget(long deadline, boolean hasDeadline, long maxNodes) {
+        this.deadline = deadline;
+        this.hasDeadline = hasDeadline;
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Return a budget running out 'timeout' from now.
+     */
+    public static SolveBudget of(Duration timeout) {
+        return new SolveBudget(System.nanoTime() + timeout.toNanos(), true, Long.MAX_VALUE);
+    }
+
+    /**
+     * Return a budget running out after 'maxNodes' search nodes.
+     */
+    public static SolveBudget ofNodes(long maxNodes) {
+        return new SolveBudget(Long.MAX_VALUE, false, maxNodes);
+    }
+
+    /**
+     * Return a budget running out 'timeout' from now or after 'maxNodes' nodes, whichever comes
+     * first.
+     */
+    public static SolveBudget of(Duration timeout, long maxNodes) {
+        return new SolveBudget(System.nanoTime() + timeout.toNanos(), true, maxNodes);
+    }
+
+    /**
+     * Throw Exceeded if the solve should stop after 'nodes' nodes: the budget has run out or the
+     * current thread has been interrupted (the interrupt status is left set).
+     */
+    public void check(long nodes) {
+        if (nodes >= maxNodes || (hasDeadline && System.nanoTime() - deadline >= 0)) {
+            throw new Exceeded(SolveResult.Status.TIMEOUT);
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            throw new Exceeded(SolveResult.Status.CANCELLED);
+        }
+    }
+
+    /**
+     * Thrown by check() to unwind a solver's recursion.  Carries no stack trace, as it is control
+     * flow rather than an error.
+     */
+    public static final class Exceeded extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final SolveResult.Status status;
+
+        Exceeded(SolveResult.Status status) {
+            super(status.name(), null, false, false);
+            this.status = status;
+        }
+
+        // TIMEOUT or CANCELLED.
+        public SolveResult.Status status() {
+            return status;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package graph;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop load generator for `SolveServer`.  Each of 'concurrency' virtual threads sends a
+ * request of 'batch' puzzles, waits for the answer and sends the next one, for 'seconds' seconds.
+ * Reports throughput and the p50/p99/p99.9 request latency, counting 429 answers separately.
+ *
+ * Usage: `SolveLoadGenerator puzzles.txt [url [concurrency [seconds [batch]]]]`.  With url "local",
+ * a server is started in-process on a free port.
+ */
+public class SolveLoadGenerator {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("usage: SolveLoadGenerator puzzles.txt [url|local [concurrency "
+                    + "[seconds [batch]]]]");
+            System.exit(2);
+        }
+        List<String> puzzles = new ArrayList<>();
+        for (String line : Files.readAllLines(Path.of(args[0]))) {
+            if (PuzzleIO.parse(line.strip()) != null) {
+                puzzles.add(line.strip());
+            }
+        }
+        String url = args.length > 1 ? args[1] : "local";
+        int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int batch = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+
+        SolveServer local = null;
+        if (url.equals("local")) {
+            local = new SolveServer(0, Runtime.getRuntime().availableProcessors(), 4096,
+                    Duration.ofSeconds(1));
+            local.start();
+            url = "http://localhost:" + local.port() + "/solve";
+        }
+        Result result = run(URI.create(url), puzzles, concurrency, seconds, batch);
+        System.out.println(result);
+        if (local != null) {
+            local.stop(0);
+        }
+    }
+
+    /**
+     * Outcome of a load run.  Latencies are in microseconds.
+     */
+    public record Result(long requests, long puzzles, long rejected, long errors, double seconds,
+                         long p50, long p99, long p999) {
+        @Override
+        public String toString() {
+            return String.format("%d requests (%.0f/s), %d puzzles (%.0f/s), %d rejected (429), "
+                            + "%d errors; latency p50 %d us, p99 %d us, p99.9 %d us",
+                    requests, requests / seconds, puzzles, puzzles / seconds, rejected, errors,
+                    p50, p99, p999);
+        }
+    }
+
+    /**
+     * Load 'uri' from 'concurrency' clients for 'seconds' seconds, each request carrying 'batch'
+     * puzzles taken round-robin from 'puzzles'.
+     */
+    public static Result run(URI uri, List<String> puzzles, int concurrency, int seconds,
+                             int batch) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder().build();
+        AtomicInteger next = new AtomicInteger();
+        LongAdder rejected = new LongAdder();
+        LongAdder errors = new LongAdder();
+        // Each client records its own latencies, merged at the end.
+        long[][] latencies = new long[concurrency][];
+        int[] counts = new int[concurrency];
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < concurrency; c++) {
+                int id = c;
+                latencies[id] = new long[1024];
+                clients.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        StringBuilder body = new StringBuilder();
+                        for (int i = 0; i < batch; i++) {
+                            int k = Math.floorMod(next.getAndIncrement(), puzzles.size());
+                            body.append(puzzles.get(k)).append('\n');
+                        }
+                        HttpRequest request = HttpRequest.newBuilder(uri)
+                                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                                .build();
+                        long sent = System.nanoTime();
+                        int status;
+                        try {
+                            status = client.send(request, HttpResponse.BodyHandlers.discarding())
+                                    .statusCode();
+                        } catch (IOException e) {
+                            errors.increment();
+                            continue;
+                        }
+                        if (status == 429) {
+                            rejected.increment();
+                        } else if (status != 200) {
+                            errors.increment();
+                        } else {
+                            if (counts[id] == latencies[id].length) {
+                                latencies[id] = Arrays.copyOf(latencies[id], 2 * counts[id]);
+                            }
+                            latencies[id][counts[id]++] = (System.nanoTime() - sent) / 1000;
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        long[] all = new long[total];
+        int offset = 0;
+        for (int c = 0; c < concurrency; c++) {
+            System.arraycopy(latencies[c], 0, all, offset, counts[c]);
+            offset += counts[c];
+        }
+        Arrays.sort(all);
+        return new Result(total, (long) total * batch, rejected.sum(), errors.sum(), elapsed,
+                percentile(all, 0.5), percentile(all, 0.99), percentile(all, 0.999));
+    }
+
+    // Value at quantile 'q' of the sorted array 'sorted', or 0 if it is empty.
+    private static long percentile(long[] sorted, double q) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, q * sorted.length)];
+    }
+}
@@ -0,0 +1,319 @@
+package graph;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide solve metrics for long-running workers: counts of solves by outcome, search nodes,
+ * solve and node rates, the depths of registered queues, and a solve time histogram per
+ * `SolveStrategy`.  `SudokuGraph.solve()` and `SolveServer` record every solve in `global()`, and
+ * `PortfolioSolver` every race as one solve.  `global()` is exposed over JMX (see
+ * `SolveMetricsMXBean`) and as text by `scrape()`.
+ *
+ * Recording only adds to `LongAdder`s, which spread concurrent updates over per-thread cells, so
+ * workers recording at the same time do not contend.  Each histogram has a fixed set of
+ * log-linear buckets: values below 16 ns are exact, and above that each power of two is split in
+ * 8 buckets, so a percentile is reported at most 12.5% above the true value, with memory that
+ * does not grow with the number of solves.  Times of 2^40 ns (18 minutes) or more fall in the last
+ * bucket.
+ *
+ * The rates are averages over a trailing window of about a minute, which readers share without
+ * resetting: every read compares the current totals with the oldest of the samples kept, and adds
+ * a sample if the newest is at least a second old.  Readers polling at different intervals thus
+ * see the same recent rates, and one polling more often than once a second sees the totals as
+ * they are.  After a minute without reads the window reaches back to the last read.  Scrapers that
+ * compute their own rates should use the totals, which never decrease.
+ */
+public final class SolveMetrics implements SolveMetricsMXBean {
+
+    // Name the global instance is registered under.
+    static final String OBJECT_NAME = "graph:type=SolveMetrics";
+
+    // Number of exact buckets, and of buckets per power of two above them.
+    private static final int EXACT = 16;
+    private static final int SUB_BUCKETS = 8;
+
+    // Times are clamped below 2^MAX_SHIFT nanoseconds.
+    private static final int MAX_SHIFT = 40;
+
+    static final int BUCKETS = EXACT + (MAX_SHIFT - 4) * SUB_BUCKETS;
+
+    // Length of the window of the rates, and minimum time between two of its samples.
+    private static final long WINDOW_NANOS = 60_000_000_000L;
+    private static final long SAMPLE_NANOS = 1_000_000_000L;
+
+    private static final SolveResult.Status[] STATUSES = SolveResult.Status.values();
+    private static final SolveStrategy[] STRATEGIES = SolveStrategy.values();
+
+    // Number of solves by SolveResult.Status ordinal, and search nodes of all solves.
+    private final LongAdder[] outcomes = new LongAdder[STATUSES.length];
+    private final LongAdder nodes = new LongAdder();
+
+    // Solve times by SolveStrategy ordinal, then bucket.
+    private final LongAdder[][] latencies = new LongAdder[STRATEGIES.length][BUCKETS];
+
+    // Depth of each registered queue, by name.
+    private final Map<String, IntSupplier> queues = new ConcurrentHashMap<>();
+
+    // Samples of {System.nanoTime(), solves, nodes} for the rates, oldest first: those of the last
+    // WINDOW_NANOS and the newest one before them.  Guarded by 'this'.
+    private final ArrayDeque<long[]> samples = new ArrayDeque<>();
+
+    SolveMetrics() {
+        samples.add(new long[]{System.nanoTime(), 0, 0});
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = new LongAdder();
+        }
+        for (LongAdder[] histogram : latencies) {
+            for (int b = 0; b < BUCKETS; b++) {
+                histogram[b] = new LongAdder();
+            }
+        }
+    }
+
+    /**
+     * Returns the metrics of this process, registering them with the platform MBean server the
+     * first time.
+     */
+    public static SolveMetrics global() {
+        return GlobalHolder.GLOBAL;
+    }
+
+    private static class GlobalHolder {
+        static final SolveMetrics GLOBAL = register(new SolveMetrics());
+    }
+
+    // Register 'metrics' as OBJECT_NAME; metrics stay usable without JMX if that fails.
+    private static SolveMetrics register(SolveMetrics metrics) {
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                    .registerMBean(metrics, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.err.println("SolveMetrics not registered with JMX: " + e);
+        }
+        return metrics;
+    }
+
+    /**
+     * Record a solve with 'strategy' that ended with 'status' after 'searchNodes' nodes and
+     * 'nanos' nanoseconds.
+     */
+    public void record(SolveStrategy strategy, SolveResult.Status status, long searchNodes,
+            long nanos) {
+        outcomes[status.ordinal()].increment();
+        nodes.add(searchNodes);
+        latencies[strategy.ordinal()][bucket(nanos)].increment();
+    }
+
+    /**
+     * Report the depth of a queue as 'name', replacing any queue registered under that name.
+     */
+    public void registerQueue(String name, IntSupplier depth) {
+        queues.put(name, depth);
+    }
+
+    /**
+     * Stop reporting the queue registered as 'name'.
+     */
+    public void unregisterQueue(String name) {
+        queues.remove(name);
+    }
+
+    // Bucket of a time of 'nanos'.
+    static int bucket(long nanos) {
+        if (nanos < EXACT) {
+            return (int) Math.max(nanos, 0);
+        }
+        long value = Math.min(nanos, (1L << MAX_SHIFT) - 1);
+        int shift = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (shift - 3)) & (SUB_BUCKETS - 1);
+        return EXACT + (shift - 4) * SUB_BUCKETS + sub;
+    }
+
+    // Largest time, in nanoseconds, of bucket 'b'.
+    static long upperBound(int b) {
+        if (b < EXACT) {
+            return b;
+        }
+        int shift = 4 + (b - EXACT) / SUB_BUCKETS;
+        long lower = (long) (SUB_BUCKETS + (b - EXACT) % SUB_BUCKETS) << (shift - 3);
+        return lower + (1L << (shift - 3)) - 1;
+    }
+
+    /**
+     * Returns the solve time below which a fraction 'quantile' of the solves with 'strategy' fell,
+     * in nanoseconds (the upper bound of its bucket), or -1 if there were none.
+     */
+    public long percentileNanos(SolveStrategy strategy, double quantile) {
+        LongAdder[] histogram = latencies[strategy.ordinal()];
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            counts[b] = histogram[b].sum();
+            total += counts[b];
+        }
+        if (total == 0) {
+            return -1;
+        }
+        // Rank of the solve at the quantile, counting from 1.
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= rank) {
+                return upperBound(b);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    @Override
+    public long getSolves() {
+        long solves = 0;
+        for (LongAdder outcome : outcomes) {
+            solves += outcome.sum();
+        }
+        return solves;
+    }
+
+    @Override
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    @Override
+    public long getSolved() {
+        return outcomes[SolveResult.Status.SOLVED.ordinal()].sum();
+    }
+
+    @Override
+    public long getUnsolvable() {
+        return outcomes[SolveResult.Status.UNSOLVABLE.ordinal()].sum();
+    }
+
+    @Override
+    public long getTimedOut() {
+        return outcomes[SolveResult.Status.TIMEOUT.ordinal()].sum();
+    }
+
+    @Override
+    public long getCancelled() {
+        return outcomes[SolveResult.Status.CANCELLED.ordinal()].sum();
+    }
+
+    @Override
+    public double getSolvesPerSecond() {
+        return rates()[0];
+    }
+
+    @Override
+    public double getNodesPerSecond() {
+        return rates()[1];
+    }
+
+    // Return the solves and the nodes per second over the window, sampling the totals if the
+    // newest sample is at least SAMPLE_NANOS old.
+    private synchronized double[] rates() {
+        long now = System.nanoTime();
+        long solves = getSolves();
+        long searchNodes = getNodes();
+        if (now - samples.getLast()[0] >= SAMPLE_NANOS) {
+            samples.addLast(new long[]{now, solves, searchNodes});
+        }
+        // Drop the samples older than the window, keeping the newest of them to start it.
+        long[] first = samples.removeFirst();
+        while (!samples.isEmpty() && now - samples.getFirst()[0] >= WINDOW_NANOS) {
+            first = samples.removeFirst();
+        }
+        samples.addFirst(first);
+        long elapsed = now - first[0];
+        if (elapsed <= 0) {
+            return new double[2];
+        }
+        return new double[]{(solves - first[1]) * 1e9 / elapsed,
+                (searchNodes - first[2]) * 1e9 / elapsed};
+    }
+
+    @Override
+    public Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> depths = new TreeMap<>();
+        queues.forEach((name, depth) -> depths.put(name, depth.getAsInt()));
+        return depths;
+    }
+
+    @Override
+    public Map<String, Long> getLatencyP50Micros() {
+        return percentilesMicros(0.5);
+    }
+
+    @Override
+    public Map<String, Long> getLatencyP99Micros() {
+        return percentilesMicros(0.99);
+    }
+
+    @Override
+    public Map<String, Long> getLatencyP999Micros() {
+        return percentilesMicros(0.999);
+    }
+
+    // Percentile 'quantile' in microseconds of every strategy with solves, by name().
+    private Map<String, Long> percentilesMicros(double quantile) {
+        Map<String, Long> percentiles = new TreeMap<>();
+        for (SolveStrategy strategy : STRATEGIES) {
+            long nanos = percentileNanos(strategy, quantile);
+            if (nanos >= 0) {
+                percentiles.put(strategy.name(), nanos / 1000);
+            }
+        }
+        return percentiles;
+    }
+
+    @Override
+    public String scrape() {
+        StringBuilder text = new StringBuilder(2048);
+        line(text, "solves_total", "", getSolves());
+        line(text, "nodes_total", "", getNodes());
+        for (SolveResult.Status status : STATUSES) {
+            line(text, "solves_by_status", "status=\"" + status + "\"",
+                    outcomes[status.ordinal()].sum());
+        }
+        double[] rates = rates();
+        text.append(String.format(Locale.ROOT, "solves_per_second %.3f\nnodes_per_second %.3f\n",
+                rates[0], rates[1]));
+        getQueueDepths().forEach((name, depth) ->
+                line(text, "queue_depth", "queue=\"" + name + "\"", depth));
+        double[] quantiles = {0.5, 0.99, 0.999};
+        for (SolveStrategy strategy : STRATEGIES) {
+            long count = 0;
+            for (LongAdder bucket : latencies[strategy.ordinal()]) {
+                count += bucket.sum();
+            }
+            if (count == 0) {
+                continue;
+            }
+            String label = "strategy=\"" + strategy.name() + "\"";
+            line(text, "solve_latency_count", label, count);
+            for (double quantile : quantiles) {
+                line(text, "solve_latency_micros", label + ",quantile=\"" + quantile + "\"",
+                        percentileNanos(strategy, quantile) / 1000);
+            }
+        }
+        return text.toString();
+    }
+
+    private static void line(StringBuilder text, String name, String labels, long value) {
+        text.append(name);
+        if (!labels.isEmpty()) {
+            text.append('{').append(labels).append('}');
+        }
+        text.append(' ').append(value).append('\n');
+    }
+}
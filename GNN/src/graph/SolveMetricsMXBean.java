@@ -0,0 +1,76 @@
+package graph;
+
+import java.util.Map;
+
+/**
+ * Management interface of `SolveMetrics`, registered with the platform MBean server as
+ * `graph:type=SolveMetrics`.  Counts and latencies cover every solve since the process started.
+ */
+public interface SolveMetricsMXBean {
+
+    /**
+     * Number of solves recorded.
+     */
+    long getSolves();
+
+    /**
+     * Number of search nodes of all solves recorded.
+     */
+    long getNodes();
+
+    /**
+     * Number of solves that found a solution.
+     */
+    long getSolved();
+
+    /**
+     * Number of solves that proved their puzzle has no solution.
+     */
+    long getUnsolvable();
+
+    /**
+     * Number of solves stopped by their deadline or node budget.
+     */
+    long getTimedOut();
+
+    /**
+     * Number of solves cancelled or interrupted.
+     */
+    long getCancelled();
+
+    /**
+     * Solves per second over the last minute or so (see `SolveMetrics`); unaffected by other
+     * readers.
+     */
+    double getSolvesPerSecond();
+
+    /**
+     * Search nodes per second over the same window as getSolvesPerSecond().
+     */
+    double getNodesPerSecond();
+
+    /**
+     * Current depth of each registered queue, by queue name.
+     */
+    Map<String, Integer> getQueueDepths();
+
+    /**
+     * Median solve time in microseconds, by strategy name; strategies without solves are left out.
+     */
+    Map<String, Long> getLatencyP50Micros();
+
+    /**
+     * 99th percentile solve time in microseconds, by strategy name.
+     */
+    Map<String, Long> getLatencyP99Micros();
+
+    /**
+     * 99.9th percentile solve time in microseconds, by strategy name.
+     */
+    Map<String, Long> getLatencyP999Micros();
+
+    /**
+     * Returns all metrics as text, one `name{labels} value` line each.
+     */
+    String scrape();
+}
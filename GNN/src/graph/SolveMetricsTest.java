@@ -0,0 +1,102 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class SolveMetricsTest {
+
+    @DisplayName("GIVEN times from 0 to 2^40 ns, WHEN they are bucketed, THEN buckets should grow "
+            + "with the time AND each bucket's upper bound should be within 12.5% above the time")
+    @Test
+    void testBuckets() {
+        int last = 0;
+        for (long nanos = 0; nanos < 1L << 40; nanos = nanos * 9 / 8 + 1) {
+            int bucket = SolveMetrics.bucket(nanos);
+            assertTrue(bucket >= last && bucket < SolveMetrics.BUCKETS, "bucket of " + nanos);
+            long upper = SolveMetrics.upperBound(bucket);
+            assertTrue(upper >= nanos && upper <= nanos + nanos / 8, nanos + " -> " + upper);
+            last = bucket;
+        }
+        assertEquals(SolveMetrics.BUCKETS - 1, SolveMetrics.bucket(Long.MAX_VALUE));
+    }
+
+    @DisplayName("GIVEN threads recording solves at once, WHEN the metrics are read, THEN no solve "
+            + "should be lost AND the percentiles should match the recorded times")
+    @Test
+    void testConcurrentRecording() throws InterruptedException {
+        SolveMetrics metrics = new SolveMetrics();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                // Times of 1 to 1000 microseconds, once each per thread.
+                for (int i = 1; i <= 1000; i++) {
+                    SolveResult.Status status = i % 10 == 0 ? SolveResult.Status.TIMEOUT
+                            : SolveResult.Status.SOLVED;
+                    metrics.record(SolveStrategy.BITMASK, status, 3, i * 1000L);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(4000, metrics.getSolves());
+        assertEquals(12000, metrics.getNodes());
+        assertEquals(3600, metrics.getSolved());
+        assertEquals(400, metrics.getTimedOut());
+        assertEquals(0, metrics.getUnsolvable());
+
+        long p50 = metrics.getLatencyP50Micros().get("BITMASK");
+        long p99 = metrics.getLatencyP99Micros().get("BITMASK");
+        assertTrue(p50 >= 500 && p50 <= 500 * 9 / 8, "p50 " + p50);
+        assertTrue(p99 >= 990 && p99 <= 990 * 9 / 8, "p99 " + p99);
+        assertEquals(-1, metrics.percentileNanos(SolveStrategy.COLORING, 0.5));
+        assertFalse(metrics.getLatencyP999Micros().containsKey("COLORING"));
+
+        metrics.registerQueue("test", () -> 7);
+        String text = metrics.scrape();
+        assertTrue(text.contains("solves_by_status{status=\"TIMEOUT\"} 400\n"), text);
+        assertTrue(text.contains("queue_depth{queue=\"test\"} 7\n"), text);
+        assertTrue(text.contains("solve_latency_count{strategy=\"BITMASK\"} 4000\n"), text);
+    }
+
+    @DisplayName("GIVEN solves just recorded, WHEN the rates are read over JMX and by scrape() one "
+            + "after another, THEN every read should already count them AND no read should reset "
+            + "the window of the others")
+    @Test
+    void testRatesSharedByReaders() {
+        SolveMetrics metrics = new SolveMetrics();
+        for (int i = 0; i < 100; i++) {
+            metrics.record(SolveStrategy.BITMASK, SolveResult.Status.SOLVED, 10, 1000);
+        }
+        double solves = metrics.getSolvesPerSecond();
+        assertTrue(solves > 0);
+        assertTrue(metrics.getNodesPerSecond() > 0);
+        assertFalse(metrics.scrape().contains("solves_per_second 0.000\n"));
+        assertTrue(metrics.getSolvesPerSecond() > 0);
+        assertTrue(metrics.getSolvesPerSecond() <= solves);
+        assertFalse(metrics.scrape().contains("\r"));
+    }
+
+    @DisplayName("WHEN a graph is solved, THEN the solve should show in the global metrics read "
+            + "through the platform MBean server")
+    @Test
+    void testJmx() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        SolveMetrics metrics = SolveMetrics.global();
+        ObjectName name = new ObjectName(SolveMetrics.OBJECT_NAME);
+        long solved = (Long) server.getAttribute(name, "Solved");
+        SudokuGraph graph = SudokuGraph.fromGrid(CandidateEngineTest.parse(SudokuSolverTest.PUZZLE));
+        assertTrue(graph.solve(SolveStrategy.COLORING));
+        assertTrue((Long) server.getAttribute(name, "Solved") > solved);
+        assertTrue(metrics.percentileNanos(SolveStrategy.COLORING, 0.5) > 0);
+        assertTrue(((String) server.invoke(name, "scrape", null, null))
+                .contains("solve_latency_micros{strategy=\"COLORING\",quantile=\"0.999\"}"));
+    }
+}
@@ -0,0 +1,16 @@
+package graph;
+
+/**
+ * Observer of a running solve.  The solver calls `onProgress()` every `SudokuGraph.MONITOR_INTERVAL`
+ * search nodes from the solving thread, so implementations must be cheap and must copy anything
+ * they hand to other threads.
+ */
+public interface SolveMonitor {
+
+    /**
+     * Called with the board being solved and the number of search nodes expanded so far.  Throw
+     * `java.util.concurrent.CancellationException` to abandon the solve; the board is then left
+     * partially filled.
+     */
+    void onProgress(SudokuGraph graph, long nodes);
+}
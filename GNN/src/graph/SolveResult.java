@@ -0,0 +1,24 @@
+package graph;
+
+/**
+ * Outcome of a bounded solve.  'grid' is the solution if 'status' is SOLVED, and otherwise the most
+ * complete assignment the search reached (all zeros if it never placed a value); 'nodes' counts
+ * the search nodes of this solve only.
+ */
+public record SolveResult(Status status, long nodes, int[] grid) {
+
+    public enum Status {
+        // 'grid' is a solution.
+        SOLVED,
+        // The search finished without finding a solution.
+        UNSOLVABLE,
+        // The deadline or node budget ran out.
+        TIMEOUT,
+        // The solving thread was interrupted or the monitor cancelled the solve.
+        CANCELLED
+    }
+
+    public boolean solved() {
+        return status == Status.SOLVED;
+    }
+}
@@ -0,0 +1,378 @@
+package graph;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HTTP service solving puzzles, built on the JDK's `com.sun.net.httpserver` only.
+ *
+ * `POST /solve` takes puzzles in one-line format (see `PuzzleIO`), one per line.  A single puzzle
+ * is answered with one JSON object, several with one JSON object per line (NDJSON), in order:
+ *
+ *     {"puzzle":"53..7....","status":"SOLVED","solved":true,"solution":"534678912...",
+ *      "nodes":41,"micros":85}
+ *
+ * Every puzzle must be solved within a deadline counted from the time the request is queued,
+ * `timeoutMs` milliseconds if given as a query parameter (`/solve?timeoutMs=50`) and the server's
+ * default otherwise.  A puzzle running out of time is answered with status TIMEOUT and the most
+ * complete board reached as "partial", so a pathological input holds a worker for a bounded time.
+ *
+ * `GET /stats` reports counters and the current queue depth as JSON, and `GET /metrics` the
+ * process-wide `SolveMetrics` as text, including this server's queue depth and solve latencies.
+ *
+ * Requests are handled on virtual threads, which only parse puzzles, queue them and wait.
+ * Puzzles are solved by a fixed pool of platform worker threads, each loading every puzzle into
+ * its `SolverPool` solver, which it keeps for its whole life.  A worker takes every puzzle waiting
+ * in the queue (up to `MAX_BATCH`) in one go, so concurrent requests are solved in micro-batches
+ * without a handoff per puzzle.  When the queue cannot take all the puzzles of a request, the
+ * request is rejected with status 429 instead of waiting; batches larger than the queue capacity
+ * are therefore always rejected.  Requests still waiting for puzzles when the server stops are
+ * answered with status 503.
+ *
+ * `SolveLoadGenerator` measures throughput and latency percentiles against a running server.
+ */
+public class SolveServer {
+
+    // Most puzzles a worker takes from the queue at once.
+    static final int MAX_BATCH = 64;
+
+    /**
+     * A puzzle waiting to be solved, completed by a worker with its JSON result.
+     */
+    private record Job(int[] grid, SolveBudget budget, CompletableFuture<String> result) {
+    }
+
+    private final HttpServer server;
+
+    // Runs the request handlers, one virtual thread each.
+    private final ExecutorService handlers = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Puzzles waiting for a worker.
+    private final BlockingQueue<Job> queue;
+
+    private final Thread[] workers;
+
+    // Set by stop(), under the lock of 'queue'; no job is queued afterwards.
+    private boolean stopped;
+
+    // Deadline of puzzles whose request does not set 'timeoutMs'.
+    private final Duration defaultTimeout;
+
+    // Counters reported by /stats.
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder puzzles = new LongAdder();
+    private final LongAdder solved = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    /**
+     * Create a server listening on 'port' (0 for any free port) with 'workerCount' solver threads,
+     * room for 'queueCapacity' waiting puzzles and 'defaultTimeout' per puzzle.  Call `start()` to
+     * accept requests.
+     */
+    public SolveServer(int port, int workerCount, int queueCapacity, Duration defaultTimeout)
+            throws IOException {
+        this.defaultTimeout = defaultTimeout;
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(handlers);
+        server.createContext("/solve", this::handleSolve);
+        server.createContext("/stats", this::handleStats);
+        server.createContext("/metrics", this::handleMetrics);
+        workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Thread(this::work, "solver-" + i);
+            workers[i].setDaemon(true);
+        }
+    }
+
+    /**
+     * Return the port the server listens on.
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Start the workers and accept requests.
+     */
+    public void start() {
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        server.start();
+        SolveMetrics.global().registerQueue(queueName(), queue::size);
+    }
+
+    /**
+     * Stop accepting requests.  Puzzles still queued are dropped and their requests answered with
+     * status 503; puzzles being solved are finished.  Waits up to 'delaySeconds' for the answers
+     * to be sent, then stops the workers, and returns once every request handler has finished.
+     */
+    public void stop(int delaySeconds) {
+        SolveMetrics.global().unregisterQueue(queueName());
+        List<Job> dropped = new ArrayList<>();
+        synchronized (queue) {
+            stopped = true;
+            queue.drainTo(dropped);
+        }
+        for (Job job : dropped) {
+            job.result().cancel(false);
+        }
+        server.stop(delaySeconds);
+        // Interrupting a worker cancels its current puzzle through the budget check, completing
+        // the last jobs that the handlers below may wait for.
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        handlers.close();
+    }
+
+    // Name of this server's queue in SolveMetrics.
+    private String queueName() {
+        return "solve-server:" + port();
+    }
+
+    /**
+     * Body of a worker thread: repeatedly take a batch of jobs and solve it with this thread's
+     * pooled solver.
+     */
+    private void work() {
+        SudokuSolver solver = SolverPool.solver();
+        List<Job> batch = new ArrayList<>(MAX_BATCH);
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH - 1);
+                batches.increment();
+                for (Job job : batch) {
+                    try {
+                        job.result().complete(solve(solver, job));
+                    } catch (RuntimeException e) {
+                        job.result().completeExceptionally(e);
+                    }
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // Server stopped.
+        }
+    }
+
+    /**
+     * Solve the puzzle of 'job' with 'solver' and return the JSON result.
+     */
+    private String solve(SudokuSolver solver, Job job) {
+        long start = System.nanoTime();
+        solver.setProgress(job.budget()::check);
+        SolveResult.Status status = solver.load(job.grid());
+        long nanos = System.nanoTime() - start;
+        long micros = nanos / 1000;
+        SolveMetrics.global().record(SolveStrategy.BITMASK, status, solver.nodes(), nanos);
+        if (status == SolveResult.Status.SOLVED) {
+            solved.increment();
+        } else if (status == SolveResult.Status.TIMEOUT) {
+            timedOut.increment();
+        }
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"puzzle\":\"").append(PuzzleIO.format(job.grid()))
+                .append("\",\"status\":\"").append(status)
+                .append("\",\"solved\":").append(status == SolveResult.Status.SOLVED);
+        if (status != SolveResult.Status.UNSOLVABLE) {
+            int[] board = solver.solution();
+            String field = status == SolveResult.Status.SOLVED ? "solution" : "partial";
+            json.append(",\"").append(field).append("\":\"").append(PuzzleIO.format(board))
+                    .append('"');
+        }
+        json.append(",\"nodes\":").append(solver.nodes())
+                .append(",\"micros\":").append(micros).append('}');
+        return json.toString();
+    }
+
+    private void handleSolve(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.increment();
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "application/json", "{\"error\":\"use POST\"}\n");
+                return;
+            }
+            SolveBudget budget = SolveBudget.of(timeout(exchange.getRequestURI().getQuery()));
+            String[] lines = readBody(exchange.getRequestBody()).split("\r?\n");
+            List<CompletableFuture<String>> results = new ArrayList<>(lines.length);
+            List<Job> jobs = new ArrayList<>(lines.length);
+            for (String line : lines) {
+                String puzzle = line.strip();
+                if (puzzle.isEmpty()) {
+                    continue;
+                }
+                int[] grid = PuzzleIO.parse(puzzle);
+                if (grid == null) {
+                    results.add(CompletableFuture.completedFuture(
+                            "{\"puzzle\":\"" + escape(puzzle) + "\",\"error\":\"not a puzzle\"}"));
+                } else {
+                    Job job = new Job(grid, budget, new CompletableFuture<>());
+                    jobs.add(job);
+                    results.add(job.result());
+                }
+            }
+            if (results.isEmpty()) {
+                send(exchange, 400, "application/json", "{\"error\":\"no puzzle\"}\n");
+                return;
+            }
+            if (!enqueue(jobs)) {
+                if (isStopped()) {
+                    send(exchange, 503, "application/json", "{\"error\":\"server stopping\"}\n");
+                    return;
+                }
+                rejected.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 429, "application/json", "{\"error\":\"queue full\"}\n");
+                return;
+            }
+            puzzles.add(jobs.size());
+            StringBuilder body = new StringBuilder(results.size() * 256);
+            try {
+                for (CompletableFuture<String> result : results) {
+                    body.append(result.get()).append('\n');
+                }
+            } catch (CancellationException e) {
+                // Dropped by stop().
+                send(exchange, 503, "application/json", "{\"error\":\"server stopping\"}\n");
+                return;
+            }
+            send(exchange, 200, results.size() == 1 ? "application/json" : "application/x-ndjson",
+                    body.toString());
+        } catch (InterruptedException e) {
+            // Server stopping: the exchange is closed without a response.
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Return the timeout set by the 'timeoutMs' parameter of 'query', or the default timeout.
+     */
+    private Duration timeout(String query) {
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("timeoutMs=")) {
+                    try {
+                        return Duration.ofMillis(Long.parseLong(parameter.substring(10)));
+                    } catch (NumberFormatException e) {
+                        break;
+                    }
+                }
+            }
+        }
+        return defaultTimeout;
+    }
+
+    /**
+     * Add all of 'jobs' to the queue, or none of them if there is not room for all or the server
+     * is stopping.  Returns whether they were added.
+     */
+    private boolean enqueue(List<Job> jobs) {
+        // Lock the queue's producers out while checking, so two requests can't both fit.
+        synchronized (queue) {
+            if (stopped || queue.remainingCapacity() < jobs.size()) {
+                return false;
+            }
+            queue.addAll(jobs);
+            return true;
+        }
+    }
+
+    // Whether stop() has been called.
+    private boolean isStopped() {
+        synchronized (queue) {
+            return stopped;
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String json = "{\"requests\":" + requests.sum()
+                    + ",\"puzzles\":" + puzzles.sum()
+                    + ",\"solved\":" + solved.sum()
+                    + ",\"rejected\":" + rejected.sum()
+                    + ",\"timedOut\":" + timedOut.sum()
+                    + ",\"batches\":" + batches.sum()
+                    + ",\"queueDepth\":" + queue.size()
+                    + ",\"workers\":" + workers.length + "}\n";
+            send(exchange, 200, "application/json", json);
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            send(exchange, 200, "text/plain; charset=utf-8", SolveMetrics.global().scrape());
+        }
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        in.transferTo(bytes);
+        return bytes.toString(StandardCharsets.US_ASCII);
+    }
+
+    private static void send(HttpExchange exchange, int status, String type, String body)
+            throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", type);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // Escape a string for a JSON string literal.
+    private static String escape(String s) {
+        StringBuilder out = new StringBuilder(s.length());
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Run a server.  Arguments: [port [workers [queue capacity [timeout ms]]]], defaulting to
+     * 8080, the number of processors, 4096 and 1000.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int workerCount = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        int capacity = args.length > 2 ? Integer.parseInt(args[2]) : 4096;
+        long timeoutMs = args.length > 3 ? Long.parseLong(args[3]) : 1000;
+        SolveServer server = new SolveServer(port, workerCount, capacity,
+                Duration.ofMillis(timeoutMs));
+        server.start();
+        System.out.println("Solving on http://localhost:" + server.port() + "/solve with "
+                + workerCount + " workers");
+    }
+}
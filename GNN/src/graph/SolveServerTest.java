@@ -0,0 +1,198 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class SolveServerTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    // Server under test; stopped after each test.
+    private SolveServer server;
+
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.stop(0);
+        }
+        client.close();
+    }
+
+    /**
+     * Start a server on a free port with 'workers' solver threads and room for 'capacity'
+     * waiting puzzles.
+     */
+    private void start(int workers, int capacity) throws IOException {
+        server = new SolveServer(0, workers, capacity, Duration.ofSeconds(10));
+        server.start();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + server.port() + path);
+    }
+
+    private HttpResponse<String> post(String path, String body)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri(path))
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri(path)).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    // Return the value of the string field 'name' of the JSON object 'json', or null.
+    private static String field(String json, String name) {
+        String key = "\"" + name + "\":\"";
+        int at = json.indexOf(key);
+        if (at < 0) {
+            return null;
+        }
+        at += key.length();
+        return json.substring(at, json.indexOf('"', at));
+    }
+
+    @DisplayName("GIVEN a running server, WHEN one puzzle is posted, THEN it should answer one "
+            + "JSON object with the solution AND several puzzles should be answered as NDJSON in "
+            + "order, with a line that is not a puzzle reported in its place")
+    @Test
+    void testSolve() throws IOException, InterruptedException {
+        start(2, 64);
+        HttpResponse<String> response = post("/solve", SudokuSolverTest.PUZZLE + "\n");
+        assertEquals(200, response.statusCode());
+        assertEquals("application/json",
+                response.headers().firstValue("Content-Type").orElse(null));
+        assertEquals("SOLVED", field(response.body(), "status"));
+        assertEquals(CandidateEngineTest.SOLUTION, field(response.body(), "solution"));
+
+        String body = HintFinderTest.NYT_HARD + "\nnot a puzzle\r\n"
+                + SudokuGraphTest.HARD_UNSOLVABLE + "\n\n" + SudokuSolverTest.PUZZLE + "\n";
+        response = post("/solve", body);
+        assertEquals(200, response.statusCode());
+        assertEquals("application/x-ndjson",
+                response.headers().firstValue("Content-Type").orElse(null));
+        List<String> lines = response.body().lines().toList();
+        assertEquals(4, lines.size());
+        assertEquals(HintFinderTest.NYT_HARD, field(lines.get(0), "puzzle"));
+        assertEquals("SOLVED", field(lines.get(0), "status"));
+        assertEquals("not a puzzle", field(lines.get(1), "error"));
+        assertEquals("UNSOLVABLE", field(lines.get(2), "status"));
+        assertNull(field(lines.get(2), "partial"));
+        assertEquals("SOLVED", field(lines.get(3), "status"));
+
+        assertEquals(400, post("/solve", "\n").statusCode());
+        assertEquals(405, get("/solve").statusCode());
+    }
+
+    @DisplayName("GIVEN a server whose puzzles cannot finish in time, WHEN a puzzle is posted "
+            + "with timeoutMs=0, THEN it should be answered with TIMEOUT and a partial board "
+            + "keeping its givens")
+    @Test
+    void testTimeout() throws IOException, InterruptedException {
+        start(1, 64);
+        HttpResponse<String> response = post("/solve?timeoutMs=0",
+                SudokuGraphTest.HARD_UNSOLVABLE + "\n");
+        assertEquals(200, response.statusCode());
+        assertEquals("TIMEOUT", field(response.body(), "status"));
+        assertTrue(response.body().contains("\"solved\":false"));
+        String partial = field(response.body(), "partial");
+        assertNotNull(partial, response.body());
+        assertNull(field(response.body(), "solution"));
+        int[] givens = PuzzleIO.parse(SudokuGraphTest.HARD_UNSOLVABLE);
+        int[] board = PuzzleIO.parse(partial);
+        for (int cell = 0; cell < 81; cell++) {
+            assertTrue(givens[cell] == 0 || givens[cell] == board[cell]);
+        }
+    }
+
+    @DisplayName("GIVEN a server without workers and room for 2 puzzles, WHEN puzzles are "
+            + "posted, THEN a batch larger than the free room should get 429 with Retry-After AND "
+            + "/stats should count the requests, the rejection and the queued puzzles")
+    @Test
+    void testQueueFullAndStats() throws IOException, InterruptedException {
+        start(0, 2);
+        String three = (SudokuSolverTest.PUZZLE + "\n").repeat(3);
+        HttpResponse<String> response = post("/solve", three);
+        assertEquals(429, response.statusCode());
+        assertEquals("1", response.headers().firstValue("Retry-After").orElse(null));
+
+        // Two puzzles fill the queue, as nothing takes them, so the next one is rejected.
+        CompletableFuture<HttpResponse<String>> waiting = client.sendAsync(
+                HttpRequest.newBuilder(uri("/solve")).POST(HttpRequest.BodyPublishers.ofString(
+                        (SudokuSolverTest.PUZZLE + "\n").repeat(2))).build(),
+                HttpResponse.BodyHandlers.ofString());
+        awaitQueueDepth(2);
+        assertEquals(429, post("/solve", SudokuSolverTest.PUZZLE).statusCode());
+
+        String stats = get("/stats").body();
+        assertTrue(stats.contains("\"requests\":3,"), stats);
+        assertTrue(stats.contains("\"puzzles\":2,"), stats);
+        assertTrue(stats.contains("\"rejected\":2,"), stats);
+        assertTrue(stats.contains("\"queueDepth\":2,"), stats);
+        assertTrue(stats.contains("\"workers\":0}"), stats);
+        assertFalse(waiting.isDone());
+    }
+
+    @DisplayName("GIVEN requests waiting in the queue of a server without workers, WHEN the "
+            + "server is stopped, THEN they should be answered with 503 AND stop() should return "
+            + "once they have been")
+    @Test
+    void testStopAnswersQueuedRequests() throws Exception {
+        start(0, 8);
+        CompletableFuture<HttpResponse<String>> first = client.sendAsync(
+                HttpRequest.newBuilder(uri("/solve")).POST(HttpRequest.BodyPublishers.ofString(
+                        SudokuSolverTest.PUZZLE)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        CompletableFuture<HttpResponse<String>> second = client.sendAsync(
+                HttpRequest.newBuilder(uri("/solve")).POST(HttpRequest.BodyPublishers.ofString(
+                        (HintFinderTest.NYT_HARD + "\n").repeat(3))).build(),
+                HttpResponse.BodyHandlers.ofString());
+        awaitQueueDepth(4);
+
+        long start = System.nanoTime();
+        server.stop(5);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        server = null;
+        for (CompletableFuture<HttpResponse<String>> response : List.of(first, second)) {
+            assertEquals(503, response.get(5, TimeUnit.SECONDS).statusCode());
+            assertTrue(response.get().body().contains("server stopping"));
+        }
+    }
+
+    @DisplayName("GIVEN a running server, WHEN the load generator runs against it for a second, "
+            + "THEN every request should succeed")
+    @Test
+    void testLoadGenerator() throws IOException, InterruptedException {
+        start(2, 256);
+        SolveLoadGenerator.Result result = SolveLoadGenerator.run(uri("/solve"),
+                List.of(SudokuSolverTest.PUZZLE, HintFinderTest.NYT_HARD), 4, 1, 2);
+        assertTrue(result.requests() > 0);
+        assertEquals(2 * result.requests(), result.puzzles());
+        assertEquals(0, result.errors());
+        assertEquals(0, result.rejected());
+        assertTrue(result.p50() <= result.p99() && result.p99() <= result.p999());
+    }
+
+    // Poll /stats until 'depth' puzzles are queued.
+    private void awaitQueueDepth(int depth) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!get("/stats").body().contains("\"queueDepth\":" + depth + ",")) {
+            assertTrue(System.nanoTime() < deadline, "queue never reached " + depth);
+            Thread.sleep(10);
+        }
+    }
+}
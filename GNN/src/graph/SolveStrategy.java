@@ -0,0 +1,33 @@
+package graph;
+
+/**
+ * The ways SudokuGraph.solve() can search for a solution.
+ */
+public enum SolveStrategy {
+
+    // sudokuSolverB: positions in order, trying every value that validValue() accepts.
+    SOLVER_B("Solver B (valid values)"),
+
+    // sudokuSolverA: positions by fewest possibilities, trying the values of fillPossibilities().
+    SOLVER_A("Solver A (possibilities)"),
+
+    // GraphColoring: DSatur backtracking over the 9-coloring of peerGraph().
+    COLORING("DSatur coloring"),
+
+    // SudokuSolver: fewest candidates first over digit bitmasks.
+    BITMASK("Bitmask MRV"),
+
+    // SudokuSolver with random value order and Luby restarts, for puzzles with long searches.
+    RESTARTS("Bitmask MRV, random restarts");
+
+    private final String description;
+
+    SolveStrategy(String description) {
+        this.description = description;
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+}
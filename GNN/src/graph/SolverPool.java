@@ -0,0 +1,52 @@
+package graph;
+
+/**
+ * Hands out one reusable solver and one reusable graph per thread, so that batch and service code
+ * loads each puzzle into an existing instance (copying 81 values) instead of building a new one.
+ * An instance stays with its thread for the thread's lifetime.
+ *
+ * Meant for long-lived platform threads such as server workers and executor threads.  Each virtual
+ * thread would get instances of its own that die with it, so code running on virtual threads
+ * should create solvers directly.  The instance returned is shared by all callers on the thread:
+ * do not hold on to it across calls that may use the pool themselves.
+ */
+public final class SolverPool {
+
+    private static final ThreadLocal<SudokuSolver> SOLVERS =
+            ThreadLocal.withInitial(SudokuSolver::new);
+
+    private static final ThreadLocal<SudokuGraph> GRAPHS =
+            ThreadLocal.withInitial(SudokuGraph::new);
+
+    private SolverPool() {
+    }
+
+    /**
+     * Return this thread's SudokuSolver with the default settings (no transposition table, trace
+     * or network) and no progress callback.  Its saved phases are kept from earlier puzzles, which
+     * only changes the order values are tried in; call `reset()` for a solver that behaves exactly
+     * as a new one.
+     */
+    public static SudokuSolver solver() {
+        SudokuSolver solver = SOLVERS.get();
+        solver.setProgress(null);
+        solver.setTrace(null);
+        solver.setNetwork(null);
+        solver.setValueOrder(SudokuSolver.ValueOrder.PHASE);
+        solver.setRestarts(RestartPolicy.NONE);
+        solver.setSeed(0);
+        solver.setTranspositionTable(0);
+        return solver;
+    }
+
+    /**
+     * Return this thread's SudokuGraph loaded with 'grid' (see `SudokuGraph.load()`), without a
+     * monitor.
+     */
+    public static SudokuGraph graph(int[] grid) {
+        SudokuGraph graph = GRAPHS.get();
+        graph.setMonitor(null);
+        graph.load(grid);
+        return graph;
+    }
+}
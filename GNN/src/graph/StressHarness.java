@@ -0,0 +1,450 @@
+package graph;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Differential stress test of the solvers: runs every engine on sets of puzzles and checks each
+ * answer against a reference count of the puzzle's solutions, made by a plain backtracking counter
+ * that shares no code with the engines.  A puzzle without solutions must be reported UNSOLVABLE;
+ * any other puzzle must be SOLVED with a complete, valid board that keeps the givens, and for a
+ * puzzle with one solution, with that solution.  Running out of budget is not a failure, but is
+ * counted in the engine's timings.
+ *
+ * A failing puzzle is shrunk before it is reported: givens are cleared one at a time, and each
+ * clearing is kept while the engine still fails the same way, until no single given can go.  The
+ * reproducer is usually a handful of givens instead of a full puzzle.
+ *
+ * Every run also times each engine, so a change that makes a strategy slower shows up next to the
+ * one that makes it wrong.  `main()` runs the generated sets and any puzzle files given.
+ */
+public final class StressHarness {
+
+    /**
+     * A solver under test.
+     */
+    @FunctionalInterface
+    public interface Engine {
+
+        /**
+         * Solve 'puzzle' (81 values, 0 for empty), which the engine must not modify.
+         */
+        SolveResult solve(int[] puzzle);
+    }
+
+    /**
+     * Generated puzzle sets.
+     */
+    public enum Kind {
+        // Random solutions with 25 to 45 random givens kept; mostly unique, some with many
+        // solutions.
+        RANDOM,
+        // Puzzles with one solution from which no given can be removed: 20 to 26 givens, the
+        // sparsest puzzles the generator finds.  Files of 17-clue puzzles can be added to main().
+        MINIMAL,
+        // Puzzles without solutions: half repeat a digit in a unit, half have no repeat but a
+        // wrong given.
+        INVALID,
+        // Puzzles with several solutions.
+        MULTIPLE
+    }
+
+    /**
+     * A puzzle on which 'engine' gave a wrong answer, described by 'problem', with 'minimal' the
+     * shrunk puzzle failing the same way.
+     */
+    public record Failure(String engine, String problem, int[] puzzle, int[] minimal) {
+
+        @Override
+        public String toString() {
+            return engine + ": " + problem + "\n  puzzle  " + PuzzleIO.format(puzzle)
+                    + "\n  minimal " + PuzzleIO.format(minimal);
+        }
+    }
+
+    /**
+     * Totals of one engine over a run: puzzles, how many it solved, proved unsolvable or ran out
+     * of budget on, search nodes, and total and longest solve time.
+     */
+    public record Timing(int runs, int solved, int unsolvable, int timeouts, long nodes,
+                         long nanos, long maxNanos) {
+
+        Timing add(SolveResult result, long elapsed) {
+            SolveResult.Status status = result.status();
+            return new Timing(runs + 1, solved + (status == SolveResult.Status.SOLVED ? 1 : 0),
+                    unsolvable + (status == SolveResult.Status.UNSOLVABLE ? 1 : 0),
+                    timeouts + (status == SolveResult.Status.TIMEOUT
+                            || status == SolveResult.Status.CANCELLED ? 1 : 0),
+                    nodes + result.nodes(), nanos + elapsed, Math.max(maxNanos, elapsed));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d runs (%d solved, %d unsolvable, %d out of budget), "
+                            + "%d nodes, mean %.1f us, max %.1f us", runs, solved, unsolvable,
+                    timeouts, nodes, runs == 0 ? 0 : nanos / 1e3 / runs, maxNanos / 1e3);
+        }
+    }
+
+    /**
+     * Outcome of a run: timings by engine name and the failures found.
+     */
+    public record Report(Map<String, Timing> timings, List<Failure> failures) {
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            timings.forEach((name, timing) -> text.append(String.format("%-10s %s%n", name,
+                    timing)));
+            text.append(failures.size()).append(" failures");
+            for (Failure failure : failures) {
+                text.append('\n').append(failure);
+            }
+            return text.toString();
+        }
+    }
+
+    // Solutions the reference counts up to: enough to tell none, one and several apart.
+    static final int COUNT_LIMIT = 2;
+
+    private final Map<String, Engine> engines;
+
+    /**
+     * Create a harness checking 'engines', by name, in iteration order.
+     */
+    public StressHarness(Map<String, Engine> engines) {
+        this.engines = new LinkedHashMap<>(engines);
+    }
+
+    /**
+     * Return engines for every `SolveStrategy`, solving through `SudokuGraph`, and for
+     * `BatchSolver`, each stopping after 'timeout' or 'maxNodes' nodes.
+     */
+    public static Map<String, Engine> allEngines(Duration timeout, long maxNodes) {
+        Map<String, Engine> engines = new LinkedHashMap<>();
+        for (SolveStrategy strategy : SolveStrategy.values()) {
+            engines.put(strategy.name(), puzzle -> SudokuGraph.fromGrid(puzzle)
+                    .solve(strategy, SolveBudget.of(timeout, maxNodes)));
+        }
+        BatchSolver batch = new BatchSolver(1, maxNodes);
+        engines.put("BATCH", puzzle -> {
+            int[] solution = new int[81];
+            SolveResult.Status[] status = new SolveResult.Status[1];
+            long before = batch.totalNodes();
+            batch.solveBatch(puzzle, 1, solution, status);
+            return new SolveResult(status[0], batch.totalNodes() - before,
+                    status[0] == SolveResult.Status.SOLVED ? solution : puzzle.clone());
+        });
+        return engines;
+    }
+
+    /**
+     * Run every engine on every puzzle of 'puzzles', returning the timings and failures.
+     */
+    public Report run(List<int[]> puzzles) {
+        Map<String, Timing> timings = new LinkedHashMap<>();
+        engines.keySet().forEach(name -> timings.put(name, new Timing(0, 0, 0, 0, 0, 0, 0)));
+        List<Failure> failures = new ArrayList<>();
+        int[] unique = new int[81];
+        for (int[] puzzle : puzzles) {
+            int solutions = countSolutions(puzzle, COUNT_LIMIT, unique);
+            for (Map.Entry<String, Engine> entry : engines.entrySet()) {
+                Engine engine = entry.getValue();
+                long start = System.nanoTime();
+                SolveResult result = engine.solve(puzzle.clone());
+                long elapsed = System.nanoTime() - start;
+                timings.put(entry.getKey(), timings.get(entry.getKey()).add(result, elapsed));
+                String problem = check(puzzle, solutions, unique, result);
+                if (problem != null) {
+                    failures.add(new Failure(entry.getKey(), problem, puzzle.clone(),
+                            shrink(engine, puzzle, problem)));
+                }
+            }
+        }
+        return new Report(timings, failures);
+    }
+
+    /**
+     * Return what is wrong with 'result' as an answer for 'puzzle', which has 'solutions'
+     * solutions (counted up to COUNT_LIMIT), the only one being 'unique' if there is one; or null
+     * if the answer is right or the engine ran out of budget.
+     */
+    static String check(int[] puzzle, int solutions, int[] unique, SolveResult result) {
+        SolveResult.Status status = result.status();
+        if (status == SolveResult.Status.TIMEOUT || status == SolveResult.Status.CANCELLED) {
+            return null;
+        }
+        if (solutions == 0) {
+            return status == SolveResult.Status.UNSOLVABLE ? null
+                    : "reported " + status + " for a puzzle without solutions";
+        }
+        if (status != SolveResult.Status.SOLVED) {
+            return "reported " + status + " for a puzzle with solutions";
+        }
+        int[] grid = result.grid();
+        if (grid == null || grid.length != 81 || !isSolution(puzzle, grid)) {
+            return "returned a board that does not solve the puzzle";
+        }
+        if (solutions == 1 && !Arrays.equals(grid, unique)) {
+            return "returned a solution other than the only one";
+        }
+        return null;
+    }
+
+    /**
+     * Return a puzzle failing 'engine' with 'problem', made from 'puzzle' by clearing givens for
+     * as long as the failure stays.
+     */
+    int[] shrink(Engine engine, int[] puzzle, String problem) {
+        int[] current = puzzle.clone();
+        int[] unique = new int[81];
+        boolean shrunk = true;
+        while (shrunk) {
+            shrunk = false;
+            for (int cell = 0; cell < 81; cell++) {
+                int value = current[cell];
+                if (value == 0) {
+                    continue;
+                }
+                current[cell] = 0;
+                int solutions = countSolutions(current, COUNT_LIMIT, unique);
+                if (problem.equals(check(current, solutions, unique,
+                        engine.solve(current.clone())))) {
+                    shrunk = true;
+                } else {
+                    current[cell] = value;
+                }
+            }
+        }
+        return current;
+    }
+
+    // Whether 'grid' is complete, repeats no digit in a unit and keeps the givens of 'puzzle'.
+    private static boolean isSolution(int[] puzzle, int[] grid) {
+        int[] seen = new int[27];
+        for (int cell = 0; cell < 81; cell++) {
+            int value = grid[cell];
+            if (value < 1 || value > 9 || puzzle[cell] != 0 && puzzle[cell] != value) {
+                return false;
+            }
+            for (int unit : SudokuUnits.CLASSIC.unitsOf[cell]) {
+                if ((seen[unit] & 1 << value) != 0) {
+                    return false;
+                }
+                seen[unit] |= 1 << value;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Count the solutions of 'puzzle', stopping at 'limit', and store the first one found in
+     * 'first'.  A plain backtracking search over row, column and box digit masks, filling the
+     * empty cell with fewest candidates first; it is deliberately independent of the engines.
+     */
+    static int countSolutions(int[] puzzle, int limit, int[] first) {
+        int[] grid = puzzle.clone();
+        int[] used = new int[27];
+        for (int cell = 0; cell < 81; cell++) {
+            int value = grid[cell];
+            if (value == 0) {
+                continue;
+            }
+            int bit = 1 << (value - 1);
+            for (int unit : SudokuUnits.CLASSIC.unitsOf[cell]) {
+                if ((used[unit] & bit) != 0) {
+                    return 0;
+                }
+                used[unit] |= bit;
+            }
+        }
+        return count(grid, used, limit, first, 0);
+    }
+
+    private static int count(int[] grid, int[] used, int limit, int[] first, int found) {
+        int best = -1;
+        int bestFree = 0;
+        int fewest = 10;
+        for (int cell = 0; cell < 81 && fewest > 1; cell++) {
+            if (grid[cell] != 0) {
+                continue;
+            }
+            int[] units = SudokuUnits.CLASSIC.unitsOf[cell];
+            int free = ~(used[units[0]] | used[units[1]] | used[units[2]]) & 0x1FF;
+            int n = Integer.bitCount(free);
+            if (n < fewest) {
+                fewest = n;
+                best = cell;
+                bestFree = free;
+            }
+        }
+        if (best < 0) {
+            if (found == 0) {
+                System.arraycopy(grid, 0, first, 0, 81);
+            }
+            return found + 1;
+        }
+        int[] units = SudokuUnits.CLASSIC.unitsOf[best];
+        for (int free = bestFree; free != 0 && found < limit; free &= free - 1) {
+            int bit = free & -free;
+            grid[best] = Integer.numberOfTrailingZeros(bit) + 1;
+            used[units[0]] |= bit;
+            used[units[1]] |= bit;
+            used[units[2]] |= bit;
+            found = count(grid, used, limit, first, found);
+            used[units[0]] &= ~bit;
+            used[units[1]] &= ~bit;
+            used[units[2]] &= ~bit;
+        }
+        grid[best] = 0;
+        return found;
+    }
+
+    /**
+     * Return 'count' puzzles of 'kind' generated from 'seed'.
+     */
+    public static List<int[]> generate(Kind kind, int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] unique = new int[81];
+        List<int[]> puzzles = new ArrayList<>(count);
+        switch (kind) {
+            case RANDOM -> puzzles.addAll(BatchSolver.randomPuzzles(count, 25, 45, seed));
+            case MINIMAL -> {
+                for (int[] puzzle : BatchSolver.randomPuzzles(count, 81, 81, seed)) {
+                    // Clear the cells in random order, keeping those the solution needs.
+                    int[] cells = shuffledCells(random);
+                    for (int cell : cells) {
+                        int value = puzzle[cell];
+                        puzzle[cell] = 0;
+                        if (countSolutions(puzzle, COUNT_LIMIT, unique) != 1) {
+                            puzzle[cell] = value;
+                        }
+                    }
+                    puzzles.add(puzzle);
+                }
+            }
+            case INVALID -> {
+                while (puzzles.size() < count) {
+                    int[] puzzle = BatchSolver.randomPuzzles(1, 25, 40, random.nextLong()).get(0);
+                    int[] solution = new int[81];
+                    countSolutions(puzzle, 1, solution);
+                    if (puzzles.size() % 2 == 0) {
+                        // Copy a given into an empty peer.
+                        int given = randomCell(puzzle, random, true);
+                        int[] peers = SudokuUnits.CLASSIC.peers[given];
+                        int peer = peers[random.nextInt(peers.length)];
+                        if (puzzle[peer] == 0) {
+                            puzzle[peer] = puzzle[given];
+                            puzzles.add(puzzle);
+                        }
+                    } else {
+                        // Fill an empty cell with a digit other than its solution value that
+                        // none of its peers hold, and keep the puzzle if that leaves no solution.
+                        int cell = randomCell(puzzle, random, false);
+                        int value = 1 + random.nextInt(9);
+                        puzzle[cell] = value;
+                        if (value != solution[cell] && countSolutions(puzzle, 1, unique) == 0
+                                && !repeats(puzzle)) {
+                            puzzles.add(puzzle);
+                        }
+                    }
+                }
+            }
+            case MULTIPLE -> {
+                while (puzzles.size() < count) {
+                    int[] puzzle = BatchSolver.randomPuzzles(1, 17, 28, random.nextLong()).get(0);
+                    if (countSolutions(puzzle, COUNT_LIMIT, unique) == COUNT_LIMIT) {
+                        puzzles.add(puzzle);
+                    }
+                }
+            }
+        }
+        return puzzles;
+    }
+
+    private static int[] shuffledCells(SplittableRandom random) {
+        int[] cells = new int[81];
+        for (int c = 0; c < 81; c++) {
+            int j = random.nextInt(c + 1);
+            cells[c] = cells[j];
+            cells[j] = c;
+        }
+        return cells;
+    }
+
+    // A random cell of 'puzzle' holding a given if 'given', or else an empty one.
+    private static int randomCell(int[] puzzle, SplittableRandom random, boolean given) {
+        while (true) {
+            int cell = random.nextInt(81);
+            if ((puzzle[cell] != 0) == given) {
+                return cell;
+            }
+        }
+    }
+
+    // Whether a unit of 'puzzle' holds a digit twice.
+    private static boolean repeats(int[] puzzle) {
+        int[] seen = new int[27];
+        for (int cell = 0; cell < 81; cell++) {
+            if (puzzle[cell] == 0) {
+                continue;
+            }
+            for (int unit : SudokuUnits.CLASSIC.unitsOf[cell]) {
+                if ((seen[unit] & 1 << puzzle[cell]) != 0) {
+                    return true;
+                }
+                seen[unit] |= 1 << puzzle[cell];
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Run every engine on generated puzzles and on the puzzles of the given files, one per line
+     * in one-line format, and print the timings and failures.  Arguments: [--count n] [--seed s]
+     * [files...]; by default 200 puzzles of each kind, seed 1.  Each solve is limited to 2
+     * seconds and 200000 nodes.  Exits with status 1 if an engine failed.
+     */
+    public static void main(String[] args) throws IOException {
+        int count = 200;
+        long seed = 1;
+        List<int[]> loaded = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--count")) {
+                count = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--seed")) {
+                seed = Long.parseLong(args[++i]);
+            } else {
+                for (String line : Files.readAllLines(Path.of(args[i]))) {
+                    int[] puzzle = PuzzleIO.parse(line.strip());
+                    if (puzzle != null) {
+                        loaded.add(puzzle);
+                    }
+                }
+            }
+        }
+        StressHarness harness = new StressHarness(allEngines(Duration.ofSeconds(2), 200_000));
+        boolean failed = false;
+        for (Kind kind : Kind.values()) {
+            Report report = harness.run(generate(kind, count, seed));
+            System.out.println(kind + " (" + count + " puzzles)\n" + report + "\n");
+            failed |= !report.failures().isEmpty();
+        }
+        if (!loaded.isEmpty()) {
+            Report report = harness.run(loaded);
+            System.out.println("files (" + loaded.size() + " puzzles)\n" + report);
+            failed |= !report.failures().isEmpty();
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class StressHarnessTest {
+
+    @DisplayName("GIVEN generated puzzles of every kind, WHEN their solutions are counted, THEN "
+            + "invalid puzzles should have none, minimal puzzles one that every given is needed "
+            + "for, and multi-solution puzzles several")
+    @Test
+    void testGenerate() {
+        int[] unique = new int[81];
+        for (int[] puzzle : StressHarness.generate(StressHarness.Kind.INVALID, 10, 5)) {
+            assertEquals(0, StressHarness.countSolutions(puzzle, 2, unique));
+        }
+        for (int[] puzzle : StressHarness.generate(StressHarness.Kind.MULTIPLE, 10, 5)) {
+            assertEquals(2, StressHarness.countSolutions(puzzle, 2, unique));
+        }
+        for (int[] puzzle : StressHarness.generate(StressHarness.Kind.MINIMAL, 3, 5)) {
+            assertEquals(1, StressHarness.countSolutions(puzzle, 2, unique));
+            for (int cell = 0; cell < 81; cell++) {
+                if (puzzle[cell] != 0) {
+                    int[] fewer = puzzle.clone();
+                    fewer[cell] = 0;
+                    assertEquals(2, StressHarness.countSolutions(fewer, 2, unique));
+                }
+            }
+        }
+    }
+
+    @DisplayName("GIVEN every strategy and the batch solver, WHEN they run on puzzles of every "
+            + "kind, THEN none should give a wrong answer AND each should be timed on every "
+            + "puzzle")
+    @Test
+    void testAllEnginesAgree() {
+        List<int[]> puzzles = new ArrayList<>();
+        for (StressHarness.Kind kind : StressHarness.Kind.values()) {
+            puzzles.addAll(StressHarness.generate(kind, 6, 11));
+        }
+        puzzles.add(CandidateEngineTest.parse(HintFinderTest.NYT_HARD));
+        StressHarness harness = new StressHarness(
+                StressHarness.allEngines(Duration.ofSeconds(1), 50_000));
+        StressHarness.Report report = harness.run(puzzles);
+
+        assertEquals(List.of(), report.failures(), report.toString());
+        assertEquals(SolveStrategy.values().length + 1, report.timings().size());
+        for (StressHarness.Timing timing : report.timings().values()) {
+            assertEquals(puzzles.size(), timing.runs());
+            assertTrue(timing.nanos() > 0);
+        }
+        StressHarness.Timing bitmask = report.timings().get(SolveStrategy.BITMASK.name());
+        assertEquals(6, bitmask.unsolvable());
+        assertEquals(puzzles.size() - 6, bitmask.solved());
+    }
+
+    @DisplayName("GIVEN an engine that wrongly refutes every puzzle with givens at two cells, WHEN "
+            + "the harness runs it, THEN the failure should be reported AND shrunk to those two "
+            + "givens")
+    @Test
+    void testShrink() {
+        SudokuSolver solver = new SudokuSolver();
+        StressHarness.Engine broken = puzzle -> {
+            if (puzzle[0] != 0 && puzzle[40] != 0) {
+                return new SolveResult(SolveResult.Status.UNSOLVABLE, 0, puzzle);
+            }
+            solver.load(puzzle);
+            return solver.result();
+        };
+        int[] puzzle = CandidateEngineTest.parse(SudokuSolverTest.PUZZLE);
+        puzzle[0] = CandidateEngineTest.parse(CandidateEngineTest.SOLUTION)[0];
+        puzzle[40] = CandidateEngineTest.parse(CandidateEngineTest.SOLUTION)[40];
+        StressHarness harness = new StressHarness(Map.of("broken", broken));
+        StressHarness.Report report = harness.run(List.of(puzzle,
+                CandidateEngineTest.parse(HintFinderTest.NYT_HARD)));
+
+        assertEquals(1, report.failures().size(), report.toString());
+        StressHarness.Failure failure = report.failures().get(0);
+        assertEquals("broken", failure.engine());
+        assertArrayEquals(puzzle, failure.puzzle());
+        int[] expected = new int[81];
+        expected[0] = puzzle[0];
+        expected[40] = puzzle[40];
+        assertArrayEquals(expected, failure.minimal());
+        assertEquals(2, report.timings().get("broken").runs());
+    }
+}
@@ -4,16 +4,23 @@ import java.awt.*;
 import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
 import java.awt.image.BufferedImage;
+import java.beans.IndexedPropertyChangeEvent;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.*;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.border.Border;
+import javax.swing.event.ChangeListener;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
 /**
- * A graphical application for selecting and extracting regions of images.
+ * A graphical application for entering and solving Sudoku puzzles.
  */
 public class SudokuApp{
 
@@ -37,6 +44,69 @@ public class SudokuApp{
      */
     private JProgressBar processingProgress;
 
+    /**
+     * Board showing the puzzle being edited and the values found by the solver.
+     */
+    private final SudokuBoardPanel board;
+
+    /**
+     * Selects which of SudokuGraph's solvers runs when "Finish" is pressed.
+     */
+    private JComboBox<SolveStrategy> solverBox;
+
+    /**
+     * Worker running the current solve off the Event Dispatch Thread, or null if no solve is in
+     * progress.
+     */
+    private SolveWorker worker;
+
+    /**
+     * Puzzle file opened with "Open...", or null if none is open.
+     */
+    private PuzzleCorpus corpus;
+
+    /**
+     * Puzzles of 'corpus'.  The list has a prototype cell value, so it only asks the model for the
+     * rows it displays and the corpus only reads those from disk.
+     */
+    private final PuzzleListModel puzzleModel = new PuzzleListModel();
+    private final JList<String> puzzleList = new JList<>(puzzleModel);
+
+    // Panel holding the puzzle list; only shown while a corpus is open.
+    private JPanel corpusPanel;
+
+    /**
+     * Worker solving the puzzles visible in 'puzzleList', or null if none is running.
+     */
+    private PageSolveWorker pageWorker;
+
+    /**
+     * Minimum time between two board snapshots published by a running solve: the board is redrawn
+     * at most 30 times per second however fast the solver expands nodes.
+     */
+    private static final long FRAME_NANOS = 1_000_000_000L / 30;
+
+    /**
+     * Solver following the givens on the board edit by edit, so that the status bar can say
+     * whether the puzzle is still solvable as soon as a cell changes.
+     */
+    private final SudokuSolver editSolver = new SudokuSolver();
+
+    /**
+     * Longest time 'editSolver' may search on the Event Dispatch Thread after an edit.  Most edits
+     * need no search or a few hundred nodes; puzzles needing more are left to "Finish".
+     */
+    private static final Duration EDIT_BUDGET = Duration.ofMillis(50);
+
+    /**
+     * Files offered by "Save trace..." and "Open trace...", the number of steps a trace keeps and
+     * the longest a traced solve may run.
+     */
+    private static final FileNameExtensionFilter TRACE_FILES =
+            new FileNameExtensionFilter("Search traces", "trace");
+    private static final int TRACE_EVENTS = 1 << 20;
+    private static final Duration TRACE_BUDGET = Duration.ofSeconds(10);
+
     /**
      * Construct a new application instance.  Initializes GUI components, so must be invoked on the
      * Swing Event Dispatch Thread.  Does not show the application window (call `start()` to do
@@ -44,7 +114,7 @@ public class SudokuApp{
      */
     public SudokuApp() {
         // Initialize application window
-        frame = new JFrame("Selector");
+        frame = new JFrame("Sudoku");
         frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
 
         // Add status bar
@@ -57,9 +127,22 @@ public class SudokuApp{
         // Add menu bar
         frame.setJMenuBar(makeMenuBar());
 
+        // Add board
+        board = new SudokuBoardPanel();
+        board.addPropertyChangeListener("givens", e -> {
+            if (e instanceof IndexedPropertyChangeEvent edit) {
+                checkEdit(edit.getIndex(), (Integer) edit.getNewValue());
+            }
+        });
+        frame.add(board, BorderLayout.CENTER);
+
         // Add control buttons
         frame.add(makeControlPanel(), BorderLayout.EAST);
 
+        // Add puzzle list, hidden until a file is opened
+        frame.add(makeCorpusPanel(), BorderLayout.WEST);
+
+        setSolving(false);
     }
 
     /**
@@ -73,12 +156,26 @@ public class SudokuApp{
         JMenu fileMenu = new JMenu("File");
         menuBar.add(fileMenu);
         JMenuItem openItem = new JMenuItem("Open...");
+        openItem.addActionListener(e -> openCorpus());
         fileMenu.add(openItem);
         saveItem = new JMenuItem("Save...");
+        saveItem.addActionListener(e -> saveBoard());
         fileMenu.add(saveItem);
+        JMenuItem saveTraceItem = new JMenuItem("Save trace...");
+        saveTraceItem.setToolTipText("Solve the puzzle with the bitmask solver and save its steps");
+        saveTraceItem.addActionListener(e -> saveTrace());
+        fileMenu.add(saveTraceItem);
+        JMenuItem openTraceItem = new JMenuItem("Open trace...");
+        openTraceItem.addActionListener(e -> openTrace());
+        fileMenu.add(openTraceItem);
         JMenuItem closeItem = new JMenuItem("Close");
+        closeItem.addActionListener(e -> closeCorpus());
         fileMenu.add(closeItem);
         JMenuItem exitItem = new JMenuItem("Exit");
+        exitItem.addActionListener(e -> {
+            closeCorpus();
+            frame.dispose();
+        });
         fileMenu.add(exitItem);
 
         // Create and populate Edit menu
@@ -96,21 +193,512 @@ public class SudokuApp{
     private JPanel makeControlPanel() {
         JPanel control = new JPanel(new GridLayout(0,1));
 
-        JComboBox<String> box = new JComboBox<String>(new String[]{"Point-to-Point", "Intelligent Scissors Mono",
-                "Intelligent Scissors Color"});
-        control.add(box);
+        solverBox = new JComboBox<>(SolveStrategy.values());
+        control.add(solverBox);
         undoButton = new JButton("Undo");
         control.add(undoButton);
         cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(e -> {
+            cancelSolve();
+            if (pageWorker != null) {
+                pageWorker.cancel(false);
+            }
+        });
         control.add(cancelButton);
         resetButton = new JButton("Reset");
+        resetButton.addActionListener(e -> board.setValues(new int[81]));
         control.add(resetButton);
         finishButton = new JButton("Finish");
+        finishButton.setToolTipText("Solve the puzzle");
+        finishButton.addActionListener(e -> startSolve());
         control.add(finishButton);
 
         return control;
     }
 
+    /**
+     * Return a panel listing the puzzles of the open corpus with a button to solve the visible
+     * ones.  Should only be called from constructor, as it initializes 'corpusPanel'.
+     */
+    private JPanel makeCorpusPanel() {
+        corpusPanel = new JPanel(new BorderLayout());
+        puzzleList.setPrototypeCellValue("\u2713 10000000: " + "0".repeat(81));
+        puzzleList.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        puzzleList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        puzzleList.setVisibleRowCount(20);
+        puzzleList.addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting() && puzzleList.getSelectedIndex() >= 0) {
+                selectPuzzle(puzzleList.getSelectedIndex());
+            }
+        });
+        corpusPanel.add(new JScrollPane(puzzleList), BorderLayout.CENTER);
+        JButton solvePageButton = new JButton("Solve page");
+        solvePageButton.setToolTipText("Solve the puzzles shown in the list");
+        solvePageButton.addActionListener(e -> solvePage());
+        corpusPanel.add(solvePageButton, BorderLayout.PAGE_END);
+        corpusPanel.setVisible(false);
+        return corpusPanel;
+    }
+
+    /**
+     * Ask for a puzzle file and list its puzzles.  The file is indexed in the background, and the
+     * list grows as puzzles are found.
+     */
+    private void openCorpus() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("Puzzle files", "txt", "sdm", "sdk"));
+        if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        closeCorpus();
+        Path path = chooser.getSelectedFile().toPath();
+        try {
+            corpus = new PuzzleCorpus(path);
+        } catch (IOException e) {
+            statusLabel.setText("Could not open " + path + ": " + e.getMessage());
+            return;
+        }
+        puzzleModel.setCorpus(corpus);
+        corpusPanel.setVisible(true);
+        frame.pack();
+        statusLabel.setText("Indexing " + path.getFileName() + "...");
+        new IndexWorker(corpus).execute();
+    }
+
+    /**
+     * Stop listing the open corpus, if any, and release its file.
+     */
+    private void closeCorpus() {
+        if (corpus == null) {
+            return;
+        }
+        if (pageWorker != null) {
+            pageWorker.cancel(false);
+        }
+        puzzleModel.setCorpus(null);
+        try {
+            corpus.close();
+        } catch (IOException ignored) {
+            /* Nothing left to read from it anyway. */
+        }
+        corpus = null;
+        corpusPanel.setVisible(false);
+        frame.pack();
+    }
+
+    /**
+     * Ask for a file and write the board to it as a one-line puzzle, including any values filled
+     * in by the solver.
+     */
+    private void saveBoard() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("Puzzle files", "txt", "sdm", "sdk"));
+        if (chooser.showSaveDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path path = chooser.getSelectedFile().toPath();
+        try {
+            PuzzleIO.write(path, List.of(board.grid()));
+            statusLabel.setText("Saved " + path.getFileName() + ".");
+        } catch (IOException e) {
+            statusLabel.setText("Could not save " + path + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ask for a file, then solve the puzzle on the board with a traced SudokuSolver in the
+     * background and write the trace to the file when the solve completes.
+     */
+    private void saveTrace() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(TRACE_FILES);
+        if (chooser.showSaveDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path path = chooser.getSelectedFile().toPath();
+        int[] givens = board.givens();
+        statusLabel.setText("Tracing...");
+        new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() throws IOException {
+                SearchTrace trace = new SearchTrace(TRACE_EVENTS);
+                SudokuSolver solver = new SudokuSolver();
+                solver.setTrace(trace);
+                solver.setProgress(SolveBudget.of(TRACE_BUDGET)::check);
+                SolveResult.Status status = solver.load(givens);
+                trace.write(path);
+                return status + " in " + solver.nodes() + " nodes, " + trace.recorded()
+                        + " events";
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    statusLabel.setText("Traced to " + path.getFileName() + ": " + get() + ".");
+                } catch (InterruptedException | ExecutionException e) {
+                    statusLabel.setText("Could not trace to " + path + ": " + e.getCause());
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Ask for a trace file and replay it in a window with a timeline: moving the slider shows the
+     * board after that many steps and highlights the cell of the last one.
+     */
+    private void openTrace() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(TRACE_FILES);
+        if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path path = chooser.getSelectedFile().toPath();
+        SearchTrace trace;
+        try {
+            trace = SearchTrace.read(path);
+        } catch (IOException e) {
+            statusLabel.setText("Could not open " + path + ": " + e.getMessage());
+            return;
+        }
+        if (trace.givens().length != 81) {
+            statusLabel.setText(path.getFileName() + " is not a trace of a 9-by-9 board.");
+            return;
+        }
+
+        JDialog replay = new JDialog(frame, "Replay of " + path.getFileName());
+        SudokuBoardPanel replayBoard = new SudokuBoardPanel();
+        replayBoard.setEditable(false);
+        replayBoard.setGivens(trace.givens());
+        JLabel stepLabel = new JLabel();
+        JSlider timeline = new JSlider(0, trace.size(), 0);
+        int[] grid = new int[81];
+        ChangeListener showStep = e -> {
+            int step = timeline.getValue();
+            trace.boardAt(step, grid);
+            replayBoard.setValues(grid);
+            if (step == 0) {
+                replayBoard.select(-1);
+                stepLabel.setText("Step 0 of " + trace.size() + ": " + trace + ".");
+            } else {
+                int cell = trace.cell(step - 1);
+                replayBoard.select(cell);
+                stepLabel.setText("Step " + step + " of " + trace.size() + ": "
+                        + trace.kind(step - 1) + " " + trace.value(step - 1) + " at "
+                        + Hint.cellName(cell) + ".");
+            }
+        };
+        timeline.addChangeListener(showStep);
+        showStep.stateChanged(null);
+        replay.add(replayBoard, BorderLayout.CENTER);
+        JPanel controls = new JPanel(new GridLayout(0, 1));
+        controls.add(timeline);
+        controls.add(stepLabel);
+        replay.add(controls, BorderLayout.PAGE_END);
+        replay.pack();
+        replay.setLocationRelativeTo(frame);
+        replay.setVisible(true);
+        timeline.requestFocusInWindow();
+    }
+
+    /**
+     * Show the puzzle of row 'i' of the list on the board and solve it.
+     */
+    private void selectPuzzle(int i) {
+        int[] grid = puzzleModel.puzzle(i);
+        if (grid == null) {
+            statusLabel.setText("Line " + (i + 1) + " is not a puzzle.");
+            return;
+        }
+        board.setGivens(grid);
+        editSolver.setProgress(SolveBudget.of(EDIT_BUDGET)::check);
+        editSolver.load(grid);
+        startSolve();
+    }
+
+    /**
+     * Solve the puzzles currently visible in the list in the background, marking each row solved
+     * or unsolvable as its result comes in.
+     */
+    private void solvePage() {
+        if (pageWorker != null || corpus == null || puzzleList.getFirstVisibleIndex() < 0) {
+            return;
+        }
+        pageWorker = new PageSolveWorker(puzzleList.getFirstVisibleIndex(),
+                puzzleList.getLastVisibleIndex());
+        cancelButton.setEnabled(true);
+        pageWorker.execute();
+    }
+
+    /**
+     * Indexes a corpus on a worker thread, growing the puzzle list as lines are found.
+     */
+    private class IndexWorker extends SwingWorker<Void, Integer> {
+
+        private final PuzzleCorpus indexed;
+
+        IndexWorker(PuzzleCorpus indexed) {
+            this.indexed = indexed;
+        }
+
+        @Override
+        protected Void doInBackground() throws IOException {
+            indexed.index(this::publish);
+            return null;
+        }
+
+        @Override
+        protected void process(List<Integer> chunks) {
+            if (corpus == indexed) {
+                puzzleModel.grow();
+                statusLabel.setText("Indexing... " + chunks.getLast() + " puzzles.");
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (corpus == indexed) {
+                puzzleModel.grow();
+                statusLabel.setText(indexed.size() + " puzzles in "
+                        + indexed.path().getFileName() + ".");
+            }
+        }
+    }
+
+    /**
+     * The solve result of row 'row' of the puzzle list.
+     */
+    private record RowResult(int row, boolean solved) {
+    }
+
+    /**
+     * Solves rows 'first' to 'last' of the puzzle list with the worker thread's pooled solver.  The
+     * corpus is captured on the Event Dispatch Thread and its lines are read and parsed by the
+     * worker, which only touches the list model from `process()`.  The corpus must not be read from
+     * an interrupted thread, so this worker is cancelled without interruption and checks for
+     * cancellation through the solver's progress callback instead.  `closeCorpus()` does not wait
+     * for it, so a read failing after cancellation means the corpus was closed and ends the work
+     * like the cancellation does.
+     */
+    private class PageSolveWorker extends SwingWorker<Void, RowResult> {
+
+        private final PuzzleCorpus read;
+        private final int first;
+        private final int last;
+
+        PageSolveWorker(int first, int last) {
+            this.read = corpus;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected Void doInBackground() {
+            for (int i = first; i <= last && !isCancelled(); i++) {
+                String line;
+                try {
+                    line = read.get(i);
+                } catch (UncheckedIOException e) {
+                    if (isCancelled()) {
+                        break;
+                    }
+                    throw e;
+                }
+                int[] grid = PuzzleIO.parse(line);
+                boolean solved = false;
+                if (grid != null) {
+                    SudokuSolver solver = SolverPool.solver();
+                    solver.setProgress(nodes -> {
+                        if (isCancelled()) {
+                            throw new CancellationException();
+                        }
+                    });
+                    solved = solver.load(grid) == SolveResult.Status.SOLVED;
+                }
+                publish(new RowResult(i, solved));
+            }
+            return null;
+        }
+
+        @Override
+        protected void process(List<RowResult> chunks) {
+            if (corpus != read) {
+                return;
+            }
+            for (RowResult result : chunks) {
+                puzzleModel.setResult(result.row(), result.solved());
+                puzzleModel.resultChanged(result.row());
+            }
+        }
+
+        @Override
+        protected void done() {
+            pageWorker = null;
+            cancelButton.setEnabled(worker != null);
+            if (isCancelled()) {
+                return;
+            }
+            try {
+                get();
+                statusLabel.setText("Solved rows " + (first + 1) + " to " + (last + 1) + ".");
+            } catch (InterruptedException | ExecutionException e) {
+                statusLabel.setText("Page solve failed: " + e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Enable the controls that make sense while a solve is running, or while none is.
+     */
+    private void setSolving(boolean solving) {
+        cancelButton.setEnabled(solving || pageWorker != null);
+        finishButton.setEnabled(!solving);
+        resetButton.setEnabled(!solving);
+        solverBox.setEnabled(!solving);
+        board.setEditable(!solving);
+    }
+
+    /**
+     * Tell 'editSolver' that the given at 'cell' is now 'value' and report whether the puzzle is
+     * still solvable.  Runs on the Event Dispatch Thread: the solver only searches when its last
+     * solution does not fit the edit, and gives up after EDIT_BUDGET.
+     */
+    private void checkEdit(int cell, int value) {
+        long start = System.nanoTime();
+        editSolver.setProgress(SolveBudget.of(EDIT_BUDGET)::check);
+        SolveResult.Status status = editSolver.place(cell, value);
+        long micros = (System.nanoTime() - start) / 1000;
+        String verdict = switch (status) {
+            case SOLVED -> "Solvable";
+            case UNSOLVABLE -> "No solution";
+            default -> "Not checked, press Finish to solve";
+        };
+        statusLabel.setText(verdict + " (" + editSolver.nodes() + " nodes, " + micros + " us).");
+    }
+
+    /**
+     * Solve the puzzle on the board in the background, cancelling any solve already running.
+     */
+    private void startSolve() {
+        cancelSolve();
+        worker = new SolveWorker(board.givens(), (SolveStrategy) solverBox.getSelectedItem());
+        setSolving(true);
+        processingProgress.setStringPainted(true);
+        processingProgress.setMaximum(81);
+        statusLabel.setText("Solving...");
+        worker.execute();
+    }
+
+    /**
+     * Ask the running solve, if any, to stop.  The solver notices within SudokuGraph's
+     * MONITOR_INTERVAL nodes, i.e. a few milliseconds.
+     */
+    private void cancelSolve() {
+        if (worker != null) {
+            worker.cancel(true);
+        }
+    }
+
+    /**
+     * A snapshot of a running solve: the values filled in so far and the number of nodes expanded.
+     */
+    private record Progress(int[] grid, long nodes) {
+    }
+
+    /**
+     * Runs one of SudokuGraph's solve strategies on a worker thread.  As the solver's monitor, it publishes
+     * a board snapshot at most every FRAME_NANOS and aborts the search once cancelled.  The result
+     * is the solved board, or null if the puzzle has no solution.
+     */
+    private class SolveWorker extends SwingWorker<int[], Progress> implements SolveMonitor {
+
+        // Puzzle to solve.
+        private final int[] givens;
+
+        // Solver to run.
+        private final SolveStrategy strategy;
+
+        // Time of the last published snapshot; only accessed by the worker thread.
+        private long lastFrame;
+
+        // Number of nodes expanded by the finished solve; read in done() after get().
+        private volatile long nodes;
+
+        SolveWorker(int[] givens, SolveStrategy strategy) {
+            this.givens = givens;
+            this.strategy = strategy;
+        }
+
+        @Override
+        protected int[] doInBackground() {
+            SudokuGraph graph = SudokuGraph.fromGrid(givens);
+            graph.setMonitor(this);
+            boolean solved = graph.solve(strategy);
+            nodes = graph.nodes();
+            return solved ? graph.toGrid() : null;
+        }
+
+        @Override
+        public void onProgress(SudokuGraph graph, long nodes) {
+            if (isCancelled() || Thread.currentThread().isInterrupted()) {
+                throw new CancellationException();
+            }
+            long now = System.nanoTime();
+            if (now - lastFrame >= FRAME_NANOS) {
+                lastFrame = now;
+                publish(new Progress(graph.toGrid(), nodes));
+            }
+        }
+
+        @Override
+        protected void process(List<Progress> chunks) {
+            // Only the latest snapshot is worth drawing.
+            Progress latest = chunks.getLast();
+            if (!isCancelled()) {
+                showProgress(latest.grid(), latest.nodes());
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (worker != this) {
+                // Replaced by a newer solve, which owns the board now.
+                return;
+            }
+            worker = null;
+            setSolving(false);
+            if (isCancelled()) {
+                statusLabel.setText("Cancelled.");
+                return;
+            }
+            try {
+                int[] solution = get();
+                if (solution == null) {
+                    statusLabel.setText("No solution (" + nodes + " nodes).");
+                } else {
+                    showProgress(solution, nodes);
+                    statusLabel.setText("Solved in " + nodes + " nodes.");
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                statusLabel.setText("Solver failed: " + e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Draw the values of 'grid' on the board and report how many positions are filled.
+     */
+    private void showProgress(int[] grid, long nodes) {
+        board.setValues(grid);
+        int filled = 0;
+        for (int value : grid) {
+            if (value != 0) {
+                filled++;
+            }
+        }
+        processingProgress.setValue(filled);
+        processingProgress.setString(filled + "/81 filled, " + nodes + " nodes");
+    }
+
     /**
      * Start the application by showing its window.
      */
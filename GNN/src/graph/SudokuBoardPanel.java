@@ -0,0 +1,175 @@
+package graph;
+
+import java.awt.*;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.beans.IndexedPropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.Arrays;
+import javax.swing.*;
+
+/**
+ * A component drawing a 9-by-9 Sudoku board.  Givens (the values of the puzzle) are drawn in
+ * black and can be edited by clicking a cell and typing a digit; values found by a solver are
+ * drawn in blue.  Fires an indexed "givens" property change whenever the user edits a cell, whose
+ * index is the cell's position and whose values are the old and new given.
+ */
+public final class SudokuBoardPanel extends JPanel {
+
+    private static final long serialVersionUID = 1L;
+
+    // Side length of a cell, in pixels.
+    private static final int CELL = 40;
+
+    // Values of the puzzle, 0 for an empty cell.
+    private final int[] givens = new int[81];
+
+    // Values shown in the empty cells of the puzzle, 0 for none.
+    private final int[] values = new int[81];
+
+    // Position of the cell selected for editing, or -1.
+    private int selected = -1;
+
+    // Whether the user may currently edit the givens.
+    private boolean editable = true;
+
+    /**
+     * Create a panel showing an empty board.
+     */
+    public SudokuBoardPanel() {
+        setPreferredSize(new Dimension(9 * CELL + 1, 9 * CELL + 1));
+        setBackground(Color.WHITE);
+        setFocusable(true);
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                requestFocusInWindow();
+                int row = e.getY() / CELL;
+                int col = e.getX() / CELL;
+                selected = (row < 9 && col < 9) ? 9 * row + col : -1;
+                repaint();
+            }
+        });
+        addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (!editable || selected < 0) {
+                    return;
+                }
+                char c = e.getKeyChar();
+                if (c >= '1' && c <= '9') {
+                    setGiven(selected, c - '0');
+                } else if (c == '0' || e.getKeyCode() == KeyEvent.VK_BACK_SPACE
+                        || e.getKeyCode() == KeyEvent.VK_DELETE) {
+                    setGiven(selected, 0);
+                }
+            }
+        });
+    }
+
+    /**
+     * Set the given at 'position' to 'value' and clear any solver values, notifying listeners of
+     * the change.
+     */
+    private void setGiven(int position, int value) {
+        int old = givens[position];
+        givens[position] = value;
+        Arrays.fill(values, 0);
+        repaint();
+        // Component has no indexed firePropertyChange(), so notify the listeners directly.
+        IndexedPropertyChangeEvent edit =
+                new IndexedPropertyChangeEvent(this, "givens", old, value, position);
+        for (PropertyChangeListener listener : getPropertyChangeListeners("givens")) {
+            listener.propertyChange(edit);
+        }
+    }
+
+    /**
+     * Return a copy of the puzzle values.
+     */
+    public int[] givens() {
+        return givens.clone();
+    }
+
+    /**
+     * Return the board as shown: the puzzle values, with solver values in its empty cells.
+     */
+    public int[] grid() {
+        int[] grid = new int[81];
+        for (int i = 0; i < 81; i++) {
+            grid[i] = givens[i] != 0 ? givens[i] : values[i];
+        }
+        return grid;
+    }
+
+    /**
+     * Replace the puzzle by 'grid' (81 values in position order) and clear any solver values.
+     */
+    public void setGivens(int[] grid) {
+        System.arraycopy(grid, 0, givens, 0, 81);
+        Arrays.fill(values, 0);
+        repaint();
+    }
+
+    /**
+     * Show the values of 'grid' in the empty cells of the puzzle; 0 leaves a cell empty.
+     */
+    public void setValues(int[] grid) {
+        for (int i = 0; i < 81; i++) {
+            values[i] = givens[i] == 0 ? grid[i] : 0;
+        }
+        repaint();
+    }
+
+    /**
+     * Highlight the cell at 'position', or no cell if 'position' is -1, as if it had been clicked.
+     */
+    public void select(int position) {
+        selected = position;
+        repaint();
+    }
+
+    /**
+     * Allow or forbid editing the givens, e.g. while a solver runs.
+     */
+    public void setEditable(boolean editable) {
+        this.editable = editable;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        Graphics2D g2 = (Graphics2D) g;
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        if (selected >= 0) {
+            g2.setColor(new Color(0xDDE8FF));
+            g2.fillRect((selected % 9) * CELL, (selected / 9) * CELL, CELL, CELL);
+        }
+
+        // Thin lines between cells, thick lines between boxes.
+        g2.setColor(Color.BLACK);
+        for (int i = 0; i <= 9; i++) {
+            g2.setStroke(new BasicStroke(i % 3 == 0 ? 2 : 1));
+            g2.drawLine(i * CELL, 0, i * CELL, 9 * CELL);
+            g2.drawLine(0, i * CELL, 9 * CELL, i * CELL);
+        }
+
+        Font font = getFont().deriveFont(CELL * 0.6f);
+        FontMetrics metrics = g2.getFontMetrics(font);
+        for (int i = 0; i < 81; i++) {
+            int value = givens[i] != 0 ? givens[i] : values[i];
+            if (value == 0) {
+                continue;
+            }
+            g2.setFont(givens[i] != 0 ? font.deriveFont(Font.BOLD) : font);
+            g2.setColor(givens[i] != 0 ? Color.BLACK : Color.BLUE);
+            String text = String.valueOf(value);
+            int x = (i % 9) * CELL + (CELL - metrics.stringWidth(text)) / 2;
+            int y = (i / 9) * CELL + (CELL + metrics.getAscent() - metrics.getDescent()) / 2;
+            g2.drawString(text, x, y);
+        }
+    }
+}
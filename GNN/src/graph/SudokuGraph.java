@@ -14,6 +14,7 @@ import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.CancellationException;
 import java.util.function.Consumer;
 
 public class SudokuGraph {
@@ -40,6 +41,34 @@ public class SudokuGraph {
      */
     private int size;
 
+    // Computes the masks of fillAllPossibilities() and isValidBoard(); created on first use.
+    private CandidateEngine engine;
+
+    // Candidate masks and eliminations of nextHint(); created on first use.
+    private HintFinder hints;
+
+    // Nodes of the shortest run of the RESTARTS strategy, scaled by the Luby sequence.
+    static final int RESTART_UNIT = 64;
+
+    // Number of search nodes between two calls to the monitor: must be a power of two.
+    public static final int MONITOR_INTERVAL = 256;
+
+    // Number of values tried by the solvers since this graph was created.
+    private long nodes;
+
+    // Notified every MONITOR_INTERVAL nodes while solving, or null.
+    private SolveMonitor monitor;
+
+    // Limits of the solve in progress, checked every MONITOR_INTERVAL nodes.
+    private SolveBudget budget = SolveBudget.UNLIMITED;
+
+    // Value of 'nodes' when the solve in progress started.
+    private long solveStart;
+
+    // Most complete assignment reached by the solve in progress, and its number of values.
+    private int[] best;
+    private int bestFilled;
+
     /**
      * Initializes a BasicGraph instance that represents an empty graph with no vertices or edges.
      */
@@ -47,6 +76,70 @@ public class SudokuGraph {
     }
 
 
+    /**
+     * Returns a graph containing a vertex for every non-zero value of 'grid', a board of 81 values
+     * in position order, with the remaining positions added to 'notDone' by fillNotDone().
+     */
+    public static SudokuGraph fromGrid(int[] grid) {
+        SudokuGraph graph = new SudokuGraph();
+        for (int i = 0; i < 81; i++) {
+            if (grid[i] != 0) {
+                graph.addVertex(new SudokuVertex(i, grid[i]));
+            }
+        }
+        graph.fillNotDone();
+        return graph;
+    }
+
+    /**
+     * Makes this graph the board 'grid' (81 values in position order, 0 for empty) as fromGrid()
+     * would, but in place: the vertices of earlier boards are kept and only their values change,
+     * so solving many puzzles with one graph creates no vertices after the first.
+     */
+    public void load(int[] grid) {
+        notDone.clear();
+        for (int i = 0; i < 81; i++) {
+            SudokuVertex vertex = index.get(i);
+            if (vertex == null) {
+                vertex = addVertex(new SudokuVertex(i, 0));
+            }
+            vertex.setValue(grid[i]);
+            vertex.possibilities = "";
+            if (grid[i] == 0) {
+                notDone.addOrUpdate(i, i);
+            }
+        }
+        best = null;
+        bestFilled = -1;
+        if (hints != null) {
+            hints.invalidate();
+        }
+    }
+
+    /**
+     * Empties the board in place, as load() with a grid of zeros.
+     */
+    public void reset() {
+        load(EMPTY);
+    }
+
+    // Board of reset().
+    private static final int[] EMPTY = new int[81];
+
+    /**
+     * Returns the constraint graph of the board: a vertex per position and an edge in each direction
+     * between every two positions in the same row, column or box, 20 edges per vertex. The graph is
+     * immutable and shared by all boards.
+     */
+    public static CsrGraph peerGraph() {
+        return PeerGraphHolder.PEERS;
+    }
+
+    // Builds the peer graph on first use.
+    private static class PeerGraphHolder {
+        static final CsrGraph PEERS = CsrGraph.fromAdjacency(SudokuUnits.CLASSIC.peers);
+    }
+
     /**
      * Returns vertex with label 'label' if it exists in the graph, else returns null.
      */
@@ -101,6 +194,118 @@ public class SudokuGraph {
         }
     }
 
+    /**
+     * Returns the board as 81 values in position order. Positions that are not in the graph or
+     * still in 'notDone' are 0, matching the peers that fillPossibilities() takes into account.
+     */
+    public int[] toGrid() {
+        int[] grid = new int[81];
+        for (SudokuVertex vertex : index.values()) {
+            if (!notDone.contains(vertex.position())) {
+                grid[vertex.position()] = vertex.value();
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Same as calling fillPossibilities() on every vertex in 'notDone', but computes the row,
+     * column and box masks of the whole board in one pass of the CandidateEngine instead of
+     * walking the peers of each vertex.
+     */
+    public void fillAllPossibilities() {
+        int[] grid = toGrid();
+        short[] candidates = new short[81];
+        engine().candidates(grid, candidates);
+        for (SudokuVertex vertex : index.values()) {
+            if (notDone.contains(vertex.position())) {
+                vertex.possibilities = "";
+                for (int i = 1; i < 10; i++) {
+                    if ((candidates[vertex.position()] & SudokuUnits.bit(i)) != 0) {
+                        vertex.possibilities += i;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether no row, column or box of the board holds a value twice.
+     */
+    public boolean isValidBoard() {
+        return engine().isValid(toGrid(), false);
+    }
+
+    /**
+     * Returns the next logical deduction on the board, or null if no technique of Hint.Technique
+     * finds one or the board is already contradictory. Techniques are tried cheapest first and the
+     * candidate masks are kept between calls, so asking again after filling the hinted cell costs
+     * little. Eliminations returned are remembered, so the next call moves on to another hint.
+     */
+    public Hint nextHint() {
+        if (hints == null) {
+            hints = new HintFinder(engine());
+        }
+        return hints.next(toGrid());
+    }
+
+    /**
+     * Fills in the value of 'hint' if it is a placement, taking its position out of 'notDone'.
+     * Eliminations need nothing, as nextHint() already remembers them.
+     */
+    public void applyHint(Hint hint) {
+        if (hint.isPlacement()) {
+            addVertex(new SudokuVertex(hint.cell(), 0)).setValue(hint.value());
+            if (notDone.contains(hint.cell())) {
+                // Move the position to the front of the queue to remove it.
+                notDone.addOrUpdate(hint.cell(), Integer.MIN_VALUE);
+                notDone.remove();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of values tried by the solvers so far.
+     */
+    public long nodes() {
+        return nodes;
+    }
+
+    /**
+     * Sets the monitor notified while solving, or removes it if 'monitor' is null.
+     */
+    public void setMonitor(SolveMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    /**
+     * Counts one search node, remembers the board if it is the most complete one so far, and
+     * every MONITOR_INTERVAL nodes checks the budget and notifies the monitor. Only the counter and
+     * the size of 'notDone' are looked at on the other nodes, so budgets cost next to nothing.
+     */
+    private void countNode() {
+        nodes++;
+        int filled = index.size() - notDone.size();
+        if (filled > bestFilled) {
+            bestFilled = filled;
+            best = toGrid();
+        }
+        if ((nodes & (MONITOR_INTERVAL - 1)) == 0) {
+            budget.check(nodes - solveStart);
+            if (monitor != null) {
+                monitor.onProgress(this, nodes);
+            }
+        }
+    }
+
+    // Lazily created, as most boards are only solved once.
+    private CandidateEngine engine() {
+        if (engine == null) {
+            engine = CandidateEngine.create();
+        }
+        return engine;
+    }
+
     /**
      * Backtracking: if we find that for all values existing in 'possibilities' at a certain grid
      * position, there are no values that do not conflict with existing values in row, col, or box,
@@ -122,6 +327,7 @@ public class SudokuGraph {
             for (int i = 1; i < 10; i++) {
                 if (vertex.possibilities.contains("" + i)) {
                     vertex.setValue(i);
+                    countNode();
                     // This will try NoSuchElementException when at the last element in notDone.
                     sudokuSolverA(getVertex(notDone.remove()));
                 }
@@ -167,6 +373,170 @@ public class SudokuGraph {
             }
         }
     }
+    /**
+     * Solves this graph with 'strategy' and no limits; its empty positions must already be in
+     * 'notDone' (see fillNotDone()). Returns whether the board is solved; a board that breaks the
+     * rules before solving is reported unsolved without searching.
+     */
+    public boolean solve(SolveStrategy strategy) {
+        return solve(strategy, SolveBudget.UNLIMITED).solved();
+    }
+
+    /**
+     * Solves this graph with 'strategy' within 'budget'. The solve stops with status TIMEOUT when
+     * the budget runs out, and with status CANCELLED when the thread is interrupted or the monitor
+     * throws CancellationException; the graph is then left partially filled, and the result holds
+     * the most complete board the search reached.  Every solve is recorded in
+     * SolveMetrics.global().
+     */
+    public SolveResult solve(SolveStrategy strategy, SolveBudget budget) {
+        long start = System.nanoTime();
+        SolveResult result = solveUnrecorded(strategy, budget);
+        SolveMetrics.global().record(strategy, result.status(), result.nodes(),
+                System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Same as solve(strategy, budget), but not recorded in SolveMetrics, for callers that record
+     * several solves as one, as PortfolioSolver does with a race.
+     */
+    SolveResult solveUnrecorded(SolveStrategy strategy, SolveBudget budget) {
+        this.budget = budget;
+        solveStart = nodes;
+        best = null;
+        bestFilled = -1;
+        try {
+            boolean solved = search(strategy);
+            return new SolveResult(solved ? SolveResult.Status.SOLVED
+                    : SolveResult.Status.UNSOLVABLE, nodes - solveStart,
+                    solved ? toGrid() : bestGrid());
+        } catch (SolveBudget.Exceeded e) {
+            return new SolveResult(e.status(), nodes - solveStart, bestGrid());
+        } catch (CancellationException e) {
+            return new SolveResult(SolveResult.Status.CANCELLED, nodes - solveStart, bestGrid());
+        } finally {
+            this.budget = SolveBudget.UNLIMITED;
+        }
+    }
+
+    // Most complete board reached by the last solve, or the current board if it placed nothing.
+    private int[] bestGrid() {
+        return best != null ? best : toGrid();
+    }
+
+    /**
+     * Runs the search of 'strategy'. Returns whether the board is solved.
+     */
+    private boolean search(SolveStrategy strategy) {
+        if (!isValidBoard()) {
+            return false;
+        }
+        if (strategy == SolveStrategy.COLORING) {
+            return solveByColoring();
+        }
+        if (strategy == SolveStrategy.BITMASK || strategy == SolveStrategy.RESTARTS) {
+            return solveByBitmask(strategy == SolveStrategy.RESTARTS);
+        }
+        try {
+            if (!notDone.isEmpty()) {
+                SudokuVertex start = getVertex(notDone.remove());
+                if (strategy == SolveStrategy.SOLVER_A) {
+                    sudokuSolverA(start);
+                } else {
+                    sudokuSolverB(start);
+                }
+            }
+        } catch (NoSuchElementException e) {
+            // sudokuSolverA signals a filled board this way.
+        }
+        return notDone.isEmpty() && index.size() == 81 && engine().isValid(toGrid(), true);
+    }
+
+    /**
+     * Solves the board as a 9-coloring of peerGraph() with GraphColoring, the filled-in values
+     * being the precolored vertices. On success every position gets its value and 'notDone' is
+     * emptied; otherwise the graph is left unchanged. Returns whether the board is solved.
+     */
+    public boolean solveByColoring() {
+        int[] coloring = new int[81];
+        int[] grid = toGrid();
+        for (int i = 0; i < 81; i++) {
+            coloring[i] = grid[i] - 1;
+        }
+        GraphColoring colorer = new GraphColoring(peerGraph(), 9);
+        long start = nodes;
+        colorer.setProgress(n -> {
+            nodes = start + n;
+            budget.check(nodes - solveStart);
+            if (monitor != null) {
+                monitor.onProgress(this, nodes);
+            }
+        });
+        boolean solved;
+        try {
+            solved = colorer.color(coloring);
+        } finally {
+            nodes = start + colorer.nodes();
+            int[] deepest = colorer.best();
+            for (int i = 0; i < 81; i++) {
+                deepest[i]++;
+            }
+            best = deepest;
+        }
+        if (solved) {
+            for (int i = 0; i < 81; i++) {
+                addVertex(new SudokuVertex(i, 0)).setValue(coloring[i] + 1);
+            }
+            notDone.clear();
+        }
+        return solved;
+    }
+
+    /**
+     * Solves the board with the thread's SolverPool solver, the filled-in values being its givens,
+     * with random value order and Luby restarts if 'restarts' is true; the solver is handed back
+     * to the pool with its default settings.  On success every position gets its value and
+     * 'notDone' is emptied; otherwise the graph is left unchanged. Returns whether the board is
+     * solved.
+     */
+    public boolean solveByBitmask(boolean restarts) {
+        SudokuSolver solver = SolverPool.solver();
+        if (restarts) {
+            solver.setValueOrder(SudokuSolver.ValueOrder.RANDOM);
+            solver.setRestarts(RestartPolicy.luby(RESTART_UNIT));
+        }
+        long start = nodes;
+        solver.setProgress(n -> {
+            nodes = start + n;
+            budget.check(nodes - solveStart);
+            if (monitor != null) {
+                monitor.onProgress(this, nodes);
+            }
+        });
+        SolveResult.Status status;
+        try {
+            status = solver.load(toGrid());
+        } finally {
+            // The callback refers to this graph, which the pool must not keep alive.
+            solver.setProgress(null);
+            solver.setValueOrder(SudokuSolver.ValueOrder.PHASE);
+            solver.setRestarts(RestartPolicy.NONE);
+        }
+        nodes = start + solver.nodes();
+        best = solver.solution();
+        if (status == SolveResult.Status.TIMEOUT || status == SolveResult.Status.CANCELLED) {
+            throw new SolveBudget.Exceeded(status);
+        }
+        if (status == SolveResult.Status.SOLVED) {
+            for (int i = 0; i < 81; i++) {
+                addVertex(new SudokuVertex(i, 0)).setValue(best[i]);
+            }
+            notDone.clear();
+        }
+        return status == SolveResult.Status.SOLVED;
+    }
+
     /**
      * Backtracking: if we find that for all values existing in 'possibilities' at a certain grid
      * position, there are no values that do not conflict with existing values in row, col, or box,
@@ -189,6 +559,7 @@ public class SudokuGraph {
                     // This will try NoSuchElementException when at the last element in notDone.
                     if (validValue(vertex, i)) {
                         vertex.setValue(i);
+                        countNode();
                         sudokuSolverB(getVertex(notDone.remove()));
                     }
                 }
@@ -2,6 +2,7 @@ package graph;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -76,20 +77,11 @@ public class SudokuGraphTest {
         s.addVertex(new SudokuVertex(76, 8));
         s.addVertex(new SudokuVertex(79, 7));
         s.addVertex(new SudokuVertex(80, 9));
-
+        int[] puzzle = s.toGrid();
         s.fillNotDone();
         SudokuVertex start = s.getVertex(s.notDone.remove());
         s.sudokuSolverB(start);
-
-        String answer = "";
-        for (int position : s.index.keySet()) {
-            if (position % 9 == 8) {
-                System.out.println(answer + " " + s.getVertex(position).value());
-                answer = "";
-            } else {
-                answer += " " + s.getVertex(position).value();
-            }
-        }
+        assertSolved(s, puzzle);
     }
 
     @DisplayName("NYT 6/8/24 Sudoku.")
@@ -119,20 +111,11 @@ public class SudokuGraphTest {
         s.addVertex(new SudokuVertex(71, 4));
         s.addVertex(new SudokuVertex(73, 3));
         s.addVertex(new SudokuVertex(76, 8));
-
+        int[] puzzle = s.toGrid();
         s.fillNotDone();
         SudokuVertex start = s.getVertex(s.notDone.remove());
         s.sudokuSolverB(start);
-
-        String answer = "";
-        for (int position : s.index.keySet()) {
-            if (position % 9 == 8) {
-                System.out.println(answer + " " + s.getVertex(position).value());
-                answer = "";
-            } else {
-                answer += " " + s.getVertex(position).value();
-            }
-        }
+        assertSolved(s, puzzle);
     }
 
     @DisplayName("NYT 6/8/24 Sudoku.")
@@ -162,20 +145,11 @@ public class SudokuGraphTest {
         s.addVertex(new SudokuVertex(57, 3));
         s.addVertex(new SudokuVertex(68, 6));
         s.addVertex(new SudokuVertex(71, 5));
-
+        int[] puzzle = s.toGrid();
         s.fillNotDone();
         SudokuVertex start = s.getVertex(s.notDone.remove());
         s.sudokuSolverB(start);
-
-        String answer = "";
-        for (int position : s.index.keySet()) {
-            if (position % 9 == 8) {
-                System.out.println(answer + " " + s.getVertex(position).value());
-                answer = "";
-            } else {
-                answer += " " + s.getVertex(position).value();
-            }
-        }
+        assertSolved(s, puzzle);
     }
 
     @DisplayName("NYT 6/8/24 Sudoku.")
@@ -207,21 +181,113 @@ public class SudokuGraphTest {
         s.addVertex(new SudokuVertex(78, 6));
         s.addVertex(new SudokuVertex(80, 1));
 
-
+        int[] puzzle = s.toGrid();
         s.fillNotDone();
         SudokuVertex start = s.getVertex(s.notDone.remove());
         s.sudokuSolverB(start);
+        assertSolved(s, puzzle);
+    }
 
+    // Fail unless 's' holds the one solution of 'puzzle', as judged by StressHarness.check().
+    private static void assertSolved(SudokuGraph s, int[] puzzle) {
+        int[] unique = new int[81];
+        int solutions = StressHarness.countSolutions(puzzle, StressHarness.COUNT_LIMIT, unique);
+        assertEquals(1, solutions);
+        SolveResult result = new SolveResult(SolveResult.Status.SOLVED, 0, s.toGrid());
+        assertNull(StressHarness.check(puzzle, solutions, unique, result));
+    }
+
+    // A sparse board with several solutions, slow for solver B.
+    static final String SPARSE =
+            "...............3.85..1.2.......5.7.....4...1...9.......5......73..2.1........4...9";
 
-        String answer = "";
-        for (int position : s.index.keySet()) {
-            if (position % 9 == 8) {
-                System.out.println(answer + " " + s.getVertex(position).value());
-                answer = "";
-            } else {
-                answer += " " + s.getVertex(position).value();
+    @DisplayName("GIVEN a node budget WHEN solver B runs out of it THEN the solve stops within one"
+            + " monitor interval of the budget and reports TIMEOUT with a partial board.")
+    @Test
+    void testNodeBudget() {
+        int[] puzzle = CandidateEngineTest.parse(SPARSE);
+        SudokuGraph s = SudokuGraph.fromGrid(puzzle);
+        SolveResult result = s.solve(SolveStrategy.SOLVER_B, SolveBudget.ofNodes(1000));
+        assertEquals(SolveResult.Status.TIMEOUT, result.status());
+        assertTrue(result.nodes() >= 1000);
+        assertTrue(result.nodes() < 1000 + SudokuGraph.MONITOR_INTERVAL);
+        for (int i = 0; i < 81; i++) {
+            if (puzzle[i] != 0) {
+                assertEquals(puzzle[i], result.grid()[i]);
             }
         }
     }
-}
 
+    // A board with no solution that every strategy needs thousands of nodes to refute, so that a
+    // solve always reaches its first budget check.
+    static final String HARD_UNSOLVABLE =
+            ".6.......1.3......4...9..8....1.2............5.....946.8..5...3....4......7......";
+
+    @DisplayName("GIVEN an expired deadline or an interrupted thread WHEN solving THEN every"
+            + " strategy stops at its first budget check with TIMEOUT or CANCELLED respectively,"
+            + " and a partial board keeping the givens.")
+    @Test
+    void testDeadlineAndCancel() {
+        int[] puzzle = CandidateEngineTest.parse(HARD_UNSOLVABLE);
+        for (SolveStrategy strategy : SolveStrategy.values()) {
+            SolveResult timeout = SudokuGraph.fromGrid(puzzle)
+                    .solve(strategy, SolveBudget.of(Duration.ZERO));
+            assertStoppedEarly(SolveResult.Status.TIMEOUT, timeout, puzzle, strategy);
+
+            Thread.currentThread().interrupt();
+            SolveResult cancelled;
+            try {
+                cancelled = SudokuGraph.fromGrid(puzzle).solve(strategy, SolveBudget.UNLIMITED);
+            } finally {
+                Thread.interrupted();
+            }
+            assertStoppedEarly(SolveResult.Status.CANCELLED, cancelled, puzzle, strategy);
+        }
+    }
+
+    // Assert that 'result' has 'status' after one monitor interval and keeps the givens of
+    // 'puzzle'.
+    private static void assertStoppedEarly(SolveResult.Status status, SolveResult result,
+            int[] puzzle, SolveStrategy strategy) {
+        assertEquals(status, result.status(), strategy.name());
+        assertTrue(result.nodes() >= SudokuGraph.MONITOR_INTERVAL, strategy.name());
+        assertTrue(result.nodes() < 2 * SudokuGraph.MONITOR_INTERVAL, strategy.name());
+        for (int i = 0; i < 81; i++) {
+            if (puzzle[i] != 0) {
+                assertEquals(puzzle[i], result.grid()[i], strategy.name());
+            }
+        }
+    }
+
+    @DisplayName("GIVEN a graph that solved one puzzle, WHEN another puzzle is loaded into it, THEN "
+            + "it should keep its vertices AND solve the new puzzle as a fresh graph would AND the "
+            + "bitmask strategies should run on the thread's pooled solver")
+    @Test
+    void testLoadReusesGraph() {
+        SudokuGraph s = SudokuGraph.fromGrid(CandidateEngineTest.parse(SPARSE));
+        assertTrue(s.solve(SolveStrategy.BITMASK));
+        SudokuVertex first = s.getVertex(0);
+
+        int[] puzzle = CandidateEngineTest.parse(SudokuSolverTest.PUZZLE);
+        s.load(puzzle);
+        assertSame(first, s.getVertex(0));
+        assertArrayEquals(puzzle, s.toGrid());
+        assertTrue(s.solve(SolveStrategy.SOLVER_A));
+        assertArrayEquals(CandidateEngineTest.parse(CandidateEngineTest.SOLUTION), s.toGrid());
+
+        for (SolveStrategy strategy : new SolveStrategy[]{
+                SolveStrategy.BITMASK, SolveStrategy.RESTARTS}) {
+            long before = SolverPool.solver().totalNodes();
+            s.load(CandidateEngineTest.parse(HintFinderTest.NYT_HARD));
+            SolveResult result = s.solve(strategy, SolveBudget.UNLIMITED);
+            assertTrue(result.solved());
+            assertTrue(result.nodes() > 0);
+            assertEquals(before + result.nodes(), SolverPool.solver().totalNodes());
+        }
+
+        s.reset();
+        assertArrayEquals(new int[81], s.toGrid());
+        assertTrue(s.solve(SolveStrategy.COLORING));
+        assertTrue(CandidateEngine.create().isValid(s.toGrid(), true));
+    }
+}
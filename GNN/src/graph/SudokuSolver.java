@@ -0,0 +1,967 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.function.LongConsumer;
+
+/**
+ * A backtracking solver over digit bitmasks that keeps its state between solves, so that editing
+ * one cell of a puzzle is answered without starting over.  It holds:
+ *
+ * - the givens, with per-unit digit counts and masks, and the candidates each empty cell has
+ *   against the givens.  Placing or clearing a given updates the counts of its units and
+ *   recomputes the candidates of that cell and its peers only;
+ * - the search trail: the cells the last solve assigned, in order, over a grid and per-unit masks
+ *   of the assigned digits;
+ * - the last solution, and the value last assigned to each cell (its saved phase).
+ *
+ * After an edit, the old solution is kept when it still fits: clearing a given only removes a
+ * constraint, and placing the value the solution already had adds none.  Placing a given on a
+ * puzzle known to be unsolvable leaves it unsolvable, and duplicate givens make it unsolvable
+ * without searching.  Otherwise the puzzle is solved again, trying each cell's saved phase first,
+ * which steers the search back towards the previous solution.  Every node assigns naked and hidden
+ * singles before branching on the cell with fewest candidates (MRV), so a re-solve after an edit
+ * typically takes tens of microseconds.
+ *
+ * For corpora with heavy-tailed solve times, the order values are tried in can be changed (see
+ * `ValueOrder`) and a `RestartPolicy` set; random choices come from a seed, so runs reproduce.
+ * A `SearchTrace` can record every step of a solve for offline analysis.  A trained
+ * `CandidateNetwork` can choose the branches near the root instead: among the cells with fewest
+ * candidates, the one whose best value it is surest of, with values in order of its scores.
+ *
+ * The board also has a Zobrist hash, the XOR of a random key per (cell, digit) filled, updated in
+ * O(1) per assignment.  An optional transposition table, off by default, remembers the hashes of
+ * boards whose search failed, and every node looks its board up before expanding it.  A single
+ * search tree never reaches a board twice (siblings differ in the cell branched on), so the table
+ * pays off where searches repeat: restarts re-entering subtrees earlier runs refuted, and re-solves
+ * after edits.  A board without a completion has none whatever its givens, so entries stay valid
+ * across loads and edits.  The table is fixed-size and lossy: a new entry overwrites the one at its
+ * slot, and a 64-bit hash collision could wrongly prune a board, which is negligibly rare.
+ *
+ * Variant boards are solved by the same code from their `SudokuUnits`: extra and replacement units
+ * only change the tables, and only units of 9 cells are required to hold every digit (for hidden
+ * singles).  For killer cages, each cage keeps the sum of its filled digits and the digits that
+ * can still complete it: those of some set of distinct digits, not yet in the cage, with the
+ * cage's size and remaining sum.  Empty cells of the cage may only take those, and a cage without
+ * any is a contradiction.  Boards without cages skip this bookkeeping.
+ *
+ * All state lives in arrays sized at construction, so loading, editing and solving allocate
+ * nothing: long-running workers can reuse one instance without creating garbage per node or per
+ * puzzle.  `SudokuSolverTest` measures this with the thread's allocation counter.
+ *
+ * Not thread-safe; an instance belongs to one puzzle at a time.
+ */
+public class SudokuSolver {
+
+    private final SudokuUnits units;
+
+    // Number of cells of the board.
+    private final int cells;
+
+    // Values of the puzzle, 0 for an empty cell.
+    private final int[] givens;
+
+    // count[u * DIGITS + d - 1] is the number of givens d in unit u.
+    private final int[] count;
+
+    // Mask of the digits given in each unit.
+    private final int[] givenMask;
+
+    // Whether each unit has 9 cells, and so holds every digit.
+    private final boolean[] full;
+
+    // Whether the board has units with a sum; if so, for each such unit the sum of its given and
+    // assigned digits, and the digits that its empty cells may still take.
+    private final boolean hasSums;
+    private final int[] unitSum;
+    private final int[] sumDigits;
+
+    // COMBINATIONS[n][sum]: the masks of the sets of n distinct digits adding up to 'sum'.
+    private static final int[][][] COMBINATIONS = combinations();
+
+    // Number of (unit, digit) pairs given more than once.
+    private int conflicts;
+
+    // Digits each empty cell may take given the givens of its units; 0 for given cells.
+    private final int[] candidates;
+
+    // Board being searched: the givens and the values assigned by the search.
+    private final int[] grid;
+
+    // Mask of the digits assigned by the search in each unit.
+    private final int[] searchMask;
+
+    // Cells assigned by the search, in order; the first 'depth' entries are current.
+    private final int[] trail;
+    private int depth;
+
+    // Value last assigned to each cell by the search, 0 if never; tried first next time.
+    private final int[] phase;
+
+    // Last solution if 'status' is SOLVED; otherwise the most complete board of the last solve.
+    private final int[] solution;
+    private int bestDepth;
+
+    private SolveResult.Status status = SolveResult.Status.SOLVED;
+
+    // Nodes of the last solve, and of all solves of this instance.
+    private long nodes;
+    private long totalNodes;
+
+    // Called every SudokuGraph.MONITOR_INTERVAL nodes with the nodes of the current solve, or null.
+    private LongConsumer progress;
+
+    // Order values are tried in, restart policy and random seed of the next solves.
+    private ValueOrder valueOrder = ValueOrder.PHASE;
+    private RestartPolicy restarts = RestartPolicy.NONE;
+    private long seed;
+
+    // State of the xorshift generator, reseeded from 'seed' at the start of every solve.
+    private long random;
+
+    // Nodes at which the current run restarts, and whether it is unwinding to do so.
+    private long cutoff;
+    private boolean restarting;
+
+    // Number of restarts of the last solve.
+    private int restartCount;
+
+    // Recursion level of search(); values to try at level l are order[l * DIGITS ...].
+    private int level;
+    private final int[] order;
+
+    // Number of cells holding each digit, given or assigned, indexed by digit - 1.
+    private final int[] placed = new int[SudokuUnits.DIGITS];
+
+    // Table of a solver without transposition table.
+    private static final long[] NO_TABLE = new long[0];
+
+    // Zobrist keys: keys[cell * DIGITS + d - 1] for digit d at 'cell'.
+    private final long[] keys;
+
+    // Zobrist hash of the givens, and of 'grid' while searching.
+    private long givenHash;
+    private long hash;
+
+    // Transposition table: hashes of boards known to have no completion, each at index
+    // hash & (length - 1); 0 marks an empty slot.  Empty when the table is off.
+    private long[] failed = NO_TABLE;
+
+    // Lookups of the table that found their board, and that did not.
+    private long tableHits;
+    private long tableMisses;
+
+    // Trace recording the steps of each solve, or null.
+    private SearchTrace trace;
+
+    // Network choosing the branches of the first 'networkLevels' search levels, or null; and the
+    // candidates of each empty cell it is given, 0 for filled cells.
+    private CandidateNetwork network;
+    private int networkLevels;
+    private final int[] networkFree;
+
+    /**
+     * Orders in which the values of a cell are tried.
+     */
+    public enum ValueOrder {
+        // The value the cell last had first (its saved phase), then ascending; follows earlier
+        // solutions, which makes re-solving after an edit cheap.
+        PHASE,
+        // Values taking a candidate from the fewest empty peers first (least constraining value).
+        LEAST_CONSTRAINING,
+        // A random order drawn from the seed.
+        RANDOM,
+        // Values already placed most often on the board first, completing digits early.
+        FREQUENCY
+    }
+
+    /**
+     * Create a solver for the classic board holding an empty puzzle.
+     */
+    public SudokuSolver() {
+        this(SudokuUnits.CLASSIC);
+    }
+
+    /**
+     * Create a solver for boards with the units of 'units', holding an empty puzzle.
+     */
+    public SudokuSolver(SudokuUnits units) {
+        this.units = units;
+        cells = units.cells;
+        givens = new int[cells];
+        count = new int[units.units.length * SudokuUnits.DIGITS];
+        givenMask = new int[units.units.length];
+        full = new boolean[units.units.length];
+        for (int u = 0; u < full.length; u++) {
+            full[u] = units.units[u].length == SudokuUnits.DIGITS;
+        }
+        hasSums = units.hasSums();
+        unitSum = new int[units.units.length];
+        sumDigits = new int[units.units.length];
+        Arrays.fill(sumDigits, SudokuUnits.ALL_DIGITS);
+        candidates = new int[cells];
+        Arrays.fill(candidates, SudokuUnits.ALL_DIGITS);
+        grid = new int[cells];
+        searchMask = new int[units.units.length];
+        trail = new int[cells];
+        phase = new int[cells];
+        solution = new int[cells];
+        order = new int[cells * SudokuUnits.DIGITS];
+        networkFree = new int[cells];
+        keys = new long[cells * SudokuUnits.DIGITS];
+        // Fixed seed, so hashes and searches reproduce from run to run.
+        SplittableRandom keyRandom = new SplittableRandom(0x5EED);
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = keyRandom.nextLong();
+        }
+        status = solve();
+        Arrays.fill(phase, 0);
+    }
+
+    /**
+     * Sets a callback receiving the node count of the current solve every
+     * SudokuGraph.MONITOR_INTERVAL nodes, or removes it if 'progress' is null.  The callback may
+     * throw SolveBudget.Exceeded or CancellationException to abandon the solve.
+     */
+    public void setProgress(LongConsumer progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * Records the steps of every following solve in 'trace', or stops recording if 'trace' is
+     * null.  Each search restarts the trace; edits answered without searching leave it alone.
+     */
+    public void setTrace(SearchTrace trace) {
+        this.trace = trace;
+    }
+
+    /**
+     * Lets 'network' choose the cell and value order of the first network.levels() levels of
+     * every following search, or stops using a network if 'network' is null.
+     */
+    public void setNetwork(CandidateNetwork network) {
+        setNetwork(network, network == null ? 0 : network.levels());
+    }
+
+    /**
+     * Lets 'network' choose the cell and value order of the first 'levels' levels of every
+     * following search; deeper levels, and all levels if 'levels' is 0, use the value order set
+     * and the cell with fewest candidates.  The network must score boards of this solver's units,
+     * and is used by this solver only while set.
+     */
+    public void setNetwork(CandidateNetwork network, int levels) {
+        if (network != null && network.units() != units) {
+            throw new IllegalArgumentException("network is for other units");
+        }
+        if (levels < 0) {
+            throw new IllegalArgumentException("levels must not be negative: " + levels);
+        }
+        this.network = network;
+        networkLevels = network == null ? 0 : levels;
+    }
+
+    /**
+     * Sets the order in which values are tried from the next solve on.
+     */
+    public void setValueOrder(ValueOrder valueOrder) {
+        this.valueOrder = valueOrder;
+    }
+
+    /**
+     * Sets the restart policy from the next solve on.  Restarts make the search pick randomly
+     * among the cells with fewest candidates, so that each run explores a different part of the
+     * tree even with the PHASE order.
+     */
+    public void setRestarts(RestartPolicy restarts) {
+        this.restarts = restarts;
+    }
+
+    /**
+     * Sets the seed of the random choices of RANDOM ordering and restarts.  Every solve starts
+     * from the seed, so solving a puzzle twice with the same settings and saved phases (e.g. after
+     * reset()) gives the same search.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Gives the transposition table of failed boards 2^'bits' entries (8 bytes each), or turns it
+     * off if 'bits' is 0.  The table starts empty, and its hit and miss counters at 0.
+     */
+    public void setTranspositionTable(int bits) {
+        if (bits < 0 || bits > 30) {
+            throw new IllegalArgumentException("table bits out of range: " + bits);
+        }
+        failed = bits == 0 ? NO_TABLE : new long[1 << bits];
+        tableHits = 0;
+        tableMisses = 0;
+    }
+
+    /**
+     * Returns the number of nodes whose board was found in the transposition table, and so
+     * not expanded, since the table was set.
+     */
+    public long tableHits() {
+        return tableHits;
+    }
+
+    /**
+     * Returns the number of transposition table lookups that did not find their board since the
+     * table was set.
+     */
+    public long tableMisses() {
+        return tableMisses;
+    }
+
+    /**
+     * Returns the number of restarts of the last solve.
+     */
+    public int restarts() {
+        return restartCount;
+    }
+
+    /**
+     * Replace the puzzle by 'puzzle' (one value per cell, 0 for empty) and solve it.  The saved
+     * phases are kept, so loading a puzzle close to the previous one is still cheap.
+     */
+    public SolveResult.Status load(int[] puzzle) {
+        Arrays.fill(givens, 0);
+        Arrays.fill(count, 0);
+        Arrays.fill(givenMask, 0);
+        Arrays.fill(placed, 0);
+        Arrays.fill(unitSum, 0);
+        givenHash = 0;
+        conflicts = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            if (puzzle[cell] != 0) {
+                addGiven(cell, puzzle[cell]);
+            }
+        }
+        if (hasSums) {
+            for (int u = 0; u < sumDigits.length; u++) {
+                if (units.sums[u] != 0) {
+                    updateSumDigits(u);
+                }
+            }
+        }
+        for (int cell = 0; cell < cells; cell++) {
+            updateCandidates(cell);
+        }
+        nodes = 0;
+        status = conflicts > 0 ? SolveResult.Status.UNSOLVABLE : solve();
+        return status;
+    }
+
+    /**
+     * Empty the puzzle, forget the saved phases and totals and restore the default settings
+     * (which turns the transposition table off), leaving the solver as if new.
+     */
+    public void reset() {
+        progress = null;
+        trace = null;
+        setNetwork(null);
+        setTranspositionTable(0);
+        valueOrder = ValueOrder.PHASE;
+        restarts = RestartPolicy.NONE;
+        seed = 0;
+        Arrays.fill(phase, 0);
+        load(new int[cells]);
+        // Solving the empty puzzle saved phases of its own.
+        Arrays.fill(phase, 0);
+        totalNodes = 0;
+    }
+
+    /**
+     * Set the given at 'cell' to 'value', or clear it if 'value' is 0, and return the status of
+     * the edited puzzle.  Only searches when the previous outcome does not carry over.
+     */
+    public SolveResult.Status place(int cell, int value) {
+        int old = givens[cell];
+        if (old == value) {
+            return status;
+        }
+        if (old != 0) {
+            removeGiven(cell, old);
+        }
+        if (value != 0) {
+            addGiven(cell, value);
+        }
+        updateCandidates(cell);
+        for (int peer : units.peers[cell]) {
+            updateCandidates(peer);
+        }
+
+        nodes = 0;
+        if (conflicts > 0) {
+            status = SolveResult.Status.UNSOLVABLE;
+        } else if (status == SolveResult.Status.SOLVED && (value == 0 || solution[cell] == value)) {
+            // The solution satisfies the new givens as well.
+            return status;
+        } else if (status == SolveResult.Status.UNSOLVABLE && value != 0 && old == 0) {
+            // A constraint was added to a puzzle that already had no solution.
+            return status;
+        } else {
+            status = solve();
+        }
+        return status;
+    }
+
+    /**
+     * Clear the given at 'cell' and return the status of the edited puzzle.
+     */
+    public SolveResult.Status clear(int cell) {
+        return place(cell, 0);
+    }
+
+    /**
+     * Returns the status of the current puzzle.
+     */
+    public SolveResult.Status status() {
+        return status;
+    }
+
+    /**
+     * Returns the value given at 'cell', or 0.
+     */
+    public int given(int cell) {
+        return givens[cell];
+    }
+
+    /**
+     * Returns a copy of the solution if status() is SOLVED, and otherwise of the most complete
+     * board the last solve reached.
+     */
+    public int[] solution() {
+        return solution.clone();
+    }
+
+    /**
+     * Returns the number of nodes of the last solve, 0 if the last edit needed none.
+     */
+    public long nodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the number of nodes of all solves of this instance.
+     */
+    public long totalNodes() {
+        return totalNodes;
+    }
+
+    /**
+     * Returns the current puzzle's status, node count and solution or best board as a SolveResult.
+     */
+    public SolveResult result() {
+        return new SolveResult(status, nodes, solution());
+    }
+
+    private void addGiven(int cell, int value) {
+        givens[cell] = value;
+        givenHash ^= keys[cell * SudokuUnits.DIGITS + value - 1];
+        placed[value - 1]++;
+        int bit = SudokuUnits.bit(value);
+        for (int u : units.unitsOf[cell]) {
+            int n = ++count[u * SudokuUnits.DIGITS + value - 1];
+            if (n == 2) {
+                conflicts++;
+            }
+            givenMask[u] |= bit;
+        }
+        for (int u : units.sumUnitsOf[cell]) {
+            unitSum[u] += value;
+            updateSumDigits(u);
+        }
+    }
+
+    private void removeGiven(int cell, int value) {
+        givens[cell] = 0;
+        givenHash ^= keys[cell * SudokuUnits.DIGITS + value - 1];
+        placed[value - 1]--;
+        int bit = SudokuUnits.bit(value);
+        for (int u : units.unitsOf[cell]) {
+            int n = --count[u * SudokuUnits.DIGITS + value - 1];
+            if (n == 1) {
+                conflicts--;
+            } else if (n == 0) {
+                givenMask[u] &= ~bit;
+            }
+        }
+        for (int u : units.sumUnitsOf[cell]) {
+            unitSum[u] -= value;
+            updateSumDigits(u);
+        }
+    }
+
+    /**
+     * Recompute the digits the empty cells of unit 'u', which has a sum, may still take: the
+     * union of the sets of distinct digits not yet in the unit that fill its empty cells and make
+     * up the rest of its sum.  A full unit gets all digits if its sum is right and none otherwise.
+     */
+    private void updateSumDigits(int u) {
+        int filled = givenMask[u] | searchMask[u];
+        int empty = units.units[u].length - Integer.bitCount(filled);
+        int rest = units.sums[u] - unitSum[u];
+        int digits = 0;
+        if (empty == 0) {
+            digits = rest == 0 ? SudokuUnits.ALL_DIGITS : 0;
+        } else if (empty > 0 && rest > 0 && rest < COMBINATIONS[empty].length) {
+            for (int combination : COMBINATIONS[empty][rest]) {
+                if ((combination & filled) == 0) {
+                    digits |= combination;
+                }
+            }
+        }
+        sumDigits[u] = digits;
+    }
+
+    private static int[][][] combinations() {
+        int maxSum = SudokuUnits.DIGITS * (SudokuUnits.DIGITS + 1) / 2;
+        int[][] counts = new int[SudokuUnits.DIGITS + 1][maxSum + 1];
+        int[][][] combinations = new int[SudokuUnits.DIGITS + 1][maxSum + 1][];
+        for (int pass = 0; pass < 2; pass++) {
+            for (int mask = 0; mask <= SudokuUnits.ALL_DIGITS; mask++) {
+                int sum = 0;
+                for (int rest = mask; rest != 0; rest &= rest - 1) {
+                    sum += SudokuUnits.digit(rest);
+                }
+                int n = Integer.bitCount(mask);
+                if (pass == 0) {
+                    counts[n][sum]++;
+                } else {
+                    combinations[n][sum][--counts[n][sum]] = mask;
+                }
+            }
+            if (pass == 0) {
+                for (int n = 0; n <= SudokuUnits.DIGITS; n++) {
+                    for (int sum = 0; sum <= maxSum; sum++) {
+                        combinations[n][sum] = new int[counts[n][sum]];
+                    }
+                }
+            }
+        }
+        return combinations;
+    }
+
+    // Recompute the candidates of 'cell' from the given masks of its units.
+    private void updateCandidates(int cell) {
+        if (givens[cell] != 0) {
+            candidates[cell] = 0;
+            return;
+        }
+        int used = 0;
+        for (int u : units.unitsOf[cell]) {
+            used |= givenMask[u];
+        }
+        candidates[cell] = SudokuUnits.ALL_DIGITS & ~used;
+    }
+
+    /**
+     * Search for a solution of the givens from scratch, keeping the saved phases.  Returns the
+     * outcome and leaves the solution, or the best board reached, in 'solution'.
+     */
+    private SolveResult.Status solve() {
+        System.arraycopy(givens, 0, grid, 0, cells);
+        System.arraycopy(givens, 0, solution, 0, cells);
+        Arrays.fill(searchMask, 0);
+        depth = 0;
+        hash = givenHash;
+        bestDepth = 0;
+        nodes = 0;
+        level = 0;
+        restartCount = 0;
+        random = seed ^ 0x9E3779B97F4A7C15L;
+        if (trace != null) {
+            trace.start(givens);
+        }
+        try {
+            while (true) {
+                long limit = restarts.cutoff(restartCount);
+                cutoff = limit > Long.MAX_VALUE - nodes ? Long.MAX_VALUE : nodes + limit;
+                restarting = false;
+                if (search()) {
+                    System.arraycopy(grid, 0, solution, 0, cells);
+                    return SolveResult.Status.SOLVED;
+                }
+                if (!restarting) {
+                    return SolveResult.Status.UNSOLVABLE;
+                }
+                restartCount++;
+            }
+        } catch (SolveBudget.Exceeded e) {
+            return e.status();
+        } catch (CancellationException e) {
+            return SolveResult.Status.CANCELLED;
+        } finally {
+            totalNodes += nodes;
+            // An abandoned search leaves its assignments on the trail.  Clearing the board is not
+            // a step of the search, so it is not traced.
+            SearchTrace recording = trace;
+            trace = null;
+            undo(0);
+            trace = recording;
+            level = 0;
+        }
+    }
+
+    /**
+     * Assign the empty cells of 'grid' beyond the trail.  Returns true once all are assigned;
+     * otherwise undoes its assignments and returns false, and unless it is unwinding for a restart
+     * records the boards it refuted in the transposition table.
+     */
+    private boolean search() {
+        int mark = depth;
+        long entry = hash;
+        if (isFailed(entry)) {
+            return false;
+        }
+        if (!propagate() || (depth > mark && isFailed(hash))) {
+            undo(mark);
+            addFailed(entry);
+            return false;
+        }
+        long propagated = hash;
+        boolean guided = level < networkLevels;
+        int cell = guided ? chooseScoredCell() : chooseCell();
+        if (cell < 0) {
+            return true;
+        }
+        int base = level * SudokuUnits.DIGITS;
+        int values = guided ? orderScoredValues(cell, free(cell), base)
+                : orderValues(cell, free(cell), base);
+        level++;
+        for (int i = 0; i < values && !restarting; i++) {
+            if (tryValue(cell, order[base + i])) {
+                level--;
+                return true;
+            }
+        }
+        level--;
+        undo(mark);
+        if (!restarting) {
+            addFailed(entry);
+            addFailed(propagated);
+        }
+        return false;
+    }
+
+    // Whether the transposition table holds 'key', counting a hit or a miss.
+    private boolean isFailed(long key) {
+        if (failed.length == 0) {
+            return false;
+        }
+        if (key != 0 && failed[(int) key & (failed.length - 1)] == key) {
+            tableHits++;
+            return true;
+        }
+        tableMisses++;
+        return false;
+    }
+
+    // Record 'key' as the hash of a board without a completion.
+    private void addFailed(long key) {
+        if (failed.length != 0) {
+            failed[(int) key & (failed.length - 1)] = key;
+        }
+    }
+
+    /**
+     * Return an empty cell with fewest candidates, or -1 if there is none.  With restarts, ties
+     * are broken at random among the cells seen.
+     */
+    private int chooseCell() {
+        int cell = -1;
+        int fewest = SudokuUnits.DIGITS + 1;
+        int ties = 0;
+        boolean randomTies = restarts.restarts();
+        for (int c = 0; c < cells; c++) {
+            if (grid[c] == 0) {
+                int n = Integer.bitCount(free(c));
+                if (n < fewest) {
+                    cell = c;
+                    fewest = n;
+                    ties = 1;
+                    if (n == 2 && !randomTies) {
+                        break;
+                    }
+                } else if (n == fewest && randomTies && nextRandom(++ties) == 0) {
+                    // Reservoir sampling: each tied cell ends up chosen with equal chance.
+                    cell = c;
+                }
+            }
+        }
+        return cell;
+    }
+
+    /**
+     * Evaluate the network on the board and return, among the empty cells with fewest candidates,
+     * the one whose most likely value the network is surest of; or -1 if no cell is empty.
+     */
+    private int chooseScoredCell() {
+        int fewest = SudokuUnits.DIGITS + 1;
+        for (int c = 0; c < cells; c++) {
+            networkFree[c] = grid[c] == 0 ? free(c) : 0;
+            if (grid[c] == 0) {
+                fewest = Math.min(fewest, Integer.bitCount(networkFree[c]));
+            }
+        }
+        if (fewest > SudokuUnits.DIGITS) {
+            return -1;
+        }
+        network.evaluate(grid, networkFree);
+        int cell = -1;
+        double surest = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < cells; c++) {
+            if (grid[c] == 0 && Integer.bitCount(networkFree[c]) == fewest) {
+                double confidence = network.confidence(c, networkFree[c]);
+                if (confidence > surest) {
+                    surest = confidence;
+                    cell = c;
+                }
+            }
+        }
+        return cell;
+    }
+
+    /**
+     * Store the bits of the digits of 'mask' at order[base...] from the highest network score at
+     * 'cell' to the lowest, and return how many there are.
+     */
+    private int orderScoredValues(int cell, int mask, int base) {
+        int n = 0;
+        for (int rest = mask; rest != 0; rest &= rest - 1) {
+            int bit = rest & -rest;
+            float score = network.score(cell, SudokuUnits.digit(bit));
+            int j = n - 1;
+            while (j >= 0 && network.score(cell, SudokuUnits.digit(order[base + j])) < score) {
+                order[base + j + 1] = order[base + j];
+                j--;
+            }
+            order[base + j + 1] = bit;
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Store the bits of the digits of 'mask' at order[base...] in the order they should be tried
+     * in for 'cell', and return how many there are.
+     */
+    private int orderValues(int cell, int mask, int base) {
+        int n = 0;
+        if (valueOrder == ValueOrder.PHASE) {
+            int preferred = SudokuUnits.bit(phase[cell]) & mask;
+            if (preferred != 0) {
+                order[base + n++] = preferred;
+                mask &= ~preferred;
+            }
+        }
+        for (int rest = mask; rest != 0; rest &= rest - 1) {
+            order[base + n++] = rest & -rest;
+        }
+        switch (valueOrder) {
+            case RANDOM -> {
+                for (int i = n - 1; i > 0; i--) {
+                    int j = nextRandom(i + 1);
+                    int bit = order[base + i];
+                    order[base + i] = order[base + j];
+                    order[base + j] = bit;
+                }
+            }
+            case LEAST_CONSTRAINING, FREQUENCY -> {
+                // Insertion sort on score, smallest first; at most 9 values.
+                for (int i = 1; i < n; i++) {
+                    int bit = order[base + i];
+                    int score = score(cell, bit);
+                    int j = i - 1;
+                    while (j >= 0 && score(cell, order[base + j]) > score) {
+                        order[base + j + 1] = order[base + j];
+                        j--;
+                    }
+                    order[base + j + 1] = bit;
+                }
+            }
+            default -> {
+            }
+        }
+        return n;
+    }
+
+    // Sort key of the value of 'bit' in 'cell' for LEAST_CONSTRAINING and FREQUENCY orders.
+    private int score(int cell, int bit) {
+        if (valueOrder == ValueOrder.FREQUENCY) {
+            return -placed[SudokuUnits.digit(bit) - 1];
+        }
+        int constrained = 0;
+        for (int peer : units.peers[cell]) {
+            if (grid[peer] == 0 && (free(peer) & bit) != 0) {
+                constrained++;
+            }
+        }
+        return constrained;
+    }
+
+    // Return a random int in [0..bound) from the xorshift generator.
+    private int nextRandom(int bound) {
+        random ^= random << 13;
+        random ^= random >>> 7;
+        random ^= random << 17;
+        return (int) ((random >>> 33) % bound);
+    }
+
+    /**
+     * Assign the digit of 'bit' to 'cell' and search on; undoes the assignment if that fails.
+     */
+    private boolean tryValue(int cell, int bit) {
+        nodes++;
+        if (progress != null && (nodes & (SudokuGraph.MONITOR_INTERVAL - 1)) == 0) {
+            progress.accept(nodes);
+        }
+        if (nodes >= cutoff) {
+            // Unwind to solve(), which starts the next run.
+            restarting = true;
+            return false;
+        }
+        int mark = depth;
+        assign(cell, bit);
+        if (trace != null) {
+            trace.record(SearchTrace.Kind.ASSIGN, cell, grid[cell]);
+        }
+        if (search()) {
+            return true;
+        }
+        undo(mark);
+        if (trace != null && !restarting) {
+            trace.record(SearchTrace.Kind.ELIMINATE, cell, SudokuUnits.digit(bit));
+        }
+        return false;
+    }
+
+    /**
+     * Assign naked singles (cells with one digit left) and hidden singles (digits with one cell
+     * left in a unit) until there are none.  Returns false if some cell or unit has no way left
+     * to be completed; the assignments made are on the trail either way.
+     */
+    private boolean propagate() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int c = 0; c < cells; c++) {
+                if (grid[c] == 0) {
+                    int free = free(c);
+                    if (free == 0) {
+                        return false;
+                    }
+                    if ((free & (free - 1)) == 0) {
+                        assign(c, free);
+                        if (trace != null) {
+                            trace.record(SearchTrace.Kind.FORCE, c, grid[c]);
+                        }
+                        changed = true;
+                    }
+                }
+            }
+            for (int u = 0; u < searchMask.length; u++) {
+                if (!full[u]) {
+                    if (hasSums && sumDigits[u] == 0) {
+                        return false;
+                    }
+                    continue;
+                }
+                // Digits free in at least one, and in at least two, empty cells of the unit.
+                int once = 0;
+                int twice = 0;
+                for (int c : units.units[u]) {
+                    if (grid[c] == 0) {
+                        int free = free(c);
+                        twice |= once & free;
+                        once |= free;
+                    }
+                }
+                int placed = givenMask[u] | searchMask[u];
+                if ((once | placed) != SudokuUnits.ALL_DIGITS) {
+                    return false;
+                }
+                int hidden = once & ~twice;
+                while (hidden != 0) {
+                    int bit = hidden & -hidden;
+                    hidden ^= bit;
+                    for (int c : units.units[u]) {
+                        if (grid[c] == 0 && (free(c) & bit) != 0) {
+                            assign(c, bit);
+                            if (trace != null) {
+                                trace.record(SearchTrace.Kind.FORCE, c, grid[c]);
+                            }
+                            changed = true;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    // Digits 'cell' may take given the givens and the search assignments.
+    private int free(int cell) {
+        int used = 0;
+        for (int u : units.unitsOf[cell]) {
+            used |= searchMask[u];
+        }
+        int free = candidates[cell] & ~used;
+        if (hasSums) {
+            for (int u : units.sumUnitsOf[cell]) {
+                free &= sumDigits[u];
+            }
+        }
+        return free;
+    }
+
+    // Assign the digit of 'bit' to empty 'cell' and push it on the trail.
+    private void assign(int cell, int bit) {
+        int value = SudokuUnits.digit(bit);
+        grid[cell] = value;
+        phase[cell] = value;
+        placed[value - 1]++;
+        hash ^= keys[cell * SudokuUnits.DIGITS + value - 1];
+        for (int u : units.unitsOf[cell]) {
+            searchMask[u] |= bit;
+        }
+        if (hasSums) {
+            for (int u : units.sumUnitsOf[cell]) {
+                unitSum[u] += value;
+                updateSumDigits(u);
+            }
+        }
+        trail[depth++] = cell;
+        if (depth > bestDepth) {
+            bestDepth = depth;
+            System.arraycopy(grid, 0, solution, 0, cells);
+        }
+    }
+
+    // Pop the trail back to 'mark' entries, emptying the cells popped.
+    private void undo(int mark) {
+        while (depth > mark) {
+            int cell = trail[--depth];
+            int bit = SudokuUnits.bit(grid[cell]);
+            placed[grid[cell] - 1]--;
+            hash ^= keys[cell * SudokuUnits.DIGITS + grid[cell] - 1];
+            if (trace != null) {
+                trace.record(SearchTrace.Kind.BACKTRACK, cell, grid[cell]);
+            }
+            for (int u : units.unitsOf[cell]) {
+                searchMask[u] &= ~bit;
+            }
+            if (hasSums) {
+                for (int u : units.sumUnitsOf[cell]) {
+                    unitSum[u] -= grid[cell];
+                    updateSumDigits(u);
+                }
+            }
+            grid[cell] = 0;
+        }
+    }
+}
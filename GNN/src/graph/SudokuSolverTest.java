@@ -0,0 +1,395 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.sun.management.ThreadMXBean;
+import java.lang.management.ManagementFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class SudokuSolverTest {
+
+    // Puzzle of CandidateEngineTest.SOLUTION.
+    static final String PUZZLE =
+            "53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+
+    // Whether 'grid' is a complete valid board agreeing with every given of 'solver'.
+    static boolean solves(SudokuSolver solver, int[] grid) {
+        for (int i = 0; i < 81; i++) {
+            if (solver.given(i) != 0 && solver.given(i) != grid[i]) {
+                return false;
+            }
+        }
+        return CandidateEngine.create().isValid(grid, true);
+    }
+
+    @DisplayName("GIVEN a solved puzzle, WHEN a given is cleared or set to its solution value, THEN "
+            + "the old solution should be kept without searching AND duplicate givens should make "
+            + "the puzzle unsolvable without searching until they are removed")
+    @Test
+    void testEditsReuseSolution() {
+        SudokuSolver solver = new SudokuSolver();
+        assertEquals(SolveResult.Status.SOLVED, solver.load(CandidateEngineTest.parse(PUZZLE)));
+        assertArrayEquals(CandidateEngineTest.parse(CandidateEngineTest.SOLUTION),
+                solver.solution());
+
+        assertEquals(SolveResult.Status.SOLVED, solver.clear(0));
+        assertEquals(0, solver.nodes());
+        assertEquals(SolveResult.Status.SOLVED, solver.place(2, 4));
+        assertEquals(0, solver.nodes());
+
+        // Cell 2 holds 4, so another 4 in row 0 clashes.
+        assertEquals(SolveResult.Status.UNSOLVABLE, solver.place(3, 4));
+        assertEquals(0, solver.nodes());
+        assertEquals(SolveResult.Status.UNSOLVABLE, solver.place(8, 1));
+        assertEquals(0, solver.nodes());
+        solver.clear(8);
+        assertEquals(SolveResult.Status.SOLVED, solver.clear(3));
+        assertTrue(solves(solver, solver.solution()));
+    }
+
+    @DisplayName("GIVEN a board with several solutions, WHEN givens contradicting the current "
+            + "solution are placed one at a time, THEN every re-solve should agree with all givens "
+            + "AND match a fresh solve of the same puzzle")
+    @Test
+    void testEditsResolve() {
+        int[] puzzle = CandidateEngineTest.parse(SudokuGraphTest.SPARSE);
+        SudokuSolver solver = new SudokuSolver();
+        assertEquals(SolveResult.Status.SOLVED, solver.load(puzzle));
+        SudokuSolver other = new SudokuSolver();
+        other.load(puzzle);
+        for (int cell = 0; cell < 81; cell++) {
+            if (puzzle[cell] != 0) {
+                continue;
+            }
+            // Place a different value that the rest of the board still allows, if there is one.
+            for (int value = 1; value <= 9; value++) {
+                if (value == solver.solution()[cell]) {
+                    continue;
+                }
+                puzzle[cell] = value;
+                other.setProgress(SolveBudget.ofNodes(100_000)::check);
+                SolveResult.Status fresh = other.load(puzzle);
+                solver.setProgress(SolveBudget.ofNodes(100_000)::check);
+                SolveResult.Status status = solver.place(cell, value);
+                if (fresh == SolveResult.Status.SOLVED) {
+                    assertEquals(SolveResult.Status.SOLVED, status);
+                    assertTrue(solves(solver, solver.solution()));
+                    break;
+                }
+                assertNotEquals(SolveResult.Status.SOLVED, status);
+                puzzle[cell] = 0;
+                solver.clear(cell);
+            }
+        }
+    }
+
+    @DisplayName("GIVEN a warmed-up solver, WHEN it loads, edits and solves puzzles thousands of "
+            + "times, THEN the solving thread should allocate no memory")
+    @Test
+    void testSolvingAllocatesNothing() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        int[][] puzzles = {
+                CandidateEngineTest.parse(PUZZLE),
+                CandidateEngineTest.parse(HintFinderTest.NYT_HARD),
+                CandidateEngineTest.parse(SudokuGraphTest.SPARSE)};
+        SudokuSolver solver = new SudokuSolver();
+        SolveBudget budget = SolveBudget.ofNodes(1_000_000);
+        solver.setProgress(budget::check);
+        for (int round = 0; round < 2; round++) {
+            // The first round warms up, the second is measured.
+            int solves = 3000;
+            long nodes = 0;
+            long before = threads.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < solves; i++) {
+                assertEquals(SolveResult.Status.SOLVED, solver.load(puzzles[i % puzzles.length]));
+                nodes += solver.nodes();
+                solver.place(40, 1 + i % 9);
+                nodes += solver.nodes();
+                solver.clear(40);
+            }
+            long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+            assertTrue(nodes > solves);
+            if (round == 1) {
+                // Less than a byte per solve: no object on any node or solve.
+                assertTrue(allocated < solves, allocated + " bytes allocated over " + nodes
+                        + " nodes");
+            }
+        }
+    }
+
+    @DisplayName("WHEN solvers are taken from the pool, THEN a thread should always get the same "
+            + "instance AND different threads different ones AND a trace or network set by an "
+            + "earlier caller should not be used by the next one")
+    @Test
+    void testSolverPool() throws InterruptedException {
+        SudokuSolver solver = SolverPool.solver();
+        assertSame(solver, SolverPool.solver());
+        assertEquals(SolveResult.Status.SOLVED, solver.load(CandidateEngineTest.parse(PUZZLE)));
+
+        int[] hard = CandidateEngineTest.parse(HintFinderTest.NYT_HARD);
+        SearchTrace trace = new SearchTrace(1024);
+        CandidateNetwork network = new CandidateNetwork(SudokuUnits.CLASSIC, 8, 2, 3);
+        solver.setTrace(trace);
+        solver.setNetwork(network, 8);
+        assertSame(solver, SolverPool.solver());
+        assertEquals(SolveResult.Status.SOLVED, solver.load(hard));
+        assertTrue(solver.nodes() > 0);
+        assertEquals(0, trace.recorded());
+        // The network has never scored a board.
+        for (int digit = 1; digit <= 9; digit++) {
+            assertEquals(0f, network.score(0, digit));
+        }
+
+        SudokuSolver[] other = new SudokuSolver[1];
+        Thread thread = new Thread(() -> other[0] = SolverPool.solver());
+        thread.start();
+        thread.join();
+        assertNotNull(other[0]);
+        assertNotSame(solver, other[0]);
+
+        SudokuGraph graph = SolverPool.graph(CandidateEngineTest.parse(PUZZLE));
+        assertSame(graph, SolverPool.graph(new int[81]));
+        assertArrayEquals(new int[81], graph.toGrid());
+    }
+
+    @DisplayName("GIVEN every value order with and without restarts, WHEN puzzles are solved, THEN "
+            + "the solutions should be valid AND the same seed should give the same search AND "
+            + "restart policies whose cutoffs would not grow should be rejected")
+    @Test
+    void testValueOrdersAndRestarts() {
+        assertArrayEquals(new long[]{1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8},
+                java.util.stream.IntStream.range(0, 15)
+                        .mapToLong(run -> RestartPolicy.luby(1).cutoff(run)).toArray());
+        assertEquals(40, RestartPolicy.geometric(10, 2).cutoff(2));
+        assertThrows(IllegalArgumentException.class, () -> RestartPolicy.luby(0));
+        assertThrows(IllegalArgumentException.class, () -> RestartPolicy.geometric(0, 2));
+        assertThrows(IllegalArgumentException.class, () -> RestartPolicy.geometric(10, 1));
+        assertThrows(IllegalArgumentException.class, () -> RestartPolicy.geometric(10, 0.5));
+        assertThrows(IllegalArgumentException.class,
+                () -> RestartPolicy.geometric(10, Double.NaN));
+
+        int[] hard = CandidateEngineTest.parse(HintFinderTest.NYT_HARD);
+        SudokuSolver reference = new SudokuSolver();
+        reference.load(hard);
+        RestartPolicy[] policies = {
+                RestartPolicy.NONE, RestartPolicy.luby(1), RestartPolicy.geometric(2, 1.5)};
+        for (SudokuSolver.ValueOrder order : SudokuSolver.ValueOrder.values()) {
+            for (RestartPolicy policy : policies) {
+                String config = order + ", " + policy;
+                SudokuSolver solver = new SudokuSolver();
+                solver.setValueOrder(order);
+                solver.setRestarts(policy);
+                solver.setSeed(42);
+                assertEquals(SolveResult.Status.SOLVED, solver.load(hard), config);
+                assertArrayEquals(reference.solution(), solver.solution(), config);
+                if (policy == RestartPolicy.NONE) {
+                    assertEquals(0, solver.restarts(), config);
+                }
+
+                int[] sparse = CandidateEngineTest.parse(SudokuGraphTest.SPARSE);
+                solver.reset();
+                solver.setValueOrder(order);
+                solver.setRestarts(policy);
+                solver.setSeed(7);
+                assertEquals(SolveResult.Status.SOLVED, solver.load(sparse), config);
+                int[] first = solver.solution();
+                long nodes = solver.nodes();
+                assertTrue(solves(solver, first), config);
+                solver.reset();
+                solver.setValueOrder(order);
+                solver.setRestarts(policy);
+                solver.setSeed(7);
+                solver.load(sparse);
+                assertArrayEquals(first, solver.solution(), config);
+                assertEquals(nodes, solver.nodes(), config);
+            }
+        }
+    }
+
+    @DisplayName("GIVEN a transposition table, WHEN puzzles are solved with and without restarts, "
+            + "THEN the solutions should not change AND with a value order that only depends on "
+            + "the board, pruning should never cost nodes AND a refuted puzzle loaded again should "
+            + "be found in the table without searching")
+    @Test
+    void testTranspositionTable() {
+        int[][] puzzles = {
+                CandidateEngineTest.parse(HintFinderTest.NYT_HARD),
+                CandidateEngineTest.parse(SudokuGraphTest.SPARSE)};
+        // Random choices depend on how many were drawn before, so pruning changes the rest of the
+        // search: only check that both solvers solve.
+        for (RestartPolicy policy : new RestartPolicy[]{RestartPolicy.NONE, RestartPolicy.luby(1)}) {
+            SudokuSolver plain = new SudokuSolver();
+            SudokuSolver cached = new SudokuSolver();
+            cached.setTranspositionTable(12);
+            for (SudokuSolver solver : new SudokuSolver[]{plain, cached}) {
+                solver.setValueOrder(SudokuSolver.ValueOrder.RANDOM);
+                solver.setRestarts(policy);
+            }
+            for (int[] puzzle : puzzles) {
+                assertEquals(SolveResult.Status.SOLVED, plain.load(puzzle));
+                assertEquals(SolveResult.Status.SOLVED, cached.load(puzzle));
+                assertTrue(solves(plain, plain.solution()), policy.toString());
+                assertTrue(solves(cached, cached.solution()), policy.toString());
+            }
+            assertTrue(cached.tableMisses() > 0);
+        }
+
+        // Without restarts, a least constraining value order is a function of the board, so the
+        // search with the table is the search without it minus the subtrees it prunes.  PHASE
+        // would not do: a pruned subtree no longer saves the phases that later levels follow.
+        for (int[] puzzle : puzzles) {
+            SudokuSolver plain = new SudokuSolver();
+            SudokuSolver cached = new SudokuSolver();
+            cached.setTranspositionTable(12);
+            for (SudokuSolver solver : new SudokuSolver[]{plain, cached}) {
+                solver.setValueOrder(SudokuSolver.ValueOrder.LEAST_CONSTRAINING);
+            }
+            assertEquals(SolveResult.Status.SOLVED, plain.load(puzzle));
+            assertEquals(SolveResult.Status.SOLVED, cached.load(puzzle));
+            assertArrayEquals(plain.solution(), cached.solution());
+            assertTrue(cached.nodes() <= plain.nodes());
+        }
+
+        // Cell 2 of PUZZLE must be 4; 1 clashes with no given, but leaves no solution.
+        int[] wrong = CandidateEngineTest.parse(PUZZLE);
+        wrong[2] = 1;
+        SudokuSolver solver = new SudokuSolver();
+        solver.setTranspositionTable(10);
+        assertEquals(SolveResult.Status.UNSOLVABLE, solver.load(wrong));
+        long hits = solver.tableHits();
+        assertEquals(SolveResult.Status.UNSOLVABLE, solver.load(wrong));
+        assertEquals(0, solver.nodes());
+        assertEquals(hits + 1, solver.tableHits());
+
+        solver.reset();
+        assertEquals(0, solver.tableHits());
+        assertEquals(SolveResult.Status.UNSOLVABLE, solver.load(wrong));
+        assertEquals(0, solver.tableHits());
+    }
+
+    // Whether 'grid' is complete, repeats no digit in a unit of 'units', fills each of its units
+    // with a sum up to that sum, and keeps the givens of 'puzzle'.
+    private static boolean satisfies(SudokuUnits units, int[] puzzle, int[] grid) {
+        for (int u = 0; u < units.units.length; u++) {
+            int seen = 0;
+            int sum = 0;
+            for (int cell : units.units[u]) {
+                int bit = SudokuUnits.bit(grid[cell]);
+                if (bit == 0 || (seen & bit) != 0) {
+                    return false;
+                }
+                seen |= bit;
+                sum += grid[cell];
+            }
+            if (units.sums[u] != 0 && units.sums[u] != sum) {
+                return false;
+            }
+        }
+        for (int cell = 0; cell < units.cells; cell++) {
+            if (puzzle[cell] != 0 && puzzle[cell] != grid[cell]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @DisplayName("GIVEN X-Sudoku, Windoku and jigsaw boards, WHEN random full boards are solved "
+            + "and then puzzles made from them, THEN every solution should satisfy the variant's "
+            + "units AND a classic solution breaking a diagonal should be unsolvable as X-Sudoku")
+    @Test
+    void testVariantUnits() {
+        int[] regions = new int[81];
+        for (int cell = 0; cell < 81; cell++) {
+            // Bands of three rows, each row's cells shifted by its row into three regions.
+            int row = SudokuUnits.row(cell);
+            regions[cell] = (row / 3) * 3 + (SudokuUnits.col(cell) + row) % 9 / 3;
+        }
+        SudokuUnits jigsaw = SudokuUnits.jigsaw(regions);
+        assertEquals(27, jigsaw.units.length);
+        assertEquals(29, SudokuUnits.DIAGONAL.units.length);
+        assertEquals(31, SudokuUnits.WINDOKU.units.length);
+        java.util.SplittableRandom random = new java.util.SplittableRandom(4);
+        for (SudokuUnits units : new SudokuUnits[]{SudokuUnits.DIAGONAL, SudokuUnits.WINDOKU,
+                jigsaw}) {
+            SudokuSolver generator = new SudokuSolver(units);
+            generator.setValueOrder(SudokuSolver.ValueOrder.RANDOM);
+            SudokuSolver solver = new SudokuSolver(units);
+            for (int i = 0; i < 20; i++) {
+                generator.setSeed(random.nextLong());
+                assertEquals(SolveResult.Status.SOLVED, generator.load(new int[81]));
+                int[] full = generator.solution();
+                assertTrue(satisfies(units, new int[81], full));
+                int[] puzzle = full.clone();
+                for (int cell = 0; cell < 81; cell++) {
+                    if (random.nextInt(3) != 0) {
+                        puzzle[cell] = 0;
+                    }
+                }
+                assertEquals(SolveResult.Status.SOLVED, solver.load(puzzle));
+                assertTrue(satisfies(units, puzzle, solver.solution()));
+            }
+        }
+        // Cells 10 and 30 of SOLUTION, on the main diagonal, both hold 7.
+        int[] classic = CandidateEngineTest.parse(CandidateEngineTest.SOLUTION);
+        assertEquals(SolveResult.Status.SOLVED, new SudokuSolver().load(classic));
+        assertEquals(SolveResult.Status.UNSOLVABLE,
+                new SudokuSolver(SudokuUnits.DIAGONAL).load(classic));
+
+        int[] bad = regions.clone();
+        bad[0] = 1;
+        assertThrows(IllegalArgumentException.class, () -> SudokuUnits.jigsaw(bad));
+        assertThrows(IllegalArgumentException.class,
+                () -> SudokuUnits.CLASSIC.withUnits(new int[][]{{0, 0}}));
+    }
+
+    @DisplayName("GIVEN killer cages, WHEN puzzles with them are solved, THEN solutions should "
+            + "fill every cage up to its sum, a cage with one way left should force it, AND "
+            + "cages no digits can fill together should make the puzzle unsolvable")
+    @Test
+    void testKillerCages() {
+        // Cages of two cells in each row (columns 0-1, 2-3, 4-5, 6-7) with the sums of SOLUTION.
+        int[] solution = CandidateEngineTest.parse(CandidateEngineTest.SOLUTION);
+        int[][] cages = new int[36][];
+        int[] sums = new int[36];
+        for (int i = 0; i < 36; i++) {
+            int cell = (i / 4) * 9 + (i % 4) * 2;
+            cages[i] = new int[]{cell, cell + 1};
+            sums[i] = solution[cell] + solution[cell + 1];
+        }
+        SudokuUnits killer = SudokuUnits.CLASSIC.withCages(cages, sums);
+        assertTrue(killer.hasSums());
+        assertFalse(SudokuUnits.CLASSIC.hasSums());
+        SudokuSolver solver = new SudokuSolver(killer);
+        int[] empty = new int[81];
+        assertEquals(SolveResult.Status.SOLVED, solver.load(empty));
+        assertTrue(satisfies(killer, empty, solver.solution()));
+        // PUZZLE has SOLUTION as its only solution, which fits the cages; NYT_HARD's does not.
+        assertEquals(SolveResult.Status.SOLVED, solver.load(CandidateEngineTest.parse(PUZZLE)));
+        assertArrayEquals(solution, solver.solution());
+        assertEquals(SolveResult.Status.UNSOLVABLE,
+                solver.load(CandidateEngineTest.parse(HintFinderTest.NYT_HARD)));
+
+        // 9 at cell 0 leaves 8 for cell 1 in a cage summing to 17.
+        SudokuUnits pair = SudokuUnits.CLASSIC.withCages(new int[][]{{0, 1}}, new int[]{17});
+        int[] nine = new int[81];
+        nine[0] = 9;
+        SudokuSolver paired = new SudokuSolver(pair);
+        assertEquals(SolveResult.Status.SOLVED, paired.load(nine));
+        assertEquals(8, paired.solution()[1]);
+        // Placing 7 at cell 1 as a given breaks the sum.
+        assertEquals(SolveResult.Status.UNSOLVABLE, paired.place(1, 7));
+        assertEquals(SolveResult.Status.SOLVED, paired.clear(1));
+
+        // Three cages of box 0 that each need {1, 2}.
+        SudokuUnits impossible = SudokuUnits.CLASSIC.withCages(
+                new int[][]{{0, 1}, {9, 10}, {18, 19}}, new int[]{3, 3, 3});
+        assertEquals(SolveResult.Status.UNSOLVABLE, new SudokuSolver(impossible).load(empty));
+
+        assertThrows(IllegalArgumentException.class, () -> SudokuUnits.CLASSIC.withCages(
+                new int[][]{{0, 1}}, new int[]{18}));
+    }
+}
@@ -0,0 +1,282 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed unit and peer tables of a Sudoku board.  A unit is a group of cells that must hold
+ * distinct digits (a row, a column or a 3-by-3 box), and the peers of a cell are all other cells
+ * that share at least one unit with it.  Digits are stored as bitmasks throughout: digit `d` in
+ * `[1..9]` is represented by the bit `1 << (d - 1)`, so a set of digits fits in 9 bits.
+ *
+ * Variants are declared as units too, so that they share the tables and the bitmask propagation
+ * of the classic board: the diagonals of X-Sudoku and the windows of Windoku are extra units
+ * (`DIAGONAL`, `WINDOKU`, `withUnits()`), the regions of jigsaw Sudoku replace the boxes
+ * (`jigsaw()`), and the cages of killer Sudoku are units of fewer than 9 cells whose digits must
+ * also add up to a given sum (`withCages()`).  A unit of 9 cells holds every digit once; a smaller
+ * one holds distinct digits.
+ */
+public final class SudokuUnits {
+
+    // Number of distinct digits on the board.
+    public static final int DIGITS = 9;
+
+    // Mask with the bits of all digits set.
+    public static final int ALL_DIGITS = (1 << DIGITS) - 1;
+
+    /**
+     * Tables of the classic 9-by-9 board.  Units 0..8 are the rows, 9..17 the columns and 18..26
+     * the boxes, each listing its cells in reading order.
+     */
+    public static final SudokuUnits CLASSIC = classic();
+
+    // Number of cells on the board.
+    public final int cells;
+
+    // units[u] lists the cells of unit u.
+    public final int[][] units;
+
+    // unitsOf[cell] lists the units that contain cell.
+    public final int[][] unitsOf;
+
+    // peers[cell] lists every other cell sharing a unit with cell, in ascending order.
+    public final int[][] peers;
+
+    // sums[u] is the sum the digits of unit u must add up to, or 0 if unit u has no sum.
+    public final int[] sums;
+
+    // sumUnitsOf[cell] lists the units with a sum that contain cell.
+    public final int[][] sumUnitsOf;
+
+    /**
+     * Tables of X-Sudoku: the classic board whose two main diagonals (units 27 and 28) also hold
+     * every digit once.
+     */
+    public static final SudokuUnits DIAGONAL = CLASSIC.withUnits(diagonals());
+
+    /**
+     * Tables of Windoku: the classic board with four more 3-by-3 units (27..30), the windows
+     * whose top left cells are at rows and columns 1 and 5.
+     */
+    public static final SudokuUnits WINDOKU = CLASSIC.withUnits(windows());
+
+    /**
+     * Build the unit-of and peer tables for a board of `cells` cells whose units are `units`.
+     * Requires every cell in `units` to be in `[0..cells)`.
+     */
+    SudokuUnits(int cells, int[][] units) {
+        this(cells, units, new int[units.length]);
+    }
+
+    /**
+     * Build the tables for a board of `cells` cells whose units are `units`, the digits of unit
+     * `u` adding up to `sums[u]` unless that is 0.  Requires every cell in `units` to be in
+     * `[0..cells)`, and every unit to have between 1 and 9 distinct cells.
+     */
+    SudokuUnits(int cells, int[][] units, int[] sums) {
+        this.cells = cells;
+        this.units = units;
+        this.sums = sums;
+        int[] unitCount = new int[cells];
+        for (int[] unit : units) {
+            for (int cell : unit) {
+                unitCount[cell]++;
+            }
+        }
+        unitsOf = new int[cells][];
+        for (int cell = 0; cell < cells; cell++) {
+            unitsOf[cell] = new int[unitCount[cell]];
+            unitCount[cell] = 0;
+        }
+        for (int u = 0; u < units.length; u++) {
+            for (int cell : units[u]) {
+                unitsOf[cell][unitCount[cell]++] = u;
+            }
+        }
+        peers = new int[cells][];
+        boolean[] seen = new boolean[cells];
+        int[] buffer = new int[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            int count = 0;
+            for (int u : unitsOf[cell]) {
+                for (int peer : units[u]) {
+                    if (peer != cell && !seen[peer]) {
+                        seen[peer] = true;
+                        buffer[count++] = peer;
+                    }
+                }
+            }
+            Arrays.sort(buffer, 0, count);
+            peers[cell] = Arrays.copyOf(buffer, count);
+            for (int i = 0; i < count; i++) {
+                seen[buffer[i]] = false;
+            }
+        }
+        sumUnitsOf = new int[cells][];
+        for (int cell = 0; cell < cells; cell++) {
+            int count = 0;
+            for (int u : unitsOf[cell]) {
+                if (sums[u] != 0) {
+                    buffer[count++] = u;
+                }
+            }
+            sumUnitsOf[cell] = Arrays.copyOf(buffer, count);
+        }
+    }
+
+    /**
+     * Returns whether some unit has a sum.
+     */
+    public boolean hasSums() {
+        for (int sum : sums) {
+            if (sum != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return these tables with the units of 'extra' added after the existing ones, each holding
+     * distinct digits (every digit once if it has 9 cells).
+     */
+    public SudokuUnits withUnits(int[][] extra) {
+        return with(extra, new int[extra.length]);
+    }
+
+    /**
+     * Return these tables with a killer cage added for each of 'cages', after the existing units:
+     * the digits of cage i are distinct and add up to 'cageSums[i]'.
+     */
+    public SudokuUnits withCages(int[][] cages, int[] cageSums) {
+        if (cages.length != cageSums.length) {
+            throw new IllegalArgumentException(cages.length + " cages but " + cageSums.length
+                    + " sums");
+        }
+        for (int i = 0; i < cages.length; i++) {
+            int size = cages[i].length;
+            // Smallest and largest sums of 'size' distinct digits.
+            int min = size * (size + 1) / 2;
+            int max = size * (19 - size) / 2;
+            if (cageSums[i] < min || cageSums[i] > max) {
+                throw new IllegalArgumentException("cage " + i + " of " + size + " cells cannot sum"
+                        + " to " + cageSums[i]);
+            }
+        }
+        return with(cages, cageSums);
+    }
+
+    private SudokuUnits with(int[][] extra, int[] extraSums) {
+        for (int[] unit : extra) {
+            checkUnit(unit, cells);
+        }
+        int[][] all = Arrays.copyOf(units, units.length + extra.length);
+        int[] allSums = Arrays.copyOf(sums, units.length + extra.length);
+        for (int i = 0; i < extra.length; i++) {
+            all[units.length + i] = extra[i].clone();
+            allSums[units.length + i] = extraSums[i];
+        }
+        return new SudokuUnits(cells, all, allSums);
+    }
+
+    // Throw IllegalArgumentException unless 'unit' has 1 to 9 distinct cells in [0..cells).
+    private static void checkUnit(int[] unit, int cells) {
+        if (unit.length < 1 || unit.length > DIGITS) {
+            throw new IllegalArgumentException("a unit must have 1 to " + DIGITS + " cells: "
+                    + Arrays.toString(unit));
+        }
+        for (int i = 0; i < unit.length; i++) {
+            if (unit[i] < 0 || unit[i] >= cells) {
+                throw new IllegalArgumentException("no cell " + unit[i]);
+            }
+            for (int j = 0; j < i; j++) {
+                if (unit[i] == unit[j]) {
+                    throw new IllegalArgumentException("cell " + unit[i] + " repeated in "
+                            + Arrays.toString(unit));
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the tables of jigsaw Sudoku with the regions 'regions': 'regions[cell]' in [0..8]
+     * is the region of each of the 81 cells, and each region must have 9 cells.  Units 0..17 are
+     * the rows and columns, and unit 18 + r region r.
+     */
+    public static SudokuUnits jigsaw(int[] regions) {
+        if (regions.length != 81) {
+            throw new IllegalArgumentException("need 81 regions, got " + regions.length);
+        }
+        int[][] units = new int[27][9];
+        int[] size = new int[9];
+        for (int cell = 0; cell < 81; cell++) {
+            int region = regions[cell];
+            if (region < 0 || region > 8 || size[region] == 9) {
+                throw new IllegalArgumentException("regions must be 9 of 9 cells each");
+            }
+            units[row(cell)][col(cell)] = cell;
+            units[9 + col(cell)][row(cell)] = cell;
+            units[18 + region][size[region]++] = cell;
+        }
+        return new SudokuUnits(81, units);
+    }
+
+    private static int[][] diagonals() {
+        int[][] diagonals = new int[2][9];
+        for (int i = 0; i < 9; i++) {
+            diagonals[0][i] = i * 10;
+            diagonals[1][i] = (i + 1) * 8;
+        }
+        return diagonals;
+    }
+
+    private static int[][] windows() {
+        int[][] windows = new int[4][9];
+        for (int w = 0; w < 4; w++) {
+            int top = 1 + 4 * (w / 2);
+            int left = 1 + 4 * (w % 2);
+            for (int i = 0; i < 9; i++) {
+                windows[w][i] = (top + i / 3) * 9 + left + i % 3;
+            }
+        }
+        return windows;
+    }
+
+    /**
+     * Return the mask bit of digit `value`, or 0 if `value` is 0 (an empty cell).
+     */
+    public static int bit(int value) {
+        return value == 0 ? 0 : 1 << (value - 1);
+    }
+
+    /**
+     * Return the digit whose mask bit is the lowest bit set in `mask`.  Requires `mask != 0`.
+     */
+    public static int digit(int mask) {
+        return Integer.numberOfTrailingZeros(mask) + 1;
+    }
+
+    // Row number of a cell of the classic board.
+    public static int row(int cell) {
+        return cell / 9;
+    }
+
+    // Column number of a cell of the classic board.
+    public static int col(int cell) {
+        return cell % 9;
+    }
+
+    // Box number of a cell of the classic board, counting boxes in reading order.
+    public static int box(int cell) {
+        return (cell / 27) * 3 + (cell % 9) / 3;
+    }
+
+    private static SudokuUnits classic() {
+        int[][] units = new int[27][9];
+        for (int cell = 0; cell < 81; cell++) {
+            units[row(cell)][col(cell)] = cell;
+            units[9 + col(cell)][row(cell)] = cell;
+            units[18 + box(cell)][(row(cell) % 3) * 3 + col(cell) % 3] = cell;
+        }
+        return new SudokuUnits(81, units);
+    }
+}
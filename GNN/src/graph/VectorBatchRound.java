@@ -0,0 +1,180 @@
+package graph;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The propagation round of `BatchSolver` with the lane loops written as `jdk.incubator.vector`
+ * operations: every loop over lanes becomes a loop over vectors of `laneCount()` lanes, and the
+ * per-lane branches of the scalar round become lane masks and blends.  The hidden-single pass
+ * keeps a unit's digit counts in registers instead of per-lane scratch arrays.  Only loaded when
+ * the module is present; see `BatchSolver`.
+ */
+final class VectorBatchRound {
+
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+
+    private static final int[][] UNIT_CELLS = SudokuUnits.CLASSIC.units;
+
+    private VectorBatchRound() {
+    }
+
+    /**
+     * Return whether the CPU has vectors of at least 256 bits, below which the scalar round is
+     * as fast.
+     */
+    static boolean isSupported() {
+        return SPECIES.vectorBitSize() >= 256;
+    }
+
+    /**
+     * Returns the number of lanes of one vector; the lane stride of the arrays passed to round()
+     * must be a multiple of it.
+     */
+    static int laneCount() {
+        return SPECIES.length();
+    }
+
+    /**
+     * Same as `BatchSolver.round()` over arrays with 'stride' lanes per cell or unit: 'masks' at
+     * [cell * stride + lane], 'fixed' at [unit * stride + lane], and 'outcome' and 'open' per
+     * lane.
+     */
+    static void round(short[] masks, short[] fixed, short[] outcome, short[] open, int[] row,
+            int[] col, int[] box, int stride) {
+        ShortVector zero = ShortVector.zero(SPECIES);
+        for (int i = 0; i < fixed.length; i += SPECIES.length()) {
+            zero.intoArray(fixed, i);
+        }
+        for (int l = 0; l < stride; l += SPECIES.length()) {
+            zero.intoArray(outcome, l);
+            zero.intoArray(open, l);
+        }
+
+        // Digits of the decided cells, per unit.
+        for (int cell = 0; cell < row.length; cell++) {
+            int base = cell * stride;
+            int r = row[cell] * stride;
+            int c = col[cell] * stride;
+            int b = box[cell] * stride;
+            for (int l = 0; l < stride; l += SPECIES.length()) {
+                ShortVector mask = ShortVector.fromArray(SPECIES, masks, base + l);
+                VectorMask<Short> single = isSingle(mask);
+                if (!single.anyTrue()) {
+                    continue;
+                }
+                ShortVector rowFixed = ShortVector.fromArray(SPECIES, fixed, r + l);
+                ShortVector colFixed = ShortVector.fromArray(SPECIES, fixed, c + l);
+                ShortVector boxFixed = ShortVector.fromArray(SPECIES, fixed, b + l);
+                ShortVector seen = rowFixed.or(colFixed).or(boxFixed);
+                VectorMask<Short> clash = mask.eq((short) 0)
+                        .or(seen.and(mask).compare(VectorOperators.NE, 0)).and(single);
+                contradict(outcome, l, clash);
+                ShortVector digit = zero.blend(mask, single);
+                rowFixed.or(digit).intoArray(fixed, r + l);
+                colFixed.or(digit).intoArray(fixed, c + l);
+                boxFixed.or(digit).intoArray(fixed, b + l);
+            }
+        }
+
+        // Naked singles.
+        for (int cell = 0; cell < row.length; cell++) {
+            int base = cell * stride;
+            int r = row[cell] * stride;
+            int c = col[cell] * stride;
+            int b = box[cell] * stride;
+            for (int l = 0; l < stride; l += SPECIES.length()) {
+                ShortVector mask = ShortVector.fromArray(SPECIES, masks, base + l);
+                VectorMask<Short> multi = isSingle(mask).not();
+                if (!multi.anyTrue()) {
+                    continue;
+                }
+                ShortVector rowFixed = ShortVector.fromArray(SPECIES, fixed, r + l);
+                ShortVector colFixed = ShortVector.fromArray(SPECIES, fixed, c + l);
+                ShortVector boxFixed = ShortVector.fromArray(SPECIES, fixed, b + l);
+                ShortVector left = mask.and(rowFixed.or(colFixed).or(boxFixed).not());
+                mask.blend(left, multi).intoArray(masks, base + l);
+                VectorMask<Short> empty = left.eq((short) 0).and(multi);
+                VectorMask<Short> decided = isSingle(left).andNot(empty).and(multi);
+                VectorMask<Short> undecided = multi.andNot(empty).andNot(decided);
+                contradict(outcome, l, empty);
+                if (decided.anyTrue()) {
+                    ShortVector digit = zero.blend(left, decided);
+                    rowFixed.or(digit).intoArray(fixed, r + l);
+                    colFixed.or(digit).intoArray(fixed, c + l);
+                    boxFixed.or(digit).intoArray(fixed, b + l);
+                    ShortVector.fromArray(SPECIES, outcome, l)
+                            .lanewise(VectorOperators.OR, BatchSolver.CHANGED, decided)
+                            .intoArray(outcome, l);
+                }
+                ShortVector.fromArray(SPECIES, open, l)
+                        .lanewise(VectorOperators.ADD, (short) 1, undecided).intoArray(open, l);
+            }
+        }
+
+        // Hidden singles, one unit and one vector of lanes at a time.
+        for (int[] unit : UNIT_CELLS) {
+            for (int l = 0; l < stride; l += SPECIES.length()) {
+                ShortVector once = zero;
+                ShortVector twice = zero;
+                ShortVector decided = zero;
+                for (int cell : unit) {
+                    ShortVector mask = ShortVector.fromArray(SPECIES, masks, cell * stride + l);
+                    VectorMask<Short> single = isSingle(mask);
+                    decided = decided.or(zero.blend(mask, single));
+                    ShortVector multi = mask.blend(zero, single);
+                    twice = twice.or(once.and(multi));
+                    once = once.or(multi);
+                }
+                contradict(outcome, l, once.or(decided).compare(VectorOperators.NE,
+                        SudokuUnits.ALL_DIGITS));
+                ShortVector hidden = once.and(twice.or(decided).not());
+                if (!hidden.compare(VectorOperators.NE, 0).anyTrue()) {
+                    continue;
+                }
+                for (int cell : unit) {
+                    int at = cell * stride + l;
+                    ShortVector mask = ShortVector.fromArray(SPECIES, masks, at);
+                    ShortVector found = mask.and(hidden);
+                    VectorMask<Short> apply = found.compare(VectorOperators.NE, 0)
+                            .andNot(isSingle(mask));
+                    if (!apply.anyTrue()) {
+                        continue;
+                    }
+                    // Two digits that both have only this cell left.
+                    VectorMask<Short> two = isSingle(found).not().and(apply);
+                    VectorMask<Short> one = apply.andNot(two);
+                    contradict(outcome, l, two);
+                    mask.blend(found, one).intoArray(masks, at);
+                    ShortVector.fromArray(SPECIES, outcome, l)
+                            .lanewise(VectorOperators.OR, BatchSolver.CHANGED, one)
+                            .intoArray(outcome, l);
+                    ShortVector.fromArray(SPECIES, open, l)
+                            .lanewise(VectorOperators.SUB, (short) 1, one).intoArray(open, l);
+                }
+            }
+        }
+
+        for (int l = 0; l < stride; l += SPECIES.length()) {
+            ShortVector state = ShortVector.fromArray(SPECIES, outcome, l);
+            VectorMask<Short> solved = state.eq(BatchSolver.STUCK)
+                    .and(ShortVector.fromArray(SPECIES, open, l).eq((short) 0));
+            state.blend(BatchSolver.SOLVED, solved).intoArray(outcome, l);
+        }
+    }
+
+    // Lanes of 'mask' with at most one bit set.
+    private static VectorMask<Short> isSingle(ShortVector mask) {
+        return mask.and(mask.sub((short) 1)).eq((short) 0);
+    }
+
+    // Set the outcome of the lanes of 'clash' in the vector at 'l' to CONTRADICTION.
+    private static void contradict(short[] outcome, int l, VectorMask<Short> clash) {
+        if (clash.anyTrue()) {
+            ShortVector.fromArray(SPECIES, outcome, l).blend(BatchSolver.CONTRADICTION, clash)
+                    .intoArray(outcome, l);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package graph;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * `CandidateEngine` using `jdk.incubator.vector` lanes.  The board is copied into three layouts of
+ * digit bits, one per kind of unit, arranged so that lane `u` of the vector loaded at offset
+ * `9 * k` holds the `k`-th cell of unit `u`.  OR-ing the nine loads of a layout then yields the
+ * used-digit masks of all nine units of that kind at once, and the duplicates are found along the
+ * way.  Only loaded when the module is present; see `CandidateEngine.create()`.
+ */
+final class VectorCandidateEngine implements CandidateEngine {
+
+    // 16 lanes of 16 bits: one lane per unit of a kind, with 7 lanes to spare.
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_256;
+
+    // Lanes that correspond to a unit.
+    private static final VectorMask<Short> UNIT_LANES = VectorMask.fromLong(SPECIES, 0x1FF);
+
+    // Layout length: the last load starts at 72 and reads 16 lanes.
+    private static final int PADDED = 96;
+
+    /**
+     * Return whether the CPU has vectors wide enough for this engine to beat the scalar one.
+     */
+    static boolean isSupported() {
+        return ShortVector.SPECIES_PREFERRED.vectorBitSize() >= SPECIES.vectorBitSize();
+    }
+
+    // byRow[9 * c + r] is the digit bit of cell (r, c): lanes are rows.
+    private final short[] byRow = new short[PADDED];
+
+    // byCol[9 * r + c] is the digit bit of cell (r, c): lanes are columns.
+    private final short[] byCol = new short[PADDED];
+
+    // byBox[9 * k + b] is the digit bit of the k-th cell of box b: lanes are boxes.
+    private final short[] byBox = new short[PADDED];
+
+    // Used-digit masks of the last board loaded, one lane per unit.
+    private final short[] rowUsed = new short[16];
+    private final short[] colUsed = new short[16];
+    private final short[] boxUsed = new short[16];
+
+    // Box masks of one band of three rows, spread out so that lane c holds the box of column c.
+    private final short[] bandBoxes = new short[16];
+
+    /**
+     * Copy the 81 cells of the board starting at `grids[offset]` into the three layouts.
+     */
+    private void load(int[] grids, int offset) {
+        for (int i = 0; i < 81; i++) {
+            short bit = (short) SudokuUnits.bit(grids[offset + i]);
+            int r = SudokuUnits.row(i);
+            int c = SudokuUnits.col(i);
+            byCol[i] = bit;
+            byRow[9 * c + r] = bit;
+            byBox[9 * ((r % 3) * 3 + c % 3) + SudokuUnits.box(i)] = bit;
+        }
+    }
+
+    /**
+     * OR together the nine loads of `layout`, storing the used-digit mask of each unit in `used`.
+     * Returns false if a unit holds a digit twice.
+     */
+    private static boolean reduce(short[] layout, short[] used) {
+        ShortVector seen = ShortVector.zero(SPECIES);
+        ShortVector duplicates = ShortVector.zero(SPECIES);
+        for (int k = 0; k < 9; k++) {
+            ShortVector bits = ShortVector.fromArray(SPECIES, layout, 9 * k);
+            duplicates = duplicates.or(seen.and(bits));
+            seen = seen.or(bits);
+        }
+        seen.intoArray(used, 0);
+        return !duplicates.compare(VectorOperators.NE, (short) 0, UNIT_LANES).anyTrue();
+    }
+
+    /**
+     * Load the board at `grids[offset]` and compute all 27 unit masks.  Returns false if a unit
+     * holds a digit twice.
+     */
+    private boolean loadAndReduce(int[] grids, int offset) {
+        load(grids, offset);
+        // Non-short-circuit AND: every mask array must be filled even if a duplicate is found.
+        return reduce(byRow, rowUsed) & reduce(byCol, colUsed) & reduce(byBox, boxUsed);
+    }
+
+    /**
+     * Return whether all 27 units of the last board loaded hold every digit.
+     */
+    private boolean unitsFull() {
+        return full(rowUsed) && full(colUsed) && full(boxUsed);
+    }
+
+    private static boolean full(short[] used) {
+        return !ShortVector.fromArray(SPECIES, used, 0)
+                .compare(VectorOperators.NE, (short) SudokuUnits.ALL_DIGITS, UNIT_LANES).anyTrue();
+    }
+
+    @Override
+    public boolean unitMasks(int[] grid, int[] rowMasks, int[] colMasks, int[] boxMasks) {
+        boolean valid = loadAndReduce(grid, 0);
+        for (int u = 0; u < 9; u++) {
+            rowMasks[u] = rowUsed[u];
+            colMasks[u] = colUsed[u];
+            boxMasks[u] = boxUsed[u];
+        }
+        return valid;
+    }
+
+    @Override
+    public boolean candidates(int[] grid, short[] candidates) {
+        boolean valid = loadAndReduce(grid, 0);
+        ShortVector cols = ShortVector.fromArray(SPECIES, colUsed, 0);
+        for (int r = 0; r < 9; r++) {
+            if (r % 3 == 0) {
+                for (int c = 0; c < 9; c++) {
+                    bandBoxes[c] = boxUsed[r + c / 3];
+                }
+            }
+            ShortVector taken = cols.or(rowUsed[r])
+                    .or(ShortVector.fromArray(SPECIES, bandBoxes, 0));
+            ShortVector filled = ShortVector.fromArray(SPECIES, byCol, 9 * r);
+            taken.not().and((short) SudokuUnits.ALL_DIGITS)
+                    .blend((short) 0, filled.compare(VectorOperators.NE, (short) 0))
+                    .intoArray(candidates, 9 * r, UNIT_LANES);
+        }
+        return valid;
+    }
+
+    @Override
+    public boolean isValid(int[] grid, boolean complete) {
+        return loadAndReduce(grid, 0) && (!complete || unitsFull());
+    }
+
+    @Override
+    public int validateBatch(int[] grids, int count, boolean complete, boolean[] valid) {
+        int validCount = 0;
+        for (int b = 0; b < count; b++) {
+            valid[b] = loadAndReduce(grids, 81 * b) && (!complete || unitsFull());
+            if (valid[b]) {
+                validCount++;
+            }
+        }
+        return validCount;
+    }
+}